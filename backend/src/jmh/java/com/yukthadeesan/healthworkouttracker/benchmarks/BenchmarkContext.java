@@ -0,0 +1,81 @@
+package com.yukthadeesan.healthworkouttracker.benchmarks;
+
+import com.yukthadeesan.healthworkouttracker.HealthWorkoutTrackerApplication;
+import com.yukthadeesan.healthworkouttracker.models.User;
+import com.yukthadeesan.healthworkouttracker.repositories.UserRepository;
+import com.yukthadeesan.healthworkouttracker.services.WorkoutTrackingService;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Boots the application against embedded H2 and seeds it with workout history.
+ * Users and history length are JMH parameters, e.g. -p users=500 -p historyDays=730.
+ */
+@State(Scope.Benchmark)
+public class BenchmarkContext {
+
+    @Param("50")
+    public int users;
+
+    @Param("365")
+    public int historyDays;
+
+    public ConfigurableApplicationContext context;
+    public WorkoutTrackingService workoutTrackingService;
+    public List<Long> userIds;
+
+    @Setup(Level.Trial)
+    public void start() {
+        context = new SpringApplicationBuilder(HealthWorkoutTrackerApplication.class)
+                .profiles("jmh")
+                .run();
+        workoutTrackingService = context.getBean(WorkoutTrackingService.class);
+        seed();
+    }
+
+    @TearDown(Level.Trial)
+    public void stop() {
+        context.close();
+    }
+
+    /**
+     * Picks a seeded user
+     * @param random the caller's random source
+     * @return a user's ID
+     */
+    public Long randomUserId(Random random) {
+        return userIds.get(random.nextInt(userIds.size()));
+    }
+
+    private void seed() {
+        UserRepository userRepository = context.getBean(UserRepository.class);
+        Random random = new Random(42);
+        LocalDate today = LocalDate.now();
+
+        userIds = new ArrayList<>(users);
+        for (int i = 0; i < users; i++) {
+            User user = userRepository.save(new User("bench-user-" + i, "not-a-real-hash"));
+            userIds.add(user.getId());
+        }
+
+        // Oldest day first so the rollups are maintained incrementally, ~70% completed
+        // and an unbroken run over the last two weeks so streaks are non-trivial
+        for (Long userId : userIds) {
+            for (int daysAgo = historyDays - 1; daysAgo >= 0; daysAgo--) {
+                boolean completed = daysAgo < 14 || random.nextInt(10) < 7;
+                workoutTrackingService.recordWorkout(userId, today.minusDays(daysAgo), completed);
+            }
+        }
+    }
+}
@@ -0,0 +1,63 @@
+package com.yukthadeesan.healthworkouttracker.benchmarks;
+
+import com.yukthadeesan.healthworkouttracker.models.WorkoutDayView;
+import com.yukthadeesan.healthworkouttracker.services.WorkoutCalendarCache;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * getWorkoutDays over week, month and year ranges, from the cached calendar or the database
+ */
+@BenchmarkMode({Mode.AverageTime, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class WorkoutRangeBenchmark {
+
+    @Param({"7", "31", "365"})
+    public int rangeDays;
+
+    // false evicts the user's calendar before every read, measuring the database load
+    @Param({"true", "false"})
+    public boolean calendarCached;
+
+    private final Random random = new Random();
+    private WorkoutCalendarCache calendarCache;
+    private Long userId;
+
+    @Setup(Level.Trial)
+    public void setUp(BenchmarkContext benchmarkContext) {
+        calendarCache = benchmarkContext.context.getBean(WorkoutCalendarCache.class);
+    }
+
+    @Setup(Level.Invocation)
+    public void pickUser(BenchmarkContext benchmarkContext) {
+        userId = benchmarkContext.randomUserId(random);
+        if (!calendarCached) {
+            calendarCache.evict(userId);
+        }
+    }
+
+    @Benchmark
+    public List<WorkoutDayView> getWorkoutDays(BenchmarkContext benchmarkContext) {
+        LocalDate endDate = LocalDate.now();
+        return benchmarkContext.workoutTrackingService.getWorkoutDays(userId, endDate.minusDays(rangeDays - 1), endDate);
+    }
+}
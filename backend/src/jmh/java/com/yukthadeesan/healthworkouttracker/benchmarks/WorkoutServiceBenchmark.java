@@ -0,0 +1,51 @@
+package com.yukthadeesan.healthworkouttracker.benchmarks;
+
+import com.yukthadeesan.healthworkouttracker.models.WorkoutDay;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.time.LocalDate;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Service-level hot paths: month stats and recording a check-in
+ */
+@BenchmarkMode({Mode.AverageTime, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class WorkoutServiceBenchmark {
+
+    private final Random random = new Random();
+    private Long userId;
+
+    @Setup(Level.Iteration)
+    public void pickUser(BenchmarkContext benchmarkContext) {
+        userId = benchmarkContext.randomUserId(random);
+    }
+
+    @Benchmark
+    public Map<String, Object> getCurrentMonthStats(BenchmarkContext benchmarkContext) {
+        return benchmarkContext.workoutTrackingService.getCurrentMonthStats(userId);
+    }
+
+    @Benchmark
+    public WorkoutDay recordWorkout(BenchmarkContext benchmarkContext) {
+        // Flips a day of the last month, so both the incremental and the recompute rollup paths are exercised
+        LocalDate date = LocalDate.now().minusDays(random.nextInt(31));
+        return benchmarkContext.workoutTrackingService.recordWorkout(userId, date, random.nextBoolean());
+    }
+}
@@ -0,0 +1,100 @@
+package com.yukthadeesan.healthworkouttracker.controllers;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.yukthadeesan.healthworkouttracker.benchmarks.BenchmarkContext;
+import com.yukthadeesan.healthworkouttracker.models.WorkoutDay;
+import com.yukthadeesan.healthworkouttracker.models.WorkoutDayView;
+import com.yukthadeesan.healthworkouttracker.repositories.WorkoutDayRepository;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * A /range response body before and after the WorkoutDayView projection, from the query to the JSON bytes.
+ * Before: WorkoutDay entities with their User (as the former EAGER mapping fetched them) in a fresh
+ * persistence context, copied into a map per row. After: the repository's projection query, which builds
+ * WorkoutDayView records from the selected columns. Both query the database on every call; the calendar
+ * cache is not involved. The seeded users are read in turn, so there is no per-call setup.
+ * Add -prof gc for the bytes allocated per response:
+ *   ./gradlew jmh -PjmhArgs="WorkoutRangeResponseBenchmark -prof gc"
+ */
+@BenchmarkMode({Mode.AverageTime, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class WorkoutRangeResponseBenchmark {
+
+    @Param({"365"})
+    public int rangeDays;
+
+    private EntityManagerFactory entityManagerFactory;
+    private WorkoutDayRepository workoutDayRepository;
+    private ObjectMapper objectMapper;
+    private List<Long> userIds;
+    private LocalDate startDate;
+    private LocalDate endDate;
+    private int nextUser;
+
+    @Setup(Level.Trial)
+    public void setUp(BenchmarkContext benchmarkContext) {
+        entityManagerFactory = benchmarkContext.context.getBean(EntityManagerFactory.class);
+        workoutDayRepository = benchmarkContext.context.getBean(WorkoutDayRepository.class);
+        objectMapper = benchmarkContext.context.getBean(ObjectMapper.class);
+        userIds = benchmarkContext.userIds;
+        endDate = LocalDate.now();
+        startDate = endDate.minusDays(rangeDays - 1);
+    }
+
+    @Benchmark
+    public byte[] entitiesToMaps() throws JsonProcessingException {
+        EntityManager entityManager = entityManagerFactory.createEntityManager();
+        try {
+            List<WorkoutDay> workouts = entityManager.createQuery(
+                            "SELECT w FROM WorkoutDay w JOIN FETCH w.user " +
+                                    "WHERE w.user.id = :userId AND w.date BETWEEN :startDate AND :endDate",
+                            WorkoutDay.class)
+                    .setParameter("userId", nextUserId())
+                    .setParameter("startDate", startDate)
+                    .setParameter("endDate", endDate)
+                    .getResultList();
+            List<Map<String, Object>> workoutData = workouts.stream()
+                    .map(WorkoutTrackingController::convertWorkoutToMap)
+                    .collect(Collectors.toList());
+            return objectMapper.writeValueAsBytes(workoutData);
+        } finally {
+            entityManager.close();
+        }
+    }
+
+    @Benchmark
+    public byte[] projection() throws JsonProcessingException {
+        List<WorkoutDayView> workouts = workoutDayRepository.findByUserIdAndDateBetween(nextUserId(), startDate, endDate);
+        return objectMapper.writeValueAsBytes(workouts);
+    }
+
+    private Long nextUserId() {
+        Long userId = userIds.get(nextUser);
+        nextUser = (nextUser + 1) % userIds.size();
+        return userId;
+    }
+}
@@ -0,0 +1,97 @@
+package com.yukthadeesan.healthworkouttracker.controllers;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.yukthadeesan.healthworkouttracker.models.WorkoutBitmap;
+import com.yukthadeesan.healthworkouttracker.models.WorkoutDay;
+import com.yukthadeesan.healthworkouttracker.models.WorkoutDayView;
+import com.yukthadeesan.healthworkouttracker.services.WorkoutCalendar;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * JSON encoding of workout responses, configured like Spring Boot's ObjectMapper.
+ * Compares the per-row map built by convertWorkoutToMap with writing WorkoutDayView records directly,
+ * and both with the packed bitmap served for long ranges.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class WorkoutSerializationBenchmark {
+
+    @Param({"7", "31", "365"})
+    public int days;
+
+    private ObjectMapper objectMapper;
+    private List<WorkoutDay> workoutDays;
+    private List<WorkoutDayView> workoutDayViews;
+    private WorkoutCalendar calendar;
+    private LocalDate startDate;
+    private LocalDate endDate;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        objectMapper = new ObjectMapper()
+                .registerModule(new JavaTimeModule())
+                .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+
+        workoutDays = new ArrayList<>(days);
+        workoutDayViews = new ArrayList<>(days);
+        calendar = new WorkoutCalendar();
+        LocalDate date = LocalDate.now().minusDays(days);
+        startDate = date;
+        endDate = date.plusDays(days - 1);
+        for (int i = 0; i < days; i++, date = date.plusDays(1)) {
+            WorkoutDay workoutDay = new WorkoutDay(date, i % 3 != 0, null);
+            workoutDay.setId((long) i);
+            workoutDays.add(workoutDay);
+            workoutDayViews.add(new WorkoutDayView(date, i % 3 != 0, (long) i));
+            calendar.set(date, i % 3 != 0, (long) i);
+        }
+    }
+
+    @Benchmark
+    public byte[] convertWorkoutToMap() throws JsonProcessingException {
+        List<Map<String, Object>> workoutData = workoutDays.stream()
+                .map(WorkoutTrackingController::convertWorkoutToMap)
+                .collect(Collectors.toList());
+        return objectMapper.writeValueAsBytes(workoutData);
+    }
+
+    @Benchmark
+    public byte[] writeWorkoutDayViews() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(workoutDayViews);
+    }
+
+    @Benchmark
+    public byte[] writeBitmap() {
+        return calendar.getBitmap(startDate, endDate).encode();
+    }
+
+    @Benchmark
+    public byte[] writeBitmapJson() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(calendar.getBitmap(startDate, endDate).toJson());
+    }
+}
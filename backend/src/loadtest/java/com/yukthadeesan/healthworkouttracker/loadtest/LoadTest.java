@@ -0,0 +1,310 @@
+package com.yukthadeesan.healthworkouttracker.loadtest;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Closed-loop HTTP load test: every simulated user logs in once and then sends its next
+ * request as soon as the previous one completes. Requests are sent asynchronously, so a
+ * few client threads can keep thousands of users in flight.
+ * Latencies are recorded per operation after the warm-up and written to a JSON report.
+ */
+public class LoadTest {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    // Operation mix of one user iteration, in percent
+    private static final int STATS_PERCENT = 40;
+    private static final int MONTH_PERCENT = 40;
+
+    private final Options options;
+    private final HttpClient client;
+    private final Map<String, Recorder> recorders = new LinkedHashMap<>();
+    private final Map<String, LongAdder> errors = new LinkedHashMap<>();
+    private final AtomicBoolean recording = new AtomicBoolean();
+    private final AtomicBoolean running = new AtomicBoolean(true);
+
+    LoadTest(Options options) {
+        this.options = options;
+        this.client = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(Duration.ofSeconds(10))
+                .build();
+        for (String operation : List.of("stats", "month", "record")) {
+            // Microseconds up to 60 s at 3 significant digits
+            recorders.put(operation, new Recorder(TimeUnit.SECONDS.toMicros(60), 3));
+            errors.put(operation, new LongAdder());
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        Options options = Options.parse(args);
+        if (!options.compare.isEmpty()) {
+            compare(options.compare);
+            return;
+        }
+        new LoadTest(options).run();
+    }
+
+    private void run() throws Exception {
+        System.out.printf("Registering %d users against %s%n", options.users, options.baseUrl);
+        List<String> tokens = registerUsers();
+
+        System.out.printf("Running label=%s users=%d warmup=%ds duration=%ds%n",
+                options.label, tokens.size(), options.warmupSeconds, options.durationSeconds);
+        CountDownLatch stopped = new CountDownLatch(tokens.size());
+        for (String token : tokens) {
+            nextRequest(token, stopped);
+        }
+
+        Thread.sleep(TimeUnit.SECONDS.toMillis(options.warmupSeconds));
+        recorders.values().forEach(Recorder::reset);
+        errors.values().forEach(LongAdder::reset);
+        recording.set(true);
+        long start = System.nanoTime();
+
+        Thread.sleep(TimeUnit.SECONDS.toMillis(options.durationSeconds));
+        recording.set(false);
+        double elapsedSeconds = (System.nanoTime() - start) / 1e9;
+        running.set(false);
+        stopped.await(30, TimeUnit.SECONDS);
+
+        ObjectNode report = report(elapsedSeconds, tokens.size());
+        printReport(options.label, report);
+
+        File output = new File(options.outputDir, options.label + ".json");
+        output.getParentFile().mkdirs();
+        MAPPER.writerWithDefaultPrettyPrinter().writeValue(output, report);
+        System.out.println("Wrote " + output.getPath());
+    }
+
+    /**
+     * Registers the simulated users, at most 64 at a time.
+     * Registering signs a user in, so this doesn't go through the per-IP login throttle.
+     * Registrations have their own per-IP throttle: start the backend with
+     * --auth.register.throttle.ip.per-minute=0.
+     * @return one access token per user that logged in
+     */
+    private List<String> registerUsers() throws InterruptedException {
+        Semaphore inFlight = new Semaphore(64);
+        List<CompletableFuture<String>> registrations = new ArrayList<>(options.users);
+        String runId = Long.toString(System.currentTimeMillis(), 36);
+
+        for (int i = 0; i < options.users; i++) {
+            inFlight.acquire();
+            String body = MAPPER.createObjectNode()
+                    .put("username", "load-" + runId + "-" + i)
+                    .put("password", "load-test-password")
+                    .toString();
+            registrations.add(post("/api/auth/register", body, null)
+                    .thenApply(LoadTest::accessToken)
+                    .whenComplete((token, e) -> inFlight.release()));
+        }
+
+        List<String> tokens = new ArrayList<>(registrations.size());
+        int failed = 0;
+        for (CompletableFuture<String> registration : registrations) {
+            String token = registration.exceptionally(e -> null).join();
+            if (token == null) {
+                failed++;
+            } else {
+                tokens.add(token);
+            }
+        }
+        if (failed > 0) {
+            System.out.printf("%d of %d registrations failed%n", failed, options.users);
+        }
+        if (tokens.isEmpty()) {
+            throw new IllegalStateException("No user could be registered");
+        }
+        return tokens;
+    }
+
+    private static String accessToken(HttpResponse<String> response) {
+        if (response.statusCode() != 200) {
+            throw new IllegalStateException("Registration failed with status " + response.statusCode());
+        }
+        try {
+            return MAPPER.readTree(response.body()).get("token").asText();
+        } catch (IOException e) {
+            throw new IllegalStateException("Registration did not return a token", e);
+        }
+    }
+
+    private void nextRequest(String token, CountDownLatch stopped) {
+        if (!running.get()) {
+            stopped.countDown();
+            return;
+        }
+
+        long start = System.nanoTime();
+        int roll = ThreadLocalRandom.current().nextInt(100);
+        String operation;
+        CompletableFuture<HttpResponse<String>> response;
+        if (roll < STATS_PERCENT) {
+            operation = "stats";
+            response = get("/api/workouts/stats", token);
+        } else if (roll < STATS_PERCENT + MONTH_PERCENT) {
+            operation = "month";
+            response = get("/api/workouts/month", token);
+        } else {
+            operation = "record";
+            boolean completed = ThreadLocalRandom.current().nextBoolean();
+            response = post("/api/workouts/record?completed=" + completed, "", token);
+        }
+
+        response.whenComplete((result, e) -> {
+            if (recording.get()) {
+                recorders.get(operation).recordValue(TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - start));
+                if (e != null || result.statusCode() >= 400) {
+                    errors.get(operation).increment();
+                }
+            }
+            nextRequest(token, stopped);
+        });
+    }
+
+    private CompletableFuture<HttpResponse<String>> get(String path, String token) {
+        HttpRequest.Builder request = HttpRequest.newBuilder(URI.create(options.baseUrl + path))
+                .timeout(Duration.ofSeconds(30))
+                .GET();
+        return send(request, token);
+    }
+
+    private CompletableFuture<HttpResponse<String>> post(String path, String body, String token) {
+        HttpRequest.Builder request = HttpRequest.newBuilder(URI.create(options.baseUrl + path))
+                .timeout(Duration.ofSeconds(30))
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(body));
+        return send(request, token);
+    }
+
+    private CompletableFuture<HttpResponse<String>> send(HttpRequest.Builder request, String token) {
+        if (token != null) {
+            request.header("Authorization", "Bearer " + token);
+        }
+        return client.sendAsync(request.build(), HttpResponse.BodyHandlers.ofString());
+    }
+
+    private ObjectNode report(double elapsedSeconds, int users) {
+        ObjectNode report = MAPPER.createObjectNode();
+        report.put("label", options.label);
+        report.put("users", users);
+        report.put("durationSeconds", elapsedSeconds);
+
+        Histogram total = null;
+        long totalErrors = 0;
+        ObjectNode operations = report.putObject("operations");
+        for (Map.Entry<String, Recorder> entry : recorders.entrySet()) {
+            Histogram histogram = entry.getValue().getIntervalHistogram();
+            long operationErrors = errors.get(entry.getKey()).sum();
+            operations.set(entry.getKey(), summary(histogram, operationErrors, elapsedSeconds));
+
+            if (total == null) {
+                total = histogram.copy();
+            } else {
+                total.add(histogram);
+            }
+            totalErrors += operationErrors;
+        }
+        report.set("total", summary(total, totalErrors, elapsedSeconds));
+        return report;
+    }
+
+    private static ObjectNode summary(Histogram histogram, long errorCount, double elapsedSeconds) {
+        ObjectNode summary = MAPPER.createObjectNode();
+        summary.put("requests", histogram.getTotalCount());
+        summary.put("errors", errorCount);
+        summary.put("throughputPerSecond", histogram.getTotalCount() / elapsedSeconds);
+        summary.put("p50Millis", histogram.getValueAtPercentile(50) / 1000.0);
+        summary.put("p90Millis", histogram.getValueAtPercentile(90) / 1000.0);
+        summary.put("p99Millis", histogram.getValueAtPercentile(99) / 1000.0);
+        summary.put("p999Millis", histogram.getValueAtPercentile(99.9) / 1000.0);
+        summary.put("maxMillis", histogram.getMaxValue() / 1000.0);
+        return summary;
+    }
+
+    private static void printReport(String label, JsonNode report) {
+        System.out.printf("%n%-8s %-8s %10s %8s %10s %10s %10s %10s %10s%n",
+                "label", "op", "req/s", "errors", "p50 ms", "p90 ms", "p99 ms", "p99.9 ms", "max ms");
+        report.get("operations").fields().forEachRemaining(entry -> printRow(label, entry.getKey(), entry.getValue()));
+        printRow(label, "total", report.get("total"));
+    }
+
+    private static void printRow(String label, String operation, JsonNode summary) {
+        System.out.printf("%-8s %-8s %10.1f %8d %10.2f %10.2f %10.2f %10.2f %10.2f%n",
+                label, operation,
+                summary.get("throughputPerSecond").asDouble(),
+                summary.get("errors").asLong(),
+                summary.get("p50Millis").asDouble(),
+                summary.get("p90Millis").asDouble(),
+                summary.get("p99Millis").asDouble(),
+                summary.get("p999Millis").asDouble(),
+                summary.get("maxMillis").asDouble());
+    }
+
+    /**
+     * Prints the reports of earlier runs side by side, e.g. platform vs virtual threads
+     * @param reportFiles the JSON reports to compare
+     */
+    private static void compare(List<String> reportFiles) throws IOException {
+        for (String reportFile : reportFiles) {
+            JsonNode report = MAPPER.readTree(new File(reportFile));
+            printReport(report.get("label").asText(), report);
+        }
+    }
+
+    /**
+     * Command line options, as --name value pairs
+     */
+    record Options(String baseUrl, int users, int warmupSeconds, int durationSeconds,
+                   String label, String outputDir, List<String> compare) {
+
+        static Options parse(String[] args) {
+            Map<String, String> values = new LinkedHashMap<>();
+            List<String> compare = new ArrayList<>();
+            for (int i = 0; i < args.length; i++) {
+                if (args[i].equals("--compare")) {
+                    while (i + 1 < args.length && !args[i + 1].startsWith("--")) {
+                        compare.add(args[++i]);
+                    }
+                } else if (args[i].startsWith("--") && i + 1 < args.length) {
+                    values.put(args[i].substring(2), args[++i]);
+                } else if (!args[i].isBlank()) {
+                    throw new IllegalArgumentException("Unexpected argument: " + args[i]);
+                }
+            }
+
+            return new Options(
+                    values.getOrDefault("base-url", "http://localhost:8080"),
+                    Integer.parseInt(values.getOrDefault("users", "1000")),
+                    Integer.parseInt(values.getOrDefault("warmup", "15")),
+                    Integer.parseInt(values.getOrDefault("duration", "60")),
+                    values.getOrDefault("label", "run"),
+                    values.getOrDefault("output-dir", "build/reports/loadtest"),
+                    compare);
+        }
+    }
+}
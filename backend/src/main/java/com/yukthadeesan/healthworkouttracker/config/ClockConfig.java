@@ -0,0 +1,16 @@
+package com.yukthadeesan.healthworkouttracker.config;
+
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Clock;
+
+@Configuration
+public class ClockConfig {
+
+    // Source of the current instant for anything that depends on "today"; replace it to pin the time
+    @Bean
+    public Clock clock() {
+        return Clock.systemUTC();
+    }
+}
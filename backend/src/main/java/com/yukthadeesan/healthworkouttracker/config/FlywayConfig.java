@@ -0,0 +1,41 @@
+package com.yukthadeesan.healthworkouttracker.config;
+
+import org.flywaydb.core.Flyway;
+import org.flywaydb.core.api.MigrationInfo;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.flyway.FlywayMigrationStrategy;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+public class FlywayConfig {
+
+    private static final Logger log = LoggerFactory.getLogger(FlywayConfig.class);
+
+    // Checksum of V1 as first released, when it also created workout_rollups and workout_streak_states.
+    // Those tables moved to V6, which creates them only if they are missing
+    static final int FIRST_V1_CHECKSUM = -312415317;
+
+    // Databases that ran the first V1 have every table the current V1 and V6 create, so only the
+    // recorded checksum is out of date. Any other checksum mismatch still fails validation
+    @Bean
+    public FlywayMigrationStrategy flywayMigrationStrategy() {
+        return flyway -> {
+            if (ranFirstV1(flyway)) {
+                log.info("Schema history holds the first V1 baseline; updating its checksum before migrating");
+                flyway.repair();
+            }
+            flyway.migrate();
+        };
+    }
+
+    static boolean ranFirstV1(Flyway flyway) {
+        for (MigrationInfo migration : flyway.info().applied()) {
+            if (migration.getVersion() != null && "1".equals(migration.getVersion().getVersion())) {
+                return Integer.valueOf(FIRST_V1_CHECKSUM).equals(migration.getChecksum());
+            }
+        }
+        return false;
+    }
+}
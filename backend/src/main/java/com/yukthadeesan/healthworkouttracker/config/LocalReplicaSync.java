@@ -0,0 +1,75 @@
+package com.yukthadeesan.healthworkouttracker.config;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Stands in for MySQL replication in the replica-local profile, where the primary and the
+ * replica are two embedded H2 databases: copies the primary's schema and data to the replica
+ * on a fixed interval, so reads routed to the replica lag behind writes like on a real replica.
+ */
+@Component
+@Profile("replica-local")
+public class LocalReplicaSync {
+
+    private static final Logger log = LoggerFactory.getLogger(LocalReplicaSync.class);
+
+    private final JdbcTemplate primary;
+    private final JdbcTemplate replica;
+    private final Duration interval;
+    private ScheduledExecutorService scheduler;
+    private Path script;
+
+    @Autowired
+    public LocalReplicaSync(@Qualifier("primaryDataSource") DataSource primary,
+                            @Qualifier("replicaDataSource") DataSource replica,
+                            @Value("${workout.datasource.local-replication-interval:2s}") Duration interval) {
+        this.primary = new JdbcTemplate(primary);
+        this.replica = new JdbcTemplate(replica);
+        this.interval = interval;
+    }
+
+    @PostConstruct
+    public void start() throws IOException {
+        script = Files.createTempFile("replica-local", ".sql");
+        scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "local-replica-sync");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleWithFixedDelay(this::copy, 0, interval.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void stop() throws IOException {
+        scheduler.shutdownNow();
+        Files.deleteIfExists(script);
+    }
+
+    private void copy() {
+        try {
+            primary.execute("SCRIPT DROP TO '" + script + "'");
+            replica.execute("DROP ALL OBJECTS");
+            replica.execute("RUNSCRIPT FROM '" + script + "'");
+        } catch (RuntimeException e) {
+            log.warn("Local replica sync failed", e);
+        }
+    }
+}
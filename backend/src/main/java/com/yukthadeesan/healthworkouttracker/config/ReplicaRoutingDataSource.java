@@ -0,0 +1,50 @@
+package com.yukthadeesan.healthworkouttracker.config;
+
+import com.yukthadeesan.healthworkouttracker.services.ReadYourWrites;
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Sends read-only transactions to the replica, except for a signed-in user, or a user
+ * named by {@link ReadYourWrites#readAs}, inside their read-your-writes window, whether this
+ * node saw the write or the request carries the window. Everything else, including work
+ * outside a transaction, goes to the primary. Has to sit behind a LazyConnectionDataSourceProxy, so the connection is
+ * only chosen once the transaction's read-only flag is known.
+ */
+class ReplicaRoutingDataSource extends AbstractRoutingDataSource {
+
+    enum Target { PRIMARY, REPLICA }
+
+    private final ReadYourWrites readYourWrites;
+
+    ReplicaRoutingDataSource(ReadYourWrites readYourWrites) {
+        this.readYourWrites = readYourWrites;
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        if (!TransactionSynchronizationManager.isCurrentTransactionReadOnly()) {
+            return Target.PRIMARY;
+        }
+        Long userId = readYourWrites.getReader();
+        if (userId == null) {
+            userId = currentUserId();
+        }
+        return userId != null && readYourWrites.isRecentWriter(userId) ? Target.PRIMARY : Target.REPLICA;
+    }
+
+    private static Long currentUserId() {
+        // TokenAuthenticationFilter names the authentication after the user's ID
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        if (authentication == null || !authentication.isAuthenticated()) {
+            return null;
+        }
+        try {
+            return Long.parseLong(authentication.getName());
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+}
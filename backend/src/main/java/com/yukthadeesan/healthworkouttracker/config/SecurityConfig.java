@@ -1,51 +1,67 @@
 package com.yukthadeesan.healthworkouttracker.config;
 
+import com.yukthadeesan.healthworkouttracker.services.AccessTokenService;
+import jakarta.servlet.DispatcherType;
 import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.actuate.autoconfigure.security.servlet.EndpointRequest;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.security.config.annotation.web.builders.HttpSecurity;
 import org.springframework.security.config.annotation.web.configuration.EnableWebSecurity;
-import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.config.http.SessionCreationPolicy;
 import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.security.web.SecurityFilterChain;
+import org.springframework.security.web.authentication.UsernamePasswordAuthenticationFilter;
+import org.springframework.security.web.util.matcher.RequestMatcher;
 
 @Configuration
 @EnableWebSecurity
 public class SecurityConfig {
 
     @Bean
-    public SecurityFilterChain securityFilterChain(HttpSecurity http) throws Exception {
+    public SecurityFilterChain securityFilterChain(HttpSecurity http, AccessTokenService accessTokenService,
+                                                   @Value("${management.server.port:-1}") int managementPort)
+            throws Exception {
         http
                 .csrf(csrf -> csrf.disable())
                 .authorizeHttpRequests(authorize -> authorize
+                        // Async redispatches of streamed responses were authorized on the original request
+                        .dispatcherTypeMatchers(DispatcherType.ASYNC, DispatcherType.ERROR).permitAll()
                         .requestMatchers("/api/auth/**").permitAll()
                         .requestMatchers("/api/workouts/test").permitAll()  // Allow test endpoint
+                        .requestMatchers(managementEndpoints(managementPort)).permitAll()
                         .anyRequest().authenticated()
                 )
-                .formLogin(form -> form
-                        .loginProcessingUrl("/api/auth/login")
-                        .successHandler((request, response, authentication) -> {
-                            // Return user info on successful login
-                            response.setContentType("application/json");
-                            response.getWriter().write("{\"success\":true,\"userId\":" +
-                                    ((UserDetails)authentication.getPrincipal()).getUsername() + "}");
-                        })
-                        .failureHandler((request, response, exception) -> {
+                // Stateless: every request authenticates with its access token, so any node can serve it
+                .sessionManagement(session -> session.sessionCreationPolicy(SessionCreationPolicy.STATELESS))
+                .addFilterBefore(new TokenAuthenticationFilter(accessTokenService),
+                        UsernamePasswordAuthenticationFilter.class)
+                .exceptionHandling(exceptions -> exceptions
+                        .authenticationEntryPoint((request, response, exception) -> {
                             response.setContentType("application/json");
                             response.setStatus(HttpServletResponse.SC_UNAUTHORIZED);
-                            response.getWriter().write("{\"success\":false,\"message\":\"" +
-                                    exception.getMessage() + "\"}");
-                        })
-                )
-                .logout(logout -> logout
-                        .logoutUrl("/api/auth/logout")
-                        .logoutSuccessHandler((request, response, authentication) -> {
-                            response.setContentType("application/json");
-                            response.getWriter().write("{\"success\":true}");
+                            response.getWriter().write("{\"success\":false,\"message\":\"Authentication required\"}");
                         })
                 );
 
         return http.build();
     }
+
+    /**
+     * Actuator endpoints, on the management port only; it is not exposed publicly. Without a separate
+     * management port (or with a random one) the endpoints need an access token like everything else.
+     */
+    private static RequestMatcher managementEndpoints(int managementPort) {
+        RequestMatcher endpoints = EndpointRequest.toAnyEndpoint();
+        // The local port is the connector's own, whatever forwarded headers say
+        return request -> managementPort > 0 && request.getLocalPort() == managementPort && endpoints.matches(request);
+    }
+
+    @Bean
+    public PasswordEncoder passwordEncoder(@Value("${auth.password.bcrypt-strength:10}") int strength) {
+        // Hashes with a lower strength are upgraded on the user's next successful login
+        return new BCryptPasswordEncoder(strength);
+    }
 }
\ No newline at end of file
@@ -0,0 +1,54 @@
+package com.yukthadeesan.healthworkouttracker.config;
+
+import com.yukthadeesan.healthworkouttracker.services.AccessTokenService;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.SecurityContext;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Authenticates requests carrying an "Authorization: Bearer" access token, or for the live
+ * stats stream, whose EventSource client can't set headers, an access_token query parameter.
+ * The authentication's name is the user's ID. Requests without a valid token
+ * pass through unauthenticated and are rejected by the authorization rules.
+ */
+public class TokenAuthenticationFilter extends OncePerRequestFilter {
+
+    private static final String BEARER_PREFIX = "Bearer ";
+    private static final String QUERY_TOKEN_PATH = "/api/workouts/live";
+
+    private final AccessTokenService accessTokenService;
+
+    public TokenAuthenticationFilter(AccessTokenService accessTokenService) {
+        this.accessTokenService = accessTokenService;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        String token = null;
+        String header = request.getHeader("Authorization");
+        if (header != null && header.startsWith(BEARER_PREFIX)) {
+            token = header.substring(BEARER_PREFIX.length()).trim();
+        } else if (QUERY_TOKEN_PATH.equals(request.getServletPath())) {
+            // Only here: tokens in URLs end up in access logs
+            token = request.getParameter("access_token");
+        }
+        if (token != null) {
+            accessTokenService.verify(token).ifPresent(userId -> {
+                SecurityContext context = SecurityContextHolder.createEmptyContext();
+                context.setAuthentication(
+                        new UsernamePasswordAuthenticationToken(userId.toString(), null, List.of()));
+                SecurityContextHolder.setContext(context);
+            });
+        }
+        chain.doFilter(request, response);
+    }
+}
@@ -0,0 +1,25 @@
+package com.yukthadeesan.healthworkouttracker.config;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Fails startup when virtual threads are enabled (the virtual-threads profile) on a Java runtime
+ * that has none. Spring Boot ignores spring.threads.virtual.enabled below Java 21, which would leave
+ * the profile's pool and connection sizing running on Tomcat's platform threads.
+ */
+@Configuration
+@ConditionalOnProperty("spring.threads.virtual.enabled")
+public class VirtualThreadsConfig {
+
+    public VirtualThreadsConfig() {
+        requireVirtualThreads(Runtime.version().feature());
+    }
+
+    static void requireVirtualThreads(int javaVersion) {
+        if (javaVersion < 21) {
+            throw new IllegalStateException("spring.threads.virtual.enabled needs Java 21 or later, but this is Java "
+                    + javaVersion + "; run on Java 21+ or without the virtual-threads profile");
+        }
+    }
+}
@@ -1,84 +1,194 @@
 package com.yukthadeesan.healthworkouttracker.controllers;
 
 import com.yukthadeesan.healthworkouttracker.models.User;
-import com.yukthadeesan.healthworkouttracker.repositories.UserRepository;
+import com.yukthadeesan.healthworkouttracker.services.AccessTokenService;
+import com.yukthadeesan.healthworkouttracker.services.LoginThrottle;
 import com.yukthadeesan.healthworkouttracker.services.UserService;
-import jakarta.servlet.http.HttpSession;
+import com.yukthadeesan.healthworkouttracker.services.VerifiedUserCache;
+import jakarta.servlet.http.HttpServletRequest;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DataAccessException;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
 
 @RestController
 @RequestMapping("/api/auth")
 @CrossOrigin(origins = "http://localhost:3000") // For React frontend
 public class AuthController {
 
+    private static final Logger log = LoggerFactory.getLogger(AuthController.class);
+
     private final UserService userService;
+    private final VerifiedUserCache verifiedUsers;
+    private final AccessTokenService accessTokenService;
+    private final LoginThrottle loginThrottle;
 
     @Autowired
-    public AuthController(UserService userService) {
+    public AuthController(UserService userService, VerifiedUserCache verifiedUsers,
+                          AccessTokenService accessTokenService, LoginThrottle loginThrottle) {
         this.userService = userService;
+        this.verifiedUsers = verifiedUsers;
+        this.accessTokenService = accessTokenService;
+        this.loginThrottle = loginThrottle;
     }
 
     @PostMapping("/register")
-    public ResponseEntity<?> registerUser(@RequestBody User user) {
+    public CompletableFuture<ResponseEntity<?>> registerUser(@RequestBody User user, HttpServletRequest request) {
+        long retryAfterMillis = loginThrottle.tryAcquireRegistration(request.getRemoteAddr());
+        if (retryAfterMillis > 0) {
+            log.info("Registration throttled ip={}", request.getRemoteAddr());
+            return CompletableFuture.completedFuture(tooManyRequests(retryAfterMillis,
+                    "Too many registrations, try again later"));
+        }
+
+        CompletableFuture<User> registration;
         try {
-            User registeredUser = userService.registerUser(user);
-            Map<String, Object> response = new HashMap<>();
-            response.put("success", true);
-            response.put("message", "User registered successfully");
-            response.put("userId", registeredUser.getId());
-            response.put("username", registeredUser.getUsername());
-
-            return ResponseEntity.ok(response);
-        } catch (Exception e) {
-            Map<String, Object> response = new HashMap<>();
-            response.put("success", false);
-            response.put("message", e.getMessage());
-
-            return ResponseEntity.badRequest().body(response);
+            registration = userService.registerUser(user);
+        } catch (RuntimeException e) {
+            return CompletableFuture.completedFuture(registrationFailed(e.getMessage()));
         }
+
+        // The password is hashed on the hashing pool; the request thread is released meanwhile
+        return registration
+                .<ResponseEntity<?>>thenApply(this::registered)
+                .exceptionally(e -> {
+                    Throwable cause = e.getCause() != null ? e.getCause() : e;
+                    if (cause instanceof RejectedExecutionException) {
+                        log.warn("Registration rejected, password hashing queue is full");
+                        return tooManyRequests(1000, "Server busy, try again later");
+                    }
+                    if (cause instanceof DataAccessException) {
+                        log.error("Registration failed with an error username={}", user.getUsername(), cause);
+                        return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                                .body(Map.of("success", false, "message", "Registration failed"));
+                    }
+                    return registrationFailed(cause.getMessage());
+                });
+    }
+
+    private ResponseEntity<?> registered(User registeredUser) {
+        // A new user is signed in right away
+        AccessTokenService.IssuedToken token = accessTokenService.issue(registeredUser.getId());
+        verifiedUsers.markVerified(registeredUser.getId());
+
+        Map<String, Object> response = new HashMap<>();
+        response.put("success", true);
+        response.put("message", "User registered successfully");
+        response.put("userId", registeredUser.getId());
+        response.put("username", registeredUser.getUsername());
+        response.put("token", token.token());
+        response.put("expiresAt", token.expiresAt().toString());
+
+        return ResponseEntity.ok(response);
+    }
+
+    private ResponseEntity<?> registrationFailed(String message) {
+        Map<String, Object> response = new HashMap<>();
+        response.put("success", false);
+        response.put("message", message);
+
+        return ResponseEntity.badRequest().body(response);
     }
 
     @PostMapping("/login")
-    public ResponseEntity<?> loginUser(@RequestBody Map<String, String> credentials, HttpSession session) {
+    public CompletableFuture<ResponseEntity<?>> loginUser(@RequestBody Map<String, String> credentials,
+                                                          HttpServletRequest request) {
         String username = credentials.get("username");
         String password = credentials.get("password");
 
-        System.out.println("Login attempt for user: " + username);
+        log.debug("Login attempt username={}", username);
+
+        if (username == null || password == null) {
+            return CompletableFuture.completedFuture(loginFailed(username));
+        }
+
+        long retryAfterMillis = loginThrottle.tryAcquire(username, request.getRemoteAddr());
+        if (retryAfterMillis > 0) {
+            log.info("Login throttled username={} ip={}", username, request.getRemoteAddr());
+            return CompletableFuture.completedFuture(tooManyRequests(retryAfterMillis,
+                    "Too many login attempts, try again later"));
+        }
 
-        User user = userService.authenticateUser(username, password);
+        // The password check runs on the hashing pool; the request thread is released meanwhile
+        return userService.authenticateUser(username, password)
+                .<ResponseEntity<?>>thenApply(user -> user != null ? loginSucceeded(user) : loginFailed(username))
+                .exceptionally(e -> {
+                    if (e.getCause() instanceof RejectedExecutionException) {
+                        log.warn("Login rejected, password hashing queue is full username={}", username);
+                        return tooManyRequests(1000, "Server busy, try again later");
+                    }
+                    log.error("Login failed with an error username={}", username, e);
+                    return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                            .body(Map.of("success", false, "message", "Login failed"));
+                });
+    }
 
-        if (user != null) {
-            // Store user ID in session
-            session.setAttribute("USER_ID", user.getId());
-            System.out.println("User ID " + user.getId() + " stored in session");
+    private ResponseEntity<?> loginSucceeded(User user) {
+        // The client sends the token as "Authorization: Bearer <token>" on every request
+        AccessTokenService.IssuedToken token = accessTokenService.issue(user.getId());
+        verifiedUsers.markVerified(user.getId());
 
-            Map<String, Object> response = new HashMap<>();
-            response.put("success", true);
-            response.put("message", "Login successful");
-            response.put("userId", user.getId());
-            response.put("username", user.getUsername());
+        Map<String, Object> response = new HashMap<>();
+        response.put("success", true);
+        response.put("message", "Login successful");
+        response.put("userId", user.getId());
+        response.put("username", user.getUsername());
+        response.put("token", token.token());
+        response.put("expiresAt", token.expiresAt().toString());
 
-            System.out.println("Login successful for user: " + username + " with ID: " + user.getId());
-            return ResponseEntity.ok(response);
-        } else {
-            System.out.println("Login failed for user: " + username);
-            Map<String, Object> response = new HashMap<>();
-            response.put("success", false);
-            response.put("message", "Invalid username or password");
+        log.info("Login succeeded username={} userId={}", user.getUsername(), user.getId());
+        return ResponseEntity.ok(response);
+    }
 
-            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body(response);
-        }
+    private ResponseEntity<?> loginFailed(String username) {
+        log.info("Login failed username={}", username);
+        Map<String, Object> response = new HashMap<>();
+        response.put("success", false);
+        response.put("message", "Invalid username or password");
+
+        return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body(response);
+    }
+
+    private ResponseEntity<?> tooManyRequests(long retryAfterMillis, String message) {
+        Map<String, Object> response = new HashMap<>();
+        response.put("success", false);
+        response.put("message", message);
+
+        return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+                .header(HttpHeaders.RETRY_AFTER, Long.toString((retryAfterMillis + 999) / 1000))
+                .body(response);
+    }
+
+    /**
+     * Check whether a username is still free, e.g. while the sign-up form is being filled in.
+     * Most free names are answered from memory without a database query.
+     */
+    @GetMapping("/username-available")
+    public ResponseEntity<?> isUsernameAvailable(@RequestParam String username) {
+        Map<String, Object> response = new HashMap<>();
+        response.put("username", username);
+        response.put("available", userService.isUsernameAvailable(username));
+        return ResponseEntity.ok(response);
     }
 
     @PostMapping("/logout")
-    public ResponseEntity<?> logoutUser(HttpSession session) {
-        session.invalidate();
+    public ResponseEntity<?> logoutUser(HttpServletRequest request) {
+        // Tokens are stateless and stay valid until they expire; the client discards its copy
+        String header = request.getHeader("Authorization");
+        if (header != null && header.startsWith("Bearer ")) {
+            String token = header.substring("Bearer ".length()).trim();
+            accessTokenService.verify(token).ifPresent(verifiedUsers::forget);
+            accessTokenService.forget(token);
+        }
 
         Map<String, Object> response = new HashMap<>();
         response.put("success", true);
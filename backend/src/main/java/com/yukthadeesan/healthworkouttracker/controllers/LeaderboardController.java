@@ -0,0 +1,94 @@
+package com.yukthadeesan.healthworkouttracker.controllers;
+
+import com.yukthadeesan.healthworkouttracker.services.LeaderboardService;
+import com.yukthadeesan.healthworkouttracker.services.LeaderboardService.Metric;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.Authentication;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+@RestController
+@RequestMapping("/api/leaderboards")
+public class LeaderboardController {
+
+    private static final int MAX_PAGE_SIZE = 100;
+
+    private final LeaderboardService leaderboardService;
+
+    @Autowired
+    public LeaderboardController(LeaderboardService leaderboardService) {
+        this.leaderboardService = leaderboardService;
+    }
+
+    /**
+     * Get a page of a leaderboard, highest score first
+     * @param metric current-streak or monthly-completion-rate
+     * @param page the page number, starting at 0
+     * @param size the page size, at most 100
+     */
+    @GetMapping("/{metric}")
+    public ResponseEntity<?> getLeaderboard(@PathVariable String metric,
+                                            @RequestParam(defaultValue = "0") int page,
+                                            @RequestParam(defaultValue = "50") int size) {
+        if (page < 0 || size < 1 || size > MAX_PAGE_SIZE) {
+            return ResponseEntity.badRequest()
+                    .body(Map.of("error", "page must be >= 0 and size between 1 and " + MAX_PAGE_SIZE));
+        }
+        try {
+            Metric leaderboard = Metric.fromPath(metric);
+            LeaderboardService.Page result = leaderboardService.getPage(leaderboard, page, size);
+
+            Map<String, Object> response = new HashMap<>();
+            response.put("metric", leaderboard.getPath());
+            response.put("rebuiltAt", result.rebuiltAt().toString());
+            response.put("rankedUsers", result.rankedUsers());
+            response.put("page", page);
+            response.put("size", size);
+            List<Map<String, Object>> entries = result.entries().stream()
+                    .map(LeaderboardController::convertEntryToMap)
+                    .toList();
+            response.put("entries", entries);
+            return ResponseEntity.ok(response);
+        } catch (RuntimeException e) {
+            return ResponseEntity.status(404).body(Map.of("error", e.getMessage()));
+        }
+    }
+
+    /**
+     * Get the current user's rank on a leaderboard
+     */
+    @GetMapping("/{metric}/me")
+    public ResponseEntity<?> getMyRank(Authentication authentication, @PathVariable String metric) {
+        Long userId = Long.parseLong(authentication.getName());
+        try {
+            Metric leaderboard = Metric.fromPath(metric);
+            Optional<LeaderboardService.Entry> entry = leaderboardService.getRank(leaderboard, userId);
+            if (entry.isEmpty()) {
+                return ResponseEntity.status(404).body(Map.of("error", "Not ranked yet"));
+            }
+
+            Map<String, Object> response = convertEntryToMap(entry.get());
+            response.put("metric", leaderboard.getPath());
+            response.put("rankedUsers", leaderboardService.getRankedUsers());
+            return ResponseEntity.ok(response);
+        } catch (RuntimeException e) {
+            return ResponseEntity.status(404).body(Map.of("error", e.getMessage()));
+        }
+    }
+
+    private static Map<String, Object> convertEntryToMap(LeaderboardService.Entry entry) {
+        Map<String, Object> map = new HashMap<>();
+        map.put("rank", entry.rank());
+        map.put("userId", entry.userId());
+        if (entry.username() != null) {
+            map.put("username", entry.username());
+        }
+        map.put("value", entry.value());
+        return map;
+    }
+}
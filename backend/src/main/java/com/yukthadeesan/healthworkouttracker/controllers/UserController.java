@@ -0,0 +1,73 @@
+package com.yukthadeesan.healthworkouttracker.controllers;
+
+import com.yukthadeesan.healthworkouttracker.services.UserClock;
+import com.yukthadeesan.healthworkouttracker.services.UserService;
+import com.yukthadeesan.healthworkouttracker.services.WorkoutVersionTracker;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.Authentication;
+import org.springframework.web.bind.annotation.*;
+
+import java.time.DateTimeException;
+import java.time.ZoneId;
+import java.util.HashMap;
+import java.util.Map;
+
+@RestController
+@RequestMapping("/api/users/me")
+public class UserController {
+
+    private final UserService userService;
+    private final UserClock userClock;
+    private final WorkoutVersionTracker versionTracker;
+
+    @Autowired
+    public UserController(UserService userService, UserClock userClock,
+                          WorkoutVersionTracker versionTracker) {
+        this.userService = userService;
+        this.userClock = userClock;
+        this.versionTracker = versionTracker;
+    }
+
+    /**
+     * Get the time zone that decides the user's current day
+     */
+    @GetMapping("/timezone")
+    public ResponseEntity<?> getTimeZone(Authentication authentication) {
+        Long userId = Long.parseLong(authentication.getName());
+        return ResponseEntity.ok(convertTodayToMap(userId));
+    }
+
+    /**
+     * Set the user's time zone
+     * @param body {"timeZone": an IANA zone ID such as "Europe/Berlin", or null for the server's zone}
+     */
+    @PutMapping("/timezone")
+    public ResponseEntity<?> setTimeZone(Authentication authentication, @RequestBody Map<String, String> body) {
+        Long userId = Long.parseLong(authentication.getName());
+        String timeZone = body.get("timeZone");
+        if (timeZone != null) {
+            try {
+                timeZone = ZoneId.of(timeZone).getId();
+            } catch (DateTimeException e) {
+                return ResponseEntity.badRequest().body(Map.of("error", "Unknown time zone: " + timeZone));
+            }
+        }
+
+        if (!userService.setTimeZone(userId, timeZone)) {
+            return ResponseEntity.status(404).body(Map.of("error", "User not found with ID: " + userId));
+        }
+        userClock.setZone(userId, timeZone);
+        // Cached month, week and stats responses may now describe a different day
+        versionTracker.bump(userId);
+        return ResponseEntity.ok(convertTodayToMap(userId));
+    }
+
+    private Map<String, Object> convertTodayToMap(Long userId) {
+        ZoneId zone = userClock.getZone(userId);
+        Map<String, Object> map = new HashMap<>();
+        map.put("timeZone", zone.getId());
+        map.put("today", userClock.today(zone).date());
+        return map;
+    }
+}
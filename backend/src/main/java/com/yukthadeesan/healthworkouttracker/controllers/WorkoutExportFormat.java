@@ -0,0 +1,49 @@
+package com.yukthadeesan.healthworkouttracker.controllers;
+
+import com.yukthadeesan.healthworkouttracker.models.WorkoutDayView;
+
+/**
+ * Line formats of the workout history export
+ */
+enum WorkoutExportFormat {
+
+    NDJSON("application/x-ndjson", "ndjson", null) {
+        @Override
+        String line(WorkoutDayView day) {
+            return "{\"date\":\"" + day.date() + "\",\"completed\":" + day.completed() + "}";
+        }
+    },
+    CSV("text/csv", "csv", "date,completed") {
+        @Override
+        String line(WorkoutDayView day) {
+            return day.date() + "," + day.completed();
+        }
+    };
+
+    private final String contentType;
+    private final String extension;
+    private final String header;
+
+    WorkoutExportFormat(String contentType, String extension, String header) {
+        this.contentType = contentType;
+        this.extension = extension;
+        this.header = header;
+    }
+
+    String contentType() {
+        return contentType;
+    }
+
+    String extension() {
+        return extension;
+    }
+
+    /**
+     * @return the first line of the file, or null if the format has none
+     */
+    String header() {
+        return header;
+    }
+
+    abstract String line(WorkoutDayView day);
+}
@@ -0,0 +1,105 @@
+package com.yukthadeesan.healthworkouttracker.controllers;
+
+import com.yukthadeesan.healthworkouttracker.models.WorkoutImportJob;
+import com.yukthadeesan.healthworkouttracker.services.WorkoutImportService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.Authentication;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+@RestController
+@RequestMapping("/api/imports")
+public class WorkoutImportController {
+
+    private final WorkoutImportService workoutImportService;
+
+    @Autowired
+    public WorkoutImportController(WorkoutImportService workoutImportService) {
+        this.workoutImportService = workoutImportService;
+    }
+
+    /**
+     * Upload a CSV or NDJSON file of workout history to import in the background
+     * @param file the file, with a "date,completed" header for CSV
+     * @param format csv or ndjson, inferred from the file name if omitted
+     * @return the queued import job
+     */
+    @PostMapping
+    public ResponseEntity<?> importWorkouts(Authentication authentication,
+                                            @RequestParam MultipartFile file,
+                                            @RequestParam(required = false) String format) {
+        Long userId = Long.parseLong(authentication.getName());
+        try {
+            WorkoutImportJob.Format importFormat =
+                    format == null ? null : WorkoutImportJob.Format.valueOf(format.toUpperCase(Locale.ROOT));
+            WorkoutImportJob job = workoutImportService.submitUpload(userId, file, importFormat);
+            return ResponseEntity.accepted().body(convertJobToMap(job));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", "Unsupported format: " + format));
+        } catch (IOException e) {
+            return ResponseEntity.status(500).body(Map.of("error", "Could not store the uploaded file"));
+        }
+    }
+
+    /**
+     * Get the user's import jobs, newest first
+     */
+    @GetMapping
+    public ResponseEntity<?> getImports(Authentication authentication) {
+        Long userId = Long.parseLong(authentication.getName());
+        List<Map<String, Object>> jobs = workoutImportService.getJobs(userId).stream()
+                .map(WorkoutImportController::convertJobToMap)
+                .toList();
+        return ResponseEntity.ok(jobs);
+    }
+
+    /**
+     * Get the progress of an import job
+     */
+    @GetMapping("/{id}")
+    public ResponseEntity<?> getImport(Authentication authentication, @PathVariable Long id) {
+        Long userId = Long.parseLong(authentication.getName());
+        try {
+            return ResponseEntity.ok(convertJobToMap(workoutImportService.getJob(userId, id)));
+        } catch (RuntimeException e) {
+            return ResponseEntity.status(404).body(Map.of("error", e.getMessage()));
+        }
+    }
+
+    /**
+     * Resume a failed import job after its last committed chunk
+     */
+    @PostMapping("/{id}/resume")
+    public ResponseEntity<?> resumeImport(Authentication authentication, @PathVariable Long id) {
+        Long userId = Long.parseLong(authentication.getName());
+        try {
+            return ResponseEntity.accepted().body(convertJobToMap(workoutImportService.resume(userId, id)));
+        } catch (RuntimeException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
+    }
+
+    private static Map<String, Object> convertJobToMap(WorkoutImportJob job) {
+        Map<String, Object> map = new HashMap<>();
+        map.put("id", job.getId());
+        map.put("format", job.getFormat());
+        map.put("status", job.getStatus());
+        map.put("linesRead", job.getLinesRead());
+        map.put("rowsImported", job.getRowsImported());
+        map.put("rowsSkipped", job.getRowsSkipped());
+        map.put("rowsRejected", job.getRowsRejected());
+        map.put("firstError", job.getFirstError());
+        map.put("rowsPerSecond", job.getRowsPerSecond());
+        map.put("createdAt", job.getCreatedAt());
+        map.put("startedAt", job.getStartedAt());
+        map.put("finishedAt", job.getFinishedAt());
+        return map;
+    }
+}
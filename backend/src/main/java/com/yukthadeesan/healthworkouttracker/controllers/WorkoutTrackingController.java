@@ -1,63 +1,88 @@
 package com.yukthadeesan.healthworkouttracker.controllers;
 
 import com.yukthadeesan.healthworkouttracker.models.User;
+import com.yukthadeesan.healthworkouttracker.models.WorkoutBitmap;
 import com.yukthadeesan.healthworkouttracker.models.WorkoutDay;
+import com.yukthadeesan.healthworkouttracker.models.WorkoutDayView;
+import com.yukthadeesan.healthworkouttracker.services.DashboardService;
+import com.yukthadeesan.healthworkouttracker.services.LiveStatsBroadcaster;
+import com.yukthadeesan.healthworkouttracker.services.UserClock;
+import com.yukthadeesan.healthworkouttracker.services.WorkoutCalendarCache;
 import com.yukthadeesan.healthworkouttracker.services.WorkoutTrackingService;
+import com.yukthadeesan.healthworkouttracker.services.WorkoutVersionTracker;
 import jakarta.servlet.http.HttpServletRequest;
-import jakarta.servlet.http.HttpSession;
+import jakarta.servlet.http.HttpServletResponse;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.CacheControl;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.web.bind.annotation.*;
-
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
 import java.time.LocalDate;
 import java.util.HashMap;
 import java.util.List;
+import java.util.Locale;
 import java.util.Map;
-import java.util.stream.Collectors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.zip.GZIPOutputStream;
 
 @RestController
 @RequestMapping("/api/workouts")
 public class WorkoutTrackingController {
 
+    private static final Logger log = LoggerFactory.getLogger(WorkoutTrackingController.class);
+
     private final WorkoutTrackingService workoutTrackingService;
+    private final WorkoutVersionTracker versionTracker;
+    private final WorkoutCalendarCache calendarCache;
+    private final UserClock userClock;
+    private final LiveStatsBroadcaster liveStatsBroadcaster;
+    private final DashboardService dashboardService;
 
     @Autowired
-    public WorkoutTrackingController(WorkoutTrackingService workoutTrackingService) {
+    public WorkoutTrackingController(WorkoutTrackingService workoutTrackingService,
+                                     WorkoutVersionTracker versionTracker,
+                                     WorkoutCalendarCache calendarCache,
+                                     UserClock userClock,
+                                     LiveStatsBroadcaster liveStatsBroadcaster,
+                                     DashboardService dashboardService) {
         this.workoutTrackingService = workoutTrackingService;
+        this.versionTracker = versionTracker;
+        this.calendarCache = calendarCache;
+        this.userClock = userClock;
+        this.liveStatsBroadcaster = liveStatsBroadcaster;
+        this.dashboardService = dashboardService;
     }
 
     /**
      * Get the authenticated user's ID
-     * Note: This assumes your User entity has an 'id' field and your
-     * authentication principal can be cast to User or contains the user ID.
-     * Adjust according to your actual authentication setup.
+     * The access token filter authenticates requests with the user's ID as the name.
      */
     private Long getCurrentUserId(HttpServletRequest request) {
-        // Try to get user ID from session
-        HttpSession session = request.getSession(false);
-        if (session != null) {
-            Long userId = (Long) session.getAttribute("USER_ID");
-            if (userId != null) {
-                System.out.println("Found user ID in session: " + userId);
-                return userId;
-            }
-        }
-
-        // If no user ID in session, try other methods (fallback)
         Authentication auth = SecurityContextHolder.getContext().getAuthentication();
         if (auth != null && auth.isAuthenticated()) {
-            System.out.println("Auth Principal type: " + (auth.getPrincipal() != null ? auth.getPrincipal().getClass().getName() : "null"));
-            System.out.println("Auth Name: " + auth.getName());
-
             try {
                 return Long.parseLong(auth.getName());
             } catch (NumberFormatException e) {
-                // Log the issue
-                System.err.println("Could not parse user ID from auth name: " + auth.getName());
+                log.warn("Could not parse user ID from auth name={}", auth.getName());
             }
         }
 
@@ -65,7 +90,7 @@ public class WorkoutTrackingController {
     }
 
     /**
-     * Record a workout for the current day
+     * Record a workout, for the current day in the user's time zone unless a date is given
      * @param completed whether the workout was completed
      * @return the saved workout day
      */
@@ -77,40 +102,108 @@ public class WorkoutTrackingController {
 
         try {
             Long userId = getCurrentUserId(request);
-            System.out.println("Recording workout for user ID: " + userId + ", completed: " + completed);
-
             if (date == null) {
-                date = LocalDate.now();
+                date = userClock.today(userId).date();
+            }
+
+            if (workoutTrackingService.recordWorkoutBuffered(userId, date, completed)) {
+                // Write-behind: accepted, and written to the database shortly
+                Map<String, Object> accepted = new HashMap<>();
+                accepted.put("date", date);
+                accepted.put("completed", completed);
+                accepted.put("status", "accepted");
+                return ResponseEntity.accepted().body(accepted);
             }
 
             WorkoutDay workout = workoutTrackingService.recordWorkout(userId, date, completed);
-            System.out.println("Workout recorded successfully: " + workout.getId());
+            log.debug("Workout recorded userId={} date={} completed={}", userId, date, completed);
 
             return ResponseEntity.ok(convertWorkoutToMap(workout));
         } catch (Exception e) {
-            System.err.println("Error recording workout: " + e.getMessage());
-            e.printStackTrace();
+            log.error("Error recording workout", e);
             return ResponseEntity.status(500).body(Map.of("error", e.getMessage()));
         }
     }
 
+    /**
+     * Record many workouts at once, e.g. when a client syncs offline check-ins
+     * @param entries the dates and completion flags to record
+     * @return one result per entry
+     */
+    @PostMapping("/record/batch")
+    public ResponseEntity<?> recordWorkouts(
+            HttpServletRequest request,
+            @RequestBody List<WorkoutTrackingService.WorkoutEntry> entries) {
+
+        Long userId = getCurrentUserId(request);
+        try {
+            List<Map<String, Object>> results = workoutTrackingService.recordWorkouts(userId, entries);
+            return ResponseEntity.ok(Map.of("results", results));
+        } catch (RuntimeException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
+    }
+
     /**
      * Get workout days for a specified range
      */
     @GetMapping("/range")
     public ResponseEntity<?> getWorkoutsInRange(
             HttpServletRequest request,
+            HttpServletResponse response,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate startDate,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate endDate,
+            WebRequest webRequest) {
+
+        Long userId = getCurrentUserId(request);
+        // Same URL as the bitmap, so caches must key on Accept; set before a 304 is sent
+        response.addHeader(HttpHeaders.VARY, HttpHeaders.ACCEPT);
+        if (checkNotModified(webRequest, userId)) {
+            return null;
+        }
+        List<WorkoutDayView> workouts = workoutTrackingService.getWorkoutDays(userId, startDate, endDate);
+        return revalidated(workouts);
+    }
+
+    /**
+     * Get workout days for a specified range as a packed bitmap, for long ranges such as a
+     * multi-year heatmap. Selected with "Accept: application/octet-stream" (binary encoding)
+     * or "Accept: application/vnd.workout-bitmap+json" (base64 bitmaps in JSON); see WorkoutBitmap.
+     */
+    @GetMapping(value = "/range", produces = {MediaType.APPLICATION_OCTET_STREAM_VALUE, WorkoutBitmap.MEDIA_TYPE_JSON})
+    public ResponseEntity<?> getWorkoutBitmapInRange(
+            HttpServletRequest request,
+            HttpServletResponse response,
             @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate startDate,
-            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate endDate) {
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate endDate,
+            @RequestHeader(HttpHeaders.ACCEPT) String accept,
+            WebRequest webRequest) {
 
         Long userId = getCurrentUserId(request);
-        List<WorkoutDay> workouts = workoutTrackingService.getWorkoutDays(userId, startDate, endDate);
+        boolean json = accept.contains(WorkoutBitmap.MEDIA_TYPE_JSON);
+        response.addHeader(HttpHeaders.VARY, HttpHeaders.ACCEPT);
+        if (checkNotModified(webRequest, userId, json ? "bmjson" : "bin")) {
+            return null;
+        }
 
-        List<Map<String, Object>> workoutData = workouts.stream()
-                .map(this::convertWorkoutToMap)
-                .collect(Collectors.toList());
+        WorkoutBitmap bitmap;
+        try {
+            bitmap = workoutTrackingService.getWorkoutBitmap(userId, startDate, endDate);
+        } catch (RuntimeException e) {
+            return ResponseEntity.badRequest().contentType(MediaType.APPLICATION_JSON)
+                    .body(Map.of("error", e.getMessage()));
+        }
 
-        return ResponseEntity.ok(workoutData);
+        if (json) {
+            return ResponseEntity.ok()
+                    .cacheControl(CacheControl.noCache().cachePrivate())
+                    .contentType(MediaType.parseMediaType(WorkoutBitmap.MEDIA_TYPE_JSON))
+                    .body(bitmap.toJson());
+        }
+        return ResponseEntity.ok()
+                .cacheControl(CacheControl.noCache().cachePrivate())
+                .contentType(MediaType.APPLICATION_OCTET_STREAM)
+                .body(bitmap.encode());
     }
 
     /**
@@ -119,47 +212,201 @@ public class WorkoutTrackingController {
     @GetMapping("/week")
     public ResponseEntity<?> getCurrentWeekWorkouts(
             HttpServletRequest request,
-            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate weekStart) {
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate weekStart,
+            WebRequest webRequest) {
 
         Long userId = getCurrentUserId(request);
+        if (checkNotModified(webRequest, userId)) {
+            return null;
+        }
         if (weekStart == null) {
-            // Default to current week starting from Sunday
-            LocalDate today = LocalDate.now();
-            weekStart = today.minusDays(today.getDayOfWeek().getValue() % 7);
+            // Default to the user's current week, starting from Sunday
+            weekStart = userClock.today(userId).weekStart();
         }
 
-        List<WorkoutDay> workouts = workoutTrackingService.getWeekWorkouts(userId, weekStart);
-
-        List<Map<String, Object>> workoutData = workouts.stream()
-                .map(this::convertWorkoutToMap)
-                .collect(Collectors.toList());
-
-        return ResponseEntity.ok(workoutData);
+        List<WorkoutDayView> workouts = workoutTrackingService.getWeekWorkouts(userId, weekStart);
+        return revalidated(workouts);
     }
 
     /**
      * Get workout days for the current month
      */
     @GetMapping("/month")
-    public ResponseEntity<?> getCurrentMonthWorkouts(HttpServletRequest request) {
+    public ResponseEntity<?> getCurrentMonthWorkouts(HttpServletRequest request, WebRequest webRequest) {
         Long userId = getCurrentUserId(request);
-        List<WorkoutDay> workouts = workoutTrackingService.getCurrentMonthWorkouts(userId);
-
-        List<Map<String, Object>> workoutData = workouts.stream()
-                .map(this::convertWorkoutToMap)
-                .collect(Collectors.toList());
-
-        return ResponseEntity.ok(workoutData);
+        if (checkNotModified(webRequest, userId)) {
+            return null;
+        }
+        List<WorkoutDayView> workouts = workoutTrackingService.getCurrentMonthWorkouts(userId);
+        return revalidated(workouts);
     }
 
     /**
      * Get workout statistics
      */
     @GetMapping("/stats")
-    public ResponseEntity<?> getWorkoutStats(HttpServletRequest request) {
+    public ResponseEntity<?> getWorkoutStats(HttpServletRequest request, WebRequest webRequest) {
         Long userId = getCurrentUserId(request);
+        if (checkNotModified(webRequest, userId)) {
+            return null;
+        }
         Map<String, Object> stats = workoutTrackingService.getCurrentMonthStats(userId);
-        return ResponseEntity.ok(stats);
+        return revalidated(stats);
+    }
+
+    /**
+     * Get the current week, the current month and the month's stats in one response,
+     * instead of separate calls to /week, /month and /stats. The time each part took is
+     * returned in "timings" and in the Server-Timing header.
+     */
+    @GetMapping("/dashboard")
+    public ResponseEntity<?> getDashboard(HttpServletRequest request, WebRequest webRequest) {
+        Long userId = getCurrentUserId(request);
+        if (checkNotModified(webRequest, userId)) {
+            return null;
+        }
+        DashboardService.Dashboard dashboard = dashboardService.getDashboard(userId);
+
+        Map<String, Object> response = new HashMap<>();
+        response.put("weekStart", dashboard.weekStart());
+        response.put("week", dashboard.week());
+        response.put("month", dashboard.month());
+        response.put("stats", dashboard.stats());
+        response.put("timings", dashboard.timings());
+
+        StringBuilder serverTiming = new StringBuilder();
+        dashboard.timings().forEach((part, millis) -> {
+            if (serverTiming.length() > 0) {
+                serverTiming.append(", ");
+            }
+            serverTiming.append(part).append(";dur=").append(millis);
+        });
+        return ResponseEntity.ok()
+                .cacheControl(CacheControl.noCache().cachePrivate())
+                .header("Server-Timing", serverTiming.toString())
+                .body(response);
+    }
+
+    /**
+     * Stream the current month's stats and the current week as server-sent events.
+     * A "stats" event is sent on connect and after every change to the user's workouts,
+     * replacing polling of /stats and /week. EventSource can't set headers, so this
+     * endpoint also accepts the access token as the access_token query parameter.
+     */
+    @GetMapping(value = "/live", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public ResponseEntity<?> getLiveStats(HttpServletRequest request) {
+        Long userId = getCurrentUserId(request);
+        try {
+            SseEmitter emitter = liveStatsBroadcaster.subscribe(userId);
+            return ResponseEntity.ok()
+                    // Stops nginx from buffering the stream
+                    .header("X-Accel-Buffering", "no")
+                    .body(emitter);
+        } catch (RejectedExecutionException e) {
+            log.warn("Live stats stream rejected userId={} reason={}", userId, e.getMessage());
+            return ResponseEntity.status(503)
+                    .header(HttpHeaders.RETRY_AFTER, "30")
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .body(Map.of("error", "Too many live streams, retry later"));
+        }
+    }
+
+    /**
+     * Get monthly completion history
+     * @param months the number of months to return, ending with the current month
+     */
+    @GetMapping("/history")
+    public ResponseEntity<?> getWorkoutHistory(
+            HttpServletRequest request,
+            @RequestParam(defaultValue = "12") int months,
+            WebRequest webRequest) {
+
+        Long userId = getCurrentUserId(request);
+        if (checkNotModified(webRequest, userId)) {
+            return null;
+        }
+        List<Map<String, Object>> history = workoutTrackingService.getMonthlyHistory(userId, Math.min(months, 120));
+        return revalidated(history);
+    }
+
+    /**
+     * Answers conditional GETs (If-None-Match / If-Modified-Since) for reads of the user's data.
+     * The ETag comes from the user's stored version, so it is the same on every node, unless
+     * this node holds check-ins for the user that aren't stored yet; a 304 costs one primary key
+     * lookup. The version is read before the data, so a concurrent write can only make the
+     * next request miss, never serve stale data.
+     * @return true if the client's copy is current; the response is then a 304
+     */
+    private boolean checkNotModified(WebRequest webRequest, Long userId) {
+        return checkNotModified(webRequest, userId, null);
+    }
+
+    /**
+     * Like {@link #checkNotModified(WebRequest, Long)} for a URL served in several representations
+     * @param representation the ETag suffix of the representation being sent
+     */
+    private boolean checkNotModified(WebRequest webRequest, Long userId, String representation) {
+        UserClock.Today today = userClock.today(userId);
+        WorkoutVersionTracker.Version version = calendarCache.checkVersion(userId);
+        // Month, week and streaks also change at the user's midnight without any write
+        return webRequest.checkNotModified(versionTracker.etag(userId, version, today.date(), representation),
+                Math.max(version.modifiedAt(), today.startMillis()));
+    }
+
+    private static ResponseEntity<?> revalidated(Object body) {
+        // Browsers may keep the response but must revalidate it on every use
+        return ResponseEntity.ok()
+                .cacheControl(CacheControl.noCache().cachePrivate())
+                .body(body);
+    }
+
+    /**
+     * Export the user's whole workout history as a file download.
+     * Rows are written to the response as they are read from the database.
+     * @param format ndjson (one JSON object per line) or csv
+     * @param gzip whether to gzip the file
+     */
+    @GetMapping("/export")
+    public ResponseEntity<StreamingResponseBody> exportWorkouts(
+            HttpServletRequest request,
+            @RequestParam(defaultValue = "ndjson") String format,
+            @RequestParam(defaultValue = "false") boolean gzip) {
+
+        Long userId = getCurrentUserId(request);
+        WorkoutExportFormat exportFormat;
+        try {
+            exportFormat = WorkoutExportFormat.valueOf(format.toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+
+        String fileName = "workouts-" + userId + "." + exportFormat.extension() + (gzip ? ".gz" : "");
+        StreamingResponseBody body = out -> {
+            OutputStream target = gzip ? new GZIPOutputStream(out, 8192) : out;
+            try (Writer writer = new BufferedWriter(new OutputStreamWriter(target, StandardCharsets.UTF_8), 8192)) {
+                if (exportFormat.header() != null) {
+                    writer.write(exportFormat.header());
+                    writer.write('\n');
+                }
+                workoutTrackingService.exportWorkoutDays(userId, day -> {
+                    try {
+                        writer.write(exportFormat.line(day));
+                        writer.write('\n');
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+            } catch (UncheckedIOException e) {
+                // Usually the client went away; stop reading from the cursor
+                throw e.getCause();
+            }
+        };
+
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType(gzip ? "application/gzip" : exportFormat.contentType()))
+                .header(HttpHeaders.CONTENT_DISPOSITION,
+                        ContentDisposition.attachment().filename(fileName).build().toString())
+                .body(body);
     }
 
     /**
@@ -178,16 +425,12 @@ public class WorkoutTrackingController {
     @GetMapping("/debug")
     public ResponseEntity<?> debugAuth(HttpServletRequest request) {
         try {
-            HttpSession session = request.getSession(false);
-            Long userIdFromSession = session != null ? (Long) session.getAttribute("USER_ID") : null;
-
             Authentication auth = SecurityContextHolder.getContext().getAuthentication();
             Map<String, Object> debug = new HashMap<>();
             debug.put("isAuthenticated", auth.isAuthenticated());
             debug.put("principalType", auth.getPrincipal() != null ? auth.getPrincipal().getClass().getName() : "null");
             debug.put("name", auth.getName());
             debug.put("authorities", auth.getAuthorities().toString());
-            debug.put("userIdFromSession", userIdFromSession);
 
             return ResponseEntity.ok(debug);
         } catch (Exception e) {
@@ -203,8 +446,9 @@ public class WorkoutTrackingController {
 
     /**
      * Convert WorkoutDay entity to a map for JSON response
+     * (package-private so the serialization benchmark can call it)
      */
-    private Map<String, Object> convertWorkoutToMap(WorkoutDay workout) {
+    static Map<String, Object> convertWorkoutToMap(WorkoutDay workout) {
         Map<String, Object> map = new HashMap<>();
         map.put("id", workout.getId());
         map.put("date", workout.getDate());
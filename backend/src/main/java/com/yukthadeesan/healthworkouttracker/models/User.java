@@ -1,17 +1,31 @@
 package com.yukthadeesan.healthworkouttracker.models;
 
 import jakarta.persistence.*;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+import org.hibernate.annotations.DynamicUpdate;
+import org.hibernate.annotations.NaturalId;
+import org.hibernate.annotations.NaturalIdCache;
 
 import java.time.LocalDateTime;
 
 @Entity
-@Table(name = "users")
+@Table(name = "users", uniqueConstraints = @UniqueConstraint(name = "uk_users_username", columnNames = "username"))
+// Second-level cached (regions in application.conf); bulk JPQL updates of users evict the whole region,
+// so users are changed through the entity. Each node caches on its own: see application.conf for how
+// long other nodes can see a previous version. Updates write only the changed columns, so a stale copy
+// can't overwrite a column changed through another node.
+@Cacheable
+@DynamicUpdate
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "users")
+@NaturalIdCache(region = "users-by-username")
 public class User {
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
     private Long id;
 
-    @Column(nullable = false, unique = true)
+    @NaturalId
+    @Column(nullable = false)
     private String username;
 
     @Column(nullable = false)
@@ -20,6 +34,10 @@ public class User {
     @Column(name = "created_at")
     private LocalDateTime createdAt;
 
+    // IANA zone ID; null means the server's default zone
+    @Column(name = "time_zone", length = 64)
+    private String timeZone;
+
     // Constructors, getters, and setters
     public User() {
         this.createdAt = LocalDateTime.now();
@@ -44,5 +62,11 @@ public class User {
     public void setPassword(String password) {
         this.password = password;
     }
+    public String getTimeZone() {
+        return this.timeZone;
+    }
+    public void setTimeZone(String timeZone) {
+        this.timeZone = timeZone;
+    }
 
 }
\ No newline at end of file
@@ -0,0 +1,79 @@
+package com.yukthadeesan.healthworkouttracker.models;
+
+import java.nio.ByteBuffer;
+import java.time.LocalDate;
+import java.util.Base64;
+import java.util.Map;
+import java.util.function.BiConsumer;
+
+/**
+ * Packed representation of a range of workout days: one "recorded" and one "completed"
+ * bit per day, starting at startDate. Bit i of a bitmap is bit (i % 8) of byte (i / 8),
+ * least significant bit first.
+ * The binary encoding is decoded by frontend/src/services/workoutBitmap.js:
+ * <pre>
+ * int32  start epoch-day (big-endian)
+ * uint16 number of days
+ * byte[] recorded bitmap, ceil(days / 8) bytes
+ * byte[] completed bitmap, ceil(days / 8) bytes
+ * </pre>
+ * A year fits in 98 bytes. Archived years are stored in this encoding too.
+ */
+public record WorkoutBitmap(LocalDate startDate, int days, byte[] recorded, byte[] completed) {
+
+    public static final String MEDIA_TYPE_JSON = "application/vnd.workout-bitmap+json";
+    public static final int MAX_DAYS = 0xFFFF;
+
+    /**
+     * @return the binary encoding
+     */
+    public byte[] encode() {
+        ByteBuffer buffer = ByteBuffer.allocate(6 + recorded.length + completed.length);
+        buffer.putInt((int) startDate.toEpochDay());
+        buffer.putShort((short) days);
+        buffer.put(recorded);
+        buffer.put(completed);
+        return buffer.array();
+    }
+
+    /**
+     * Reads the binary encoding
+     * @param encoded the output of {@link #encode()}
+     * @return the bitmap
+     */
+    public static WorkoutBitmap decode(byte[] encoded) {
+        ByteBuffer buffer = ByteBuffer.wrap(encoded);
+        LocalDate startDate = LocalDate.ofEpochDay(buffer.getInt());
+        int days = Short.toUnsignedInt(buffer.getShort());
+        byte[] recorded = new byte[(days + 7) / 8];
+        byte[] completed = new byte[recorded.length];
+        buffer.get(recorded);
+        buffer.get(completed);
+        return new WorkoutBitmap(startDate, days, recorded, completed);
+    }
+
+    /**
+     * Calls an action for every recorded day, oldest first
+     * @param action called with the day and whether it was completed
+     */
+    public void forEachDay(BiConsumer<LocalDate, Boolean> action) {
+        for (int i = 0; i < days; i++) {
+            if ((recorded[i >>> 3] & (1 << (i & 7))) != 0) {
+                action.accept(startDate.plusDays(i), (completed[i >>> 3] & (1 << (i & 7))) != 0);
+            }
+        }
+    }
+
+    /**
+     * @return the JSON form, with both bitmaps base64-encoded
+     */
+    public Map<String, Object> toJson() {
+        return Map.of(
+                "startDate", startDate,
+                "startEpochDay", startDate.toEpochDay(),
+                "days", days,
+                "recorded", Base64.getEncoder().encodeToString(recorded),
+                "completed", Base64.getEncoder().encodeToString(completed)
+        );
+    }
+}
@@ -4,7 +4,8 @@ import jakarta.persistence.*;
 import java.time.LocalDate;
 
 @Entity
-@Table(name = "workout_days")
+@Table(name = "workout_days", uniqueConstraints =
+        @UniqueConstraint(name = "uk_workout_days_user_date", columnNames = {"user_id", "date"}))
 public class WorkoutDay {
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
@@ -16,7 +17,7 @@ public class WorkoutDay {
     @Column(nullable = false)
     private Boolean completed;
 
-    @ManyToOne
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "user_id", nullable = false)
     private User user;
 
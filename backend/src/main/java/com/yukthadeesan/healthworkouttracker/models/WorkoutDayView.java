@@ -0,0 +1,19 @@
+package com.yukthadeesan.healthworkouttracker.models;
+
+import java.time.LocalDate;
+
+/**
+ * Read-only view of a workout day: the date, completion flag and workout_days row ID.
+ * Built directly by queries and the in-memory calendar, so reads never hydrate
+ * WorkoutDay/User entities, and serialized to JSON as-is.
+ * The ID is null for days that have no row, i.e. days kept in the yearly archive.
+ */
+public record WorkoutDayView(LocalDate date, Boolean completed, Long id) {
+
+    /**
+     * A day without a workout_days row, or where the row ID isn't needed
+     */
+    public WorkoutDayView(LocalDate date, Boolean completed) {
+        this(date, completed, null);
+    }
+}
@@ -0,0 +1,203 @@
+package com.yukthadeesan.healthworkouttracker.models;
+
+import jakarta.persistence.*;
+import org.hibernate.annotations.JdbcTypeCode;
+import org.hibernate.type.SqlTypes;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+
+@Entity
+@Table(name = "workout_import_jobs")
+public class WorkoutImportJob {
+
+    public enum Format {
+        CSV,
+        // One JSON object per line
+        NDJSON
+    }
+
+    public enum Status {
+        QUEUED,
+        RUNNING,
+        COMPLETED,
+        FAILED
+    }
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "user_id", nullable = false)
+    private Long userId;
+
+    @Enumerated(EnumType.STRING)
+    @JdbcTypeCode(SqlTypes.VARCHAR)
+    @Column(nullable = false, length = 8)
+    private Format format;
+
+    @Column(name = "file_path", nullable = false, length = 1024)
+    private String filePath;
+
+    // Uploaded files are removed once imported; server-local files are left alone
+    @Column(name = "delete_file", nullable = false)
+    private Boolean deleteFile;
+
+    // The node that stored the file; only it resumes the job after a restart
+    @Column(length = 255)
+    private String node;
+
+    @Enumerated(EnumType.STRING)
+    @JdbcTypeCode(SqlTypes.VARCHAR)
+    @Column(nullable = false, length = 16)
+    private Status status;
+
+    // Input lines covered by committed chunks
+    @Column(name = "lines_read", nullable = false)
+    private Long linesRead;
+
+    @Column(name = "rows_imported", nullable = false)
+    private Long rowsImported;
+
+    // Dates the user already had, or that appeared earlier in the file
+    @Column(name = "rows_skipped", nullable = false)
+    private Long rowsSkipped;
+
+    @Column(name = "rows_rejected", nullable = false)
+    private Long rowsRejected;
+
+    @Column(name = "first_error", length = 512)
+    private String firstError;
+
+    @Column(name = "created_at", nullable = false)
+    private LocalDateTime createdAt;
+
+    @Column(name = "started_at")
+    private LocalDateTime startedAt;
+
+    @Column(name = "finished_at")
+    private LocalDateTime finishedAt;
+
+    // Constructors
+    public WorkoutImportJob() {
+    }
+
+    public WorkoutImportJob(Long userId, Format format, String filePath, boolean deleteFile, String node) {
+        this.userId = userId;
+        this.format = format;
+        this.filePath = filePath;
+        this.deleteFile = deleteFile;
+        this.node = node;
+        this.status = Status.QUEUED;
+        this.linesRead = 0L;
+        this.rowsImported = 0L;
+        this.rowsSkipped = 0L;
+        this.rowsRejected = 0L;
+        this.createdAt = LocalDateTime.now();
+    }
+
+    /**
+     * Rows processed per second since the job (last) started
+     */
+    public double getRowsPerSecond() {
+        if (startedAt == null) {
+            return 0;
+        }
+        LocalDateTime end = finishedAt != null ? finishedAt : LocalDateTime.now();
+        long millis = Math.max(Duration.between(startedAt, end).toMillis(), 1);
+        return (rowsImported + rowsSkipped + rowsRejected) * 1000.0 / millis;
+    }
+
+    // Getters and setters
+    public Long getId() {
+        return id;
+    }
+
+    public Long getUserId() {
+        return userId;
+    }
+
+    public Format getFormat() {
+        return format;
+    }
+
+    public String getFilePath() {
+        return filePath;
+    }
+
+    public Boolean getDeleteFile() {
+        return deleteFile;
+    }
+
+    public String getNode() {
+        return node;
+    }
+
+    public Status getStatus() {
+        return status;
+    }
+
+    public void setStatus(Status status) {
+        this.status = status;
+    }
+
+    public Long getLinesRead() {
+        return linesRead;
+    }
+
+    public void setLinesRead(Long linesRead) {
+        this.linesRead = linesRead;
+    }
+
+    public Long getRowsImported() {
+        return rowsImported;
+    }
+
+    public void setRowsImported(Long rowsImported) {
+        this.rowsImported = rowsImported;
+    }
+
+    public Long getRowsSkipped() {
+        return rowsSkipped;
+    }
+
+    public void setRowsSkipped(Long rowsSkipped) {
+        this.rowsSkipped = rowsSkipped;
+    }
+
+    public Long getRowsRejected() {
+        return rowsRejected;
+    }
+
+    public void setRowsRejected(Long rowsRejected) {
+        this.rowsRejected = rowsRejected;
+    }
+
+    public String getFirstError() {
+        return firstError;
+    }
+
+    public void setFirstError(String firstError) {
+        this.firstError = firstError;
+    }
+
+    public LocalDateTime getCreatedAt() {
+        return createdAt;
+    }
+
+    public LocalDateTime getStartedAt() {
+        return startedAt;
+    }
+
+    public void setStartedAt(LocalDateTime startedAt) {
+        this.startedAt = startedAt;
+    }
+
+    public LocalDateTime getFinishedAt() {
+        return finishedAt;
+    }
+
+    public void setFinishedAt(LocalDateTime finishedAt) {
+        this.finishedAt = finishedAt;
+    }
+}
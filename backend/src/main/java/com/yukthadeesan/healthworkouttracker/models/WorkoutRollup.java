@@ -0,0 +1,63 @@
+package com.yukthadeesan.healthworkouttracker.models;
+
+import jakarta.persistence.*;
+import org.hibernate.annotations.JdbcTypeCode;
+import org.hibernate.type.SqlTypes;
+
+import java.time.LocalDate;
+
+@Entity
+@Table(name = "workout_rollups", uniqueConstraints =
+        @UniqueConstraint(name = "uk_workout_rollups_user_period", columnNames = {"user_id", "period_type", "period_start"}))
+public class WorkoutRollup {
+
+    public enum PeriodType {
+        MONTH,
+        // ISO week, starting on Monday
+        WEEK
+    }
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "user_id", nullable = false)
+    private Long userId;
+
+    // Plain VARCHAR rather than a MySQL ENUM, matching the Flyway schema
+    @Enumerated(EnumType.STRING)
+    @JdbcTypeCode(SqlTypes.VARCHAR)
+    @Column(name = "period_type", nullable = false, length = 8)
+    private PeriodType periodType;
+
+    @Column(name = "period_start", nullable = false)
+    private LocalDate periodStart;
+
+    @Column(name = "completed_count", nullable = false)
+    private Integer completedCount;
+
+    // Constructors
+    public WorkoutRollup() {
+    }
+
+    // Getters
+    public Long getId() {
+        return id;
+    }
+
+    public Long getUserId() {
+        return userId;
+    }
+
+    public PeriodType getPeriodType() {
+        return periodType;
+    }
+
+    public LocalDate getPeriodStart() {
+        return periodStart;
+    }
+
+    public Integer getCompletedCount() {
+        return completedCount;
+    }
+}
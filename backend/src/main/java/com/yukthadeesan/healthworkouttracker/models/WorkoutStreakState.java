@@ -0,0 +1,73 @@
+package com.yukthadeesan.healthworkouttracker.models;
+
+import jakarta.persistence.*;
+import java.time.LocalDate;
+
+@Entity
+@Table(name = "workout_streak_states")
+public class WorkoutStreakState {
+    @Id
+    @Column(name = "user_id")
+    private Long userId;
+
+    // Newest completed day and the first day of the run of completed days ending on it
+    @Column(name = "last_completed_date")
+    private LocalDate lastCompletedDate;
+
+    @Column(name = "current_run_start")
+    private LocalDate currentRunStart;
+
+    @Column(name = "longest_streak", nullable = false)
+    private Integer longestStreak;
+
+    // False from when the row is created until the user's rollups have been built from their history
+    @Column(name = "built", nullable = false)
+    private Boolean built;
+
+    // Constructors
+    public WorkoutStreakState() {
+    }
+
+    public WorkoutStreakState(Long userId) {
+        this.userId = userId;
+        this.longestStreak = 0;
+        this.built = true;
+    }
+
+    // Getters and setters
+    public Long getUserId() {
+        return userId;
+    }
+
+    public LocalDate getLastCompletedDate() {
+        return lastCompletedDate;
+    }
+
+    public void setLastCompletedDate(LocalDate lastCompletedDate) {
+        this.lastCompletedDate = lastCompletedDate;
+    }
+
+    public LocalDate getCurrentRunStart() {
+        return currentRunStart;
+    }
+
+    public void setCurrentRunStart(LocalDate currentRunStart) {
+        this.currentRunStart = currentRunStart;
+    }
+
+    public Integer getLongestStreak() {
+        return longestStreak;
+    }
+
+    public void setLongestStreak(Integer longestStreak) {
+        this.longestStreak = longestStreak;
+    }
+
+    public Boolean getBuilt() {
+        return built;
+    }
+
+    public void setBuilt(Boolean built) {
+        this.built = built;
+    }
+}
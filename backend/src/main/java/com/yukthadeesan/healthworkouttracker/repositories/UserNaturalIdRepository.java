@@ -0,0 +1,11 @@
+package com.yukthadeesan.healthworkouttracker.repositories;
+
+import com.yukthadeesan.healthworkouttracker.models.User;
+
+/**
+ * Username lookups through Hibernate's natural-id API, which checks the second-level
+ * cache before querying. Derived queries like a plain findByUsername always hit the database.
+ */
+public interface UserNaturalIdRepository {
+    User findByUsername(String username);
+}
@@ -0,0 +1,25 @@
+package com.yukthadeesan.healthworkouttracker.repositories;
+
+import com.yukthadeesan.healthworkouttracker.models.User;
+import jakarta.persistence.EntityManager;
+import org.hibernate.Session;
+import org.springframework.transaction.annotation.Transactional;
+
+public class UserNaturalIdRepositoryImpl implements UserNaturalIdRepository {
+
+    private final EntityManager entityManager;
+
+    public UserNaturalIdRepositoryImpl(EntityManager entityManager) {
+        this.entityManager = entityManager;
+    }
+
+    // Not read-only: a user who just registered may not be on the replica yet.
+    // A cache hit needs no connection at all
+    @Override
+    @Transactional
+    public User findByUsername(String username) {
+        return entityManager.unwrap(Session.class)
+                .bySimpleNaturalId(User.class)
+                .load(username);
+    }
+}
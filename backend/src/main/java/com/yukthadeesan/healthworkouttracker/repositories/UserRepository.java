@@ -1,13 +1,33 @@
 package com.yukthadeesan.healthworkouttracker.repositories;
 
 import com.yukthadeesan.healthworkouttracker.models.User;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
 @Repository
-public interface UserRepository extends JpaRepository<User, Long> {
-    // This method will be automatically implemented by Spring Data JPA
-    // It allows you to find a user by their username
-    User findByUsername(String username);
-    boolean existsByUsername(String username);
+public interface UserRepository extends JpaRepository<User, Long>, UserNaturalIdRepository {
+
+    @Query("SELECT u.id FROM User u ORDER BY u.id")
+    List<Long> findAllIds();
+
+    // (id, username) pairs after an ID, for walking the whole table in keyset pages
+    @Query("SELECT u.id, u.username FROM User u WHERE u.id > :afterId ORDER BY u.id")
+    List<Object[]> findUsernamesAfter(@Param("afterId") Long afterId, Pageable page);
+
+    @Query("SELECT u.id FROM User u WHERE u.id > :afterId ORDER BY u.id")
+    List<Long> findIdsAfter(@Param("afterId") Long afterId, Pageable page);
+
+    @Query("SELECT u.timeZone FROM User u WHERE u.id = :id")
+    Optional<String> findTimeZoneById(@Param("id") Long id);
+
+    // (user id, time zone) pairs; the zone is null for users on the default zone
+    @Query("SELECT u.id, u.timeZone FROM User u WHERE u.id IN :ids")
+    List<Object[]> findTimeZonesByIds(@Param("ids") Collection<Long> ids);
 }
\ No newline at end of file
@@ -0,0 +1,149 @@
+package com.yukthadeesan.healthworkouttracker.repositories;
+
+import io.micrometer.core.annotation.Timed;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Date;
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+@Repository
+@Timed(value = "workout.jdbc", extraTags = {"repository", "WorkoutDayArchiveRepository"})
+public class WorkoutDayArchiveRepository {
+
+    private static final String FIND_BY_USER_IDS_SQL =
+            "SELECT user_id, archive_year, days FROM workout_day_archives WHERE user_id IN (:userIds) " +
+            "ORDER BY user_id, archive_year";
+
+    private static final String FIND_FOR_UPDATE_SQL =
+            "SELECT days FROM workout_day_archives WHERE user_id = ? AND archive_year = ? FOR UPDATE";
+
+    private static final String UPSERT_SQL =
+            "INSERT INTO workout_day_archives (user_id, archive_year, days) VALUES (?, ?, ?) AS new " +
+            "ON DUPLICATE KEY UPDATE days = new.days";
+
+    // For H2, see WorkoutDayBatchRepository
+    private static final String UPSERT_VALUES_FUNCTION_SQL =
+            "INSERT INTO workout_day_archives (user_id, archive_year, days) VALUES (?, ?, ?) " +
+            "ON DUPLICATE KEY UPDATE days = VALUES(days)";
+
+    // Served by the unique (user_id, date) index: one short range per user
+    private static final String FIND_HOT_DATES_SQL =
+            "SELECT user_id, date FROM workout_days WHERE user_id IN (:userIds) AND date < :before";
+
+    // Locks only the selected rows, so check-ins on other rows are never blocked
+    private static final String LOCK_HOT_ROWS_SQL =
+            "SELECT id, user_id, date, completed FROM workout_days " +
+            "WHERE user_id IN (:userIds) AND date < :before FOR UPDATE";
+
+    private static final String DELETE_HOT_ROWS_SQL = "DELETE FROM workout_days WHERE id IN (:ids)";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final NamedParameterJdbcTemplate namedJdbcTemplate;
+    private final String upsertSql;
+
+    @Autowired
+    public WorkoutDayArchiveRepository(JdbcTemplate jdbcTemplate,
+                                       @Value("${workout.jdbc.upsert-row-alias:true}") boolean upsertRowAlias) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.namedJdbcTemplate = new NamedParameterJdbcTemplate(jdbcTemplate);
+        this.upsertSql = upsertRowAlias ? UPSERT_SQL : UPSERT_VALUES_FUNCTION_SQL;
+    }
+
+    /**
+     * Gets the archived years of many users
+     * @param userIds the users' IDs
+     * @return the archives, ordered by user and year
+     */
+    public List<Archive> findByUserIds(Collection<Long> userIds) {
+        if (userIds.isEmpty()) {
+            return List.of();
+        }
+        return namedJdbcTemplate.query(FIND_BY_USER_IDS_SQL, Map.of("userIds", userIds),
+                (rs, row) -> new Archive(rs.getLong(1), rs.getInt(2), rs.getBytes(3)));
+    }
+
+    /**
+     * Gets one archived year and locks it until the transaction ends
+     * @param userId the user's ID
+     * @param year the year
+     * @return the encoded days, empty if the year isn't archived
+     */
+    public Optional<byte[]> findForUpdate(Long userId, int year) {
+        return jdbcTemplate.query(FIND_FOR_UPDATE_SQL, (rs, row) -> rs.getBytes(1), userId, year)
+                .stream()
+                .findFirst();
+    }
+
+    /**
+     * Inserts or replaces archived years in a single batch
+     * @param archives the archives
+     */
+    public void upsert(List<Archive> archives) {
+        jdbcTemplate.batchUpdate(upsertSql, archives, archives.size(), (ps, archive) -> {
+            ps.setLong(1, archive.userId());
+            ps.setInt(2, archive.year());
+            ps.setBytes(3, archive.days());
+        });
+    }
+
+    /**
+     * Gets the dates of workout_days rows before a date, for many users
+     * @param userIds the users' IDs
+     * @param before the first date not included
+     * @return (user id, date) pairs
+     */
+    public List<Object[]> findHotDatesBefore(Collection<Long> userIds, LocalDate before) {
+        if (userIds.isEmpty()) {
+            return List.of();
+        }
+        return namedJdbcTemplate.query(FIND_HOT_DATES_SQL,
+                Map.of("userIds", userIds, "before", Date.valueOf(before)),
+                (rs, row) -> new Object[]{rs.getLong(1), rs.getDate(2).toLocalDate()});
+    }
+
+    /**
+     * Gets and locks the workout_days rows before a date, for many users
+     * @param userIds the users' IDs
+     * @param before the first date not included
+     * @return the rows
+     */
+    public List<HotRow> lockHotRowsBefore(Collection<Long> userIds, LocalDate before) {
+        if (userIds.isEmpty()) {
+            return List.of();
+        }
+        return namedJdbcTemplate.query(LOCK_HOT_ROWS_SQL,
+                Map.of("userIds", userIds, "before", Date.valueOf(before)),
+                (rs, row) -> new HotRow(rs.getLong(1), rs.getLong(2), rs.getDate(3).toLocalDate(), rs.getBoolean(4)));
+    }
+
+    /**
+     * Deletes workout_days rows by ID
+     * @param ids the rows' IDs
+     */
+    public void deleteHotRows(Collection<Long> ids) {
+        if (!ids.isEmpty()) {
+            namedJdbcTemplate.update(DELETE_HOT_ROWS_SQL, Map.of("ids", ids));
+        }
+    }
+
+    /**
+     * One user's archived year
+     * @param days the year's days as an encoded WorkoutBitmap
+     */
+    public record Archive(long userId, int year, byte[] days) {
+    }
+
+    /**
+     * A workout_days row being archived
+     */
+    public record HotRow(long id, long userId, LocalDate date, boolean completed) {
+    }
+}
@@ -0,0 +1,80 @@
+package com.yukthadeesan.healthworkouttracker.repositories;
+
+import io.micrometer.core.annotation.Timed;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.sql.Date;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+
+@Repository
+@Timed(value = "workout.jdbc", extraTags = {"repository", "WorkoutDayBatchRepository"})
+public class WorkoutDayBatchRepository {
+
+    // Relies on the unique (user_id, date) constraint; with rewriteBatchedStatements=true
+    // the whole batch is sent to MySQL as one multi-row statement
+    private static final String UPSERT_SQL =
+            "INSERT INTO workout_days (user_id, date, completed) VALUES (?, ?, ?) AS new " +
+            "ON DUPLICATE KEY UPDATE completed = new.completed";
+
+    // VALUES() in ON DUPLICATE KEY UPDATE is deprecated since MySQL 8.0.20, but it is all H2 understands
+    private static final String UPSERT_VALUES_FUNCTION_SQL =
+            "INSERT INTO workout_days (user_id, date, completed) VALUES (?, ?, ?) " +
+            "ON DUPLICATE KEY UPDATE completed = VALUES(completed)";
+
+    // Same statement, but days that already exist keep their value
+    private static final String INSERT_MISSING_SQL =
+            "INSERT INTO workout_days (user_id, date, completed) VALUES (?, ?, ?) " +
+            "ON DUPLICATE KEY UPDATE completed = completed";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final String upsertSql;
+
+    @Autowired
+    public WorkoutDayBatchRepository(JdbcTemplate jdbcTemplate,
+                                     @Value("${workout.jdbc.upsert-row-alias:true}") boolean upsertRowAlias) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.upsertSql = upsertRowAlias ? UPSERT_SQL : UPSERT_VALUES_FUNCTION_SQL;
+    }
+
+    /**
+     * Inserts or updates many workout days for one user in a single batch
+     * @param userId the user's ID
+     * @param days the completion flag per date
+     * @return the update count per entry, in iteration order; what it means depends on the driver's
+     *         connection flags, and it is Statement.SUCCESS_NO_INFO when the driver rewrote the batch
+     */
+    @Transactional
+    public int[] upsert(Long userId, Map<LocalDate, Boolean> days) {
+        return batch(upsertSql, userId, days);
+    }
+
+    /**
+     * Inserts many workout days for one user in a single batch, leaving days the user already has unchanged
+     * @param userId the user's ID
+     * @param days the completion flag per date
+     * @return the update count per entry, as for {@link #upsert}
+     */
+    @Transactional
+    public int[] insertMissing(Long userId, Map<LocalDate, Boolean> days) {
+        return batch(INSERT_MISSING_SQL, userId, days);
+    }
+
+    private int[] batch(String sql, Long userId, Map<LocalDate, Boolean> days) {
+        if (days.isEmpty()) {
+            return new int[0];
+        }
+        List<Map.Entry<LocalDate, Boolean>> entries = List.copyOf(days.entrySet());
+
+        return jdbcTemplate.batchUpdate(sql, entries, entries.size(), (ps, entry) -> {
+            ps.setLong(1, userId);
+            ps.setDate(2, Date.valueOf(entry.getKey()));
+            ps.setBoolean(3, entry.getValue());
+        })[0];
+    }
+}
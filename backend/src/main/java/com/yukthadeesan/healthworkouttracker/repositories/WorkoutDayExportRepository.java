@@ -0,0 +1,39 @@
+package com.yukthadeesan.healthworkouttracker.repositories;
+
+import com.yukthadeesan.healthworkouttracker.models.WorkoutDayView;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Repository;
+
+import javax.sql.DataSource;
+import java.util.function.Consumer;
+
+@Repository
+public class WorkoutDayExportRepository {
+
+    private static final String HISTORY_SQL =
+            "SELECT date, completed FROM workout_days WHERE user_id = ? ORDER BY date";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    public WorkoutDayExportRepository(DataSource dataSource,
+                                      @Value("${workout.export.fetch-size:1000}") int fetchSize) {
+        // With useCursorFetch=true MySQL keeps the result on the server and sends fetch-size rows at a time
+        this.jdbcTemplate = new JdbcTemplate(dataSource);
+        this.jdbcTemplate.setFetchSize(fetchSize);
+    }
+
+    /**
+     * Reads a user's whole history through a forward-only cursor, one row at a time,
+     * so memory use does not depend on the history's size
+     * @param userId the user's ID
+     * @param action called for every day, oldest first
+     */
+    public void forEachDay(Long userId, Consumer<WorkoutDayView> action) {
+        RowCallbackHandler handler = rs -> action.accept(new WorkoutDayView(rs.getDate(1).toLocalDate(), rs.getBoolean(2)));
+        jdbcTemplate.query(HISTORY_SQL, handler, userId);
+    }
+}
@@ -1,15 +1,51 @@
 package com.yukthadeesan.healthworkouttracker.repositories;
 
 import com.yukthadeesan.healthworkouttracker.models.WorkoutDay;
-import com.yukthadeesan.healthworkouttracker.models.User;
+import com.yukthadeesan.healthworkouttracker.models.WorkoutDayView;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 import java.time.LocalDate;
+import java.util.Collection;
 import java.util.List;
 
 @Repository
 public interface WorkoutDayRepository extends JpaRepository<WorkoutDay, Long> {
-    WorkoutDay findByUserAndDate(User user, LocalDate date);
-    List<WorkoutDay> findByUserAndDateBetween(User user, LocalDate startDate, LocalDate endDate);
-    long countByUserAndCompletedAndDateBetween(User user, Boolean completed, LocalDate startDate, LocalDate endDate);
-}
\ No newline at end of file
+    // Filter on the user_id column directly, so callers don't need to load the User first
+    WorkoutDay findByUserIdAndDate(Long userId, LocalDate date);
+    List<WorkoutDayView> findByUserIdAndDateBetween(Long userId, LocalDate startDate, LocalDate endDate);
+    long countByUserIdAndCompletedAndDateBetween(Long userId, Boolean completed, LocalDate startDate, LocalDate endDate);
+
+    // Only the date column is selected so streaks can be computed in a single round trip
+    @Query("SELECT w.date FROM WorkoutDay w WHERE w.user.id = :userId AND w.completed = true " +
+            "AND w.date <= :endDate ORDER BY w.date DESC")
+    List<LocalDate> findCompletedDatesUpTo(@Param("userId") Long userId, @Param("endDate") LocalDate endDate);
+
+    // Same, within a window, for callers that know how far back they need to look
+    @Query("SELECT w.date FROM WorkoutDay w WHERE w.user.id = :userId AND w.completed = true " +
+            "AND w.date BETWEEN :startDate AND :endDate ORDER BY w.date DESC")
+    List<LocalDate> findCompletedDatesBetween(@Param("userId") Long userId, @Param("startDate") LocalDate startDate,
+                                              @Param("endDate") LocalDate endDate);
+
+    // Newest completed day before a date, read from the end of the covering index
+    @Query("SELECT MAX(w.date) FROM WorkoutDay w WHERE w.user.id = :userId AND w.completed = true " +
+            "AND w.date < :date")
+    LocalDate findLatestCompletedDateBefore(@Param("userId") Long userId, @Param("date") LocalDate date);
+
+    // (user id, date) pairs for many users at once, newest first per user
+    @Query("SELECT w.user.id, w.date FROM WorkoutDay w WHERE w.user.id IN :userIds AND w.completed = true " +
+            "ORDER BY w.user.id, w.date DESC")
+    List<Object[]> findCompletedDatesByUserIds(@Param("userIds") Collection<Long> userIds);
+
+    // Built straight from the selected columns: no managed entities and no join to users.
+    // Oldest first, which the unique (user_id, date) index gives for free
+    @Query("SELECT new com.yukthadeesan.healthworkouttracker.models.WorkoutDayView(w.date, w.completed, w.id) " +
+            "FROM WorkoutDay w WHERE w.user.id = :userId ORDER BY w.date")
+    List<WorkoutDayView> findViewsByUserId(@Param("userId") Long userId);
+
+    // (date, id) pairs, read from the unique (user_id, date) index alone
+    @Query("SELECT w.date, w.id FROM WorkoutDay w WHERE w.user.id = :userId AND w.date BETWEEN :startDate AND :endDate")
+    List<Object[]> findIdsByUserIdAndDateBetween(@Param("userId") Long userId, @Param("startDate") LocalDate startDate,
+                                                 @Param("endDate") LocalDate endDate);
+}
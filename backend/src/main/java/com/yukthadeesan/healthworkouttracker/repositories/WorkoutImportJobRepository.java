@@ -0,0 +1,29 @@
+package com.yukthadeesan.healthworkouttracker.repositories;
+
+import com.yukthadeesan.healthworkouttracker.models.WorkoutImportJob;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface WorkoutImportJobRepository extends JpaRepository<WorkoutImportJob, Long> {
+    List<WorkoutImportJob> findByUserIdOrderByCreatedAtDesc(Long userId);
+
+    // A node's own jobs, and jobs from before nodes were recorded
+    @Query("SELECT j FROM WorkoutImportJob j WHERE j.status IN :statuses AND (j.node = :node OR j.node IS NULL)")
+    List<WorkoutImportJob> findByStatusInForNode(@Param("statuses") Collection<WorkoutImportJob.Status> statuses,
+                                                 @Param("node") String node);
+
+    // Moves a job to a new status only from one of the given ones; 1 if this caller got the job, 0 if another did
+    @Modifying
+    @Transactional
+    @Query("UPDATE WorkoutImportJob j SET j.status = :status WHERE j.id = :id AND j.status IN :from")
+    int claim(@Param("id") Long id, @Param("from") Collection<WorkoutImportJob.Status> from,
+              @Param("status") WorkoutImportJob.Status status);
+}
@@ -0,0 +1,66 @@
+package com.yukthadeesan.healthworkouttracker.repositories;
+
+import com.yukthadeesan.healthworkouttracker.models.WorkoutRollup.PeriodType;
+import io.micrometer.core.annotation.Timed;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Date;
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+@Timed(value = "workout.jdbc", extraTags = {"repository", "WorkoutRollupBatchRepository"})
+public class WorkoutRollupBatchRepository {
+
+    // Period starts are computed by the caller, so the statement is the same on MySQL and H2
+    private static final String INSERT_ROLLUP_SQL =
+            "INSERT INTO workout_rollups (user_id, period_type, period_start, completed_count) VALUES (?, ?, ?, ?)";
+
+    // A row that is not built yet; an existing row, built or not, is left alone
+    private static final String INSERT_UNBUILT_STATE_SQL =
+            "INSERT IGNORE INTO workout_streak_states (user_id, longest_streak, built) VALUES (?, 0, false)";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    public WorkoutRollupBatchRepository(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    /**
+     * Inserts many rollup rows in a single batch. The periods must not have rows yet.
+     * @param rollups the rows to insert
+     */
+    public void insertRollups(List<RollupCount> rollups) {
+        if (rollups.isEmpty()) {
+            return;
+        }
+        jdbcTemplate.batchUpdate(INSERT_ROLLUP_SQL, rollups, rollups.size(), (ps, rollup) -> {
+            ps.setLong(1, rollup.userId());
+            ps.setString(2, rollup.periodType().name());
+            ps.setDate(3, Date.valueOf(rollup.periodStart()));
+            ps.setInt(4, rollup.completedCount());
+        });
+    }
+
+    /**
+     * Creates streak state rows marked as not built for the users that don't have one
+     * @param userIds the users' IDs
+     */
+    public void insertUnbuiltStates(Collection<Long> userIds) {
+        if (userIds.isEmpty()) {
+            return;
+        }
+        List<Long> ids = List.copyOf(userIds);
+        jdbcTemplate.batchUpdate(INSERT_UNBUILT_STATE_SQL, ids, ids.size(), (ps, userId) -> ps.setLong(1, userId));
+    }
+
+    /**
+     * One period's completed count
+     */
+    public record RollupCount(long userId, PeriodType periodType, LocalDate periodStart, int completedCount) {
+    }
+}
@@ -0,0 +1,41 @@
+package com.yukthadeesan.healthworkouttracker.repositories;
+
+import com.yukthadeesan.healthworkouttracker.models.WorkoutRollup;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface WorkoutRollupRepository extends JpaRepository<WorkoutRollup, Long> {
+    List<WorkoutRollup> findByUserIdAndPeriodTypeAndPeriodStartBetweenOrderByPeriodStart(
+            Long userId, WorkoutRollup.PeriodType periodType, LocalDate startDate, LocalDate endDate);
+
+    List<WorkoutRollup> findByUserIdInAndPeriodTypeAndPeriodStartIn(
+            Collection<Long> userIds, WorkoutRollup.PeriodType periodType, Collection<LocalDate> periodStarts);
+
+    // Adds delta (+1/-1) to one period's completed count, creating the row when needed
+    @Modifying
+    @Query(value = "INSERT INTO workout_rollups (user_id, period_type, period_start, completed_count) " +
+            "VALUES (:userId, :periodType, :periodStart, GREATEST(:delta, 0)) " +
+            "ON DUPLICATE KEY UPDATE completed_count = GREATEST(completed_count + :delta, 0)",
+            nativeQuery = true)
+    void applyDelta(@Param("userId") Long userId, @Param("periodType") String periodType,
+                    @Param("periodStart") LocalDate periodStart, @Param("delta") int delta);
+
+    @Modifying
+    @Query("DELETE FROM WorkoutRollup r WHERE r.userId IN :userIds AND r.periodType = :periodType " +
+            "AND r.periodStart BETWEEN :startDate AND :endDate")
+    void deletePeriods(@Param("userIds") Collection<Long> userIds,
+                       @Param("periodType") WorkoutRollup.PeriodType periodType,
+                       @Param("startDate") LocalDate startDate, @Param("endDate") LocalDate endDate);
+
+    @Modifying
+    @Query("DELETE FROM WorkoutRollup r WHERE r.userId IN :userIds")
+    void deleteByUserIds(@Param("userIds") Collection<Long> userIds);
+}
@@ -0,0 +1,41 @@
+package com.yukthadeesan.healthworkouttracker.repositories;
+
+import com.yukthadeesan.healthworkouttracker.models.WorkoutRollup;
+import com.yukthadeesan.healthworkouttracker.models.WorkoutStreakState;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface WorkoutStreakStateRepository extends JpaRepository<WorkoutStreakState, Long> {
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    Optional<WorkoutStreakState> findForUpdateByUserId(Long userId);
+
+    // Locked in user ID order, so rebuilds of overlapping sets of users can't deadlock
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    List<WorkoutStreakState> findForUpdateByUserIdInOrderByUserId(Collection<Long> userIds);
+
+    // Plain reads, so checking for a row never takes a lock
+    @Query("SELECT s.userId FROM WorkoutStreakState s WHERE s.userId IN :userIds")
+    List<Long> findUserIds(@Param("userIds") Collection<Long> userIds);
+
+    boolean existsByUserIdAndBuiltTrue(Long userId);
+
+    List<WorkoutStreakState> findByUserIdInAndBuiltTrue(Collection<Long> userIds);
+
+    // The streak state and one period's completed count (null if no rollup row) in a single statement
+    @Query("SELECT s, r.completedCount FROM WorkoutStreakState s LEFT JOIN WorkoutRollup r " +
+            "ON r.userId = s.userId AND r.periodType = :periodType AND r.periodStart = :periodStart " +
+            "WHERE s.userId = :userId AND s.built = true")
+    List<Object[]> findWithRollup(@Param("userId") Long userId,
+                                  @Param("periodType") WorkoutRollup.PeriodType periodType,
+                                  @Param("periodStart") LocalDate periodStart);
+}
@@ -0,0 +1,73 @@
+package com.yukthadeesan.healthworkouttracker.repositories;
+
+import io.micrometer.core.annotation.Timed;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+
+@Repository
+@Timed(value = "workout.jdbc", extraTags = {"repository", "WorkoutVersionRepository"})
+public class WorkoutVersionRepository {
+
+    // Plain arithmetic on the existing row, so neither VALUES() nor a row alias is needed
+    private static final String INCREMENT_SQL =
+            "INSERT INTO workout_versions (user_id, version) VALUES (?, 1) " +
+            "ON DUPLICATE KEY UPDATE version = version + 1";
+
+    private static final String FIND_SQL = "SELECT version FROM workout_versions WHERE user_id = ?";
+
+    private static final String FIND_BY_USER_IDS_SQL =
+            "SELECT user_id, version FROM workout_versions WHERE user_id IN (:userIds)";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final NamedParameterJdbcTemplate namedJdbcTemplate;
+
+    @Autowired
+    public WorkoutVersionRepository(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.namedJdbcTemplate = new NamedParameterJdbcTemplate(jdbcTemplate);
+    }
+
+    /**
+     * Increments a user's stored version. Call it inside the transaction that changes the user's
+     * workout days: the row stays locked until it commits, so versions follow the commit order.
+     * @param userId the user's ID
+     * @return the new version
+     */
+    public long increment(Long userId) {
+        jdbcTemplate.update(INCREMENT_SQL, userId);
+        return find(userId);
+    }
+
+    /**
+     * Gets a user's stored version
+     * @param userId the user's ID
+     * @return the version, 0 if the user's workout days never changed since the table was added
+     */
+    public long find(Long userId) {
+        return jdbcTemplate.query(FIND_SQL, (rs, row) -> rs.getLong(1), userId)
+                .stream()
+                .findFirst()
+                .orElse(0L);
+    }
+
+    /**
+     * Gets the stored versions of many users
+     * @param userIds the users' IDs
+     * @return the version per user; users whose workout days never changed are missing
+     */
+    public Map<Long, Long> findByUserIds(Collection<Long> userIds) {
+        Map<Long, Long> versions = new HashMap<>();
+        if (!userIds.isEmpty()) {
+            namedJdbcTemplate.query(FIND_BY_USER_IDS_SQL, Map.of("userIds", userIds),
+                    (RowCallbackHandler) rs -> versions.put(rs.getLong(1), rs.getLong(2)));
+        }
+        return versions;
+    }
+}
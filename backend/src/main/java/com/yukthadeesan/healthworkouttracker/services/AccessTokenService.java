@@ -0,0 +1,187 @@
+package com.yukthadeesan.healthworkouttracker.services;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Base64;
+import java.util.Optional;
+
+/**
+ * Issues and verifies signed, stateless access tokens.
+ * A token is "userId.expiresAt.signature", where the signature is an HMAC-SHA256 of
+ * "userId.expiresAt" under a key shared by all nodes, so any node can verify a token
+ * without a database or session lookup. Recently verified tokens are cached so repeat
+ * requests skip the HMAC as well. The key has no default, so a node without one fails to start
+ * rather than sign with a key anyone could read. The same key signs the read-your-writes
+ * windows handed to clients (see {@link ReadYourWrites}), under a prefix so neither can pass for the other.
+ */
+@Service
+public class AccessTokenService {
+
+    private static final String ALGORITHM = "HmacSHA256";
+    private static final Base64.Encoder ENCODER = Base64.getUrlEncoder().withoutPadding();
+    private static final Base64.Decoder DECODER = Base64.getUrlDecoder();
+    private static final String WRITE_WINDOW_PREFIX = "rw.";
+
+    private final Mac prototype;
+    private final Duration ttl;
+    private final Cache<String, VerifiedToken> verifiedTokens;
+
+    @Autowired
+    public AccessTokenService(@Value("${auth.token.secret}") String secret,
+                              @Value("${auth.token.ttl:12h}") Duration ttl,
+                              @Value("${auth.token.cache-size:100000}") long cacheSize) {
+        if (secret == null || secret.isBlank()) {
+            throw new IllegalStateException("auth.token.secret is not set; set AUTH_TOKEN_SECRET "
+                    + "(or use the dev profile locally)");
+        }
+        byte[] key;
+        try {
+            key = Base64.getDecoder().decode(secret.trim());
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("auth.token.secret must be base64", e);
+        }
+        if (key.length < 32) {
+            throw new IllegalArgumentException("auth.token.secret must be at least 256 bits");
+        }
+        try {
+            this.prototype = Mac.getInstance(ALGORITHM);
+            this.prototype.init(new SecretKeySpec(key, ALGORITHM));
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("Could not initialize " + ALGORITHM, e);
+        }
+        this.ttl = ttl;
+        this.verifiedTokens = Caffeine.newBuilder()
+                .maximumSize(cacheSize)
+                .expireAfterWrite(ttl)
+                .build();
+    }
+
+    /**
+     * Issues a token for a user who just logged in
+     * @param userId the user's ID
+     * @return the token and its expiry
+     */
+    public IssuedToken issue(Long userId) {
+        Instant expiresAt = Instant.now().plus(ttl);
+        String payload = userId + "." + expiresAt.getEpochSecond();
+        return new IssuedToken(payload + "." + ENCODER.encodeToString(sign(payload)), expiresAt);
+    }
+
+    /**
+     * Verifies a token's signature and expiry
+     * @param token the token sent by the client
+     * @return the user's ID, or empty if the token is malformed, forged or expired
+     */
+    public Optional<Long> verify(String token) {
+        VerifiedToken verified = verifiedTokens.getIfPresent(token);
+        if (verified == null) {
+            verified = parse(token);
+            if (verified == null) {
+                return Optional.empty();
+            }
+            verifiedTokens.put(token, verified);
+        }
+
+        if (!Instant.now().isBefore(Instant.ofEpochSecond(verified.expiresAt()))) {
+            verifiedTokens.invalidate(token);
+            return Optional.empty();
+        }
+        return Optional.of(verified.userId());
+    }
+
+    /**
+     * Drops a token from this node's cache, e.g. on logout.
+     * The token itself stays valid until it expires.
+     * @param token the token
+     */
+    public void forget(String token) {
+        verifiedTokens.invalidate(token);
+    }
+
+    /**
+     * Signs the end of a user's read-your-writes window, for the client to send back to any node
+     * @param userId the user's ID
+     * @param until the end of the window
+     * @return "userId.untilMillis.signature"
+     */
+    public String signWriteWindow(Long userId, Instant until) {
+        String payload = userId + "." + until.toEpochMilli();
+        return payload + "." + ENCODER.encodeToString(sign(WRITE_WINDOW_PREFIX + payload));
+    }
+
+    /**
+     * Verifies a read-your-writes window sent back by the client
+     * @param window the value from {@link #signWriteWindow}
+     * @param userId the user making the request
+     * @return the end of the window, or empty if it is malformed, forged or another user's
+     */
+    public Optional<Instant> verifyWriteWindow(String window, Long userId) {
+        int first = window.indexOf('.');
+        int second = window.indexOf('.', first + 1);
+        if (first <= 0 || second <= first + 1 || window.indexOf('.', second + 1) >= 0) {
+            return Optional.empty();
+        }
+
+        try {
+            byte[] signature = DECODER.decode(window.substring(second + 1));
+            if (!MessageDigest.isEqual(signature, sign(WRITE_WINDOW_PREFIX + window.substring(0, second)))
+                    || Long.parseLong(window.substring(0, first)) != userId) {
+                return Optional.empty();
+            }
+            return Optional.of(Instant.ofEpochMilli(Long.parseLong(window.substring(first + 1, second))));
+        } catch (IllegalArgumentException e) {
+            // Not base64 or not a number
+            return Optional.empty();
+        }
+    }
+
+    private VerifiedToken parse(String token) {
+        int first = token.indexOf('.');
+        int second = token.indexOf('.', first + 1);
+        if (first <= 0 || second <= first + 1 || token.indexOf('.', second + 1) >= 0) {
+            return null;
+        }
+
+        try {
+            byte[] signature = DECODER.decode(token.substring(second + 1));
+            if (!MessageDigest.isEqual(signature, sign(token.substring(0, second)))) {
+                return null;
+            }
+            return new VerifiedToken(Long.parseLong(token.substring(0, first)),
+                    Long.parseLong(token.substring(first + 1, second)));
+        } catch (IllegalArgumentException e) {
+            // Not base64 or not a number
+            return null;
+        }
+    }
+
+    private byte[] sign(String payload) {
+        try {
+            // Mac is not thread-safe; cloning the initialized prototype is cheaper than Mac.getInstance
+            Mac mac = (Mac) prototype.clone();
+            return mac.doFinal(payload.getBytes(StandardCharsets.US_ASCII));
+        } catch (CloneNotSupportedException e) {
+            throw new IllegalStateException(ALGORITHM + " is not cloneable", e);
+        }
+    }
+
+    /**
+     * A token handed out at login
+     */
+    public record IssuedToken(String token, Instant expiresAt) {
+    }
+
+    private record VerifiedToken(Long userId, long expiresAt) {
+    }
+}
@@ -0,0 +1,286 @@
+package com.yukthadeesan.healthworkouttracker.services;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Stream;
+
+/**
+ * Local append log of check-ins accepted by the write-behind buffer.
+ * Appends are group-committed: a single writer thread drains every queued record,
+ * writes them and fsyncs once, then completes all of their futures. The log is split
+ * into segments; a segment is deleted once everything in it has reached the database.
+ * Every record carries a sequence number. A flush of a user appends a flushed marker with
+ * the sequence it covers, so replay skips the user's older check-ins even while their segment
+ * is still on disk, and can't bring back a value that was since overwritten or deleted.
+ */
+public class CheckInLog implements Closeable {
+
+    private static final Logger log = LoggerFactory.getLogger(CheckInLog.class);
+
+    // userId (8 bytes), epoch-day (8 bytes), sequence (8 bytes), kind (1 byte)
+    private static final int RECORD_SIZE = 25;
+    private static final byte NOT_COMPLETED = 0;
+    private static final byte COMPLETED = 1;
+    private static final byte FLUSHED = 2;
+    private static final String SEGMENT_PREFIX = "checkins-";
+    private static final String SEGMENT_SUFFIX = ".log";
+
+    private final Path directory;
+    private final BlockingQueue<Append> queue = new LinkedBlockingQueue<>();
+    private final ReentrantLock segmentLock = new ReentrantLock();
+    private final List<Path> closedSegments = new ArrayList<>();
+    private final AtomicLong sequence = new AtomicLong();
+    private final Thread writer;
+    private FileChannel channel;
+    private long nextSegment;
+    private volatile boolean closed;
+
+    /**
+     * Opens the log, keeping any segments left by a previous run for {@link #recover()}
+     * @param directory the directory holding the segments
+     */
+    public CheckInLog(Path directory) throws IOException {
+        this.directory = directory;
+        Files.createDirectories(directory);
+
+        List<Path> existing = listSegments();
+        closedSegments.addAll(existing);
+        nextSegment = existing.isEmpty() ? 0 : segmentNumber(existing.get(existing.size() - 1)) + 1;
+        channel = openSegment();
+
+        writer = new Thread(this::writeLoop, "checkin-log-writer");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    /**
+     * Reads the check-ins of all closed segments that were not flushed yet, oldest first.
+     * A record torn by a crash at the end of a segment is ignored.
+     * Sequence numbers continue after the highest one found.
+     * @return the logged check-ins
+     */
+    public List<CheckIn> recover() throws IOException {
+        List<Record> records = new ArrayList<>();
+        for (Path segment : List.copyOf(closedSegments)) {
+            ByteBuffer buffer = ByteBuffer.wrap(Files.readAllBytes(segment));
+            while (buffer.remaining() >= RECORD_SIZE) {
+                records.add(new Record(buffer.getLong(), buffer.getLong(), buffer.getLong(), buffer.get()));
+            }
+        }
+
+        // A marker can be in a later segment than the check-ins it covers
+        Map<Long, Long> flushedThrough = new HashMap<>();
+        for (Record record : records) {
+            sequence.accumulateAndGet(record.sequence(), Math::max);
+            if (record.kind() == FLUSHED) {
+                flushedThrough.merge(record.userId(), record.sequence(), Math::max);
+            }
+        }
+
+        List<CheckIn> checkIns = new ArrayList<>();
+        for (Record record : records) {
+            if (record.kind() != FLUSHED && record.sequence() > flushedThrough.getOrDefault(record.userId(), 0L)) {
+                checkIns.add(new CheckIn(record.userId(), LocalDate.ofEpochDay(record.epochDay()),
+                        record.kind() == COMPLETED));
+            }
+        }
+        return checkIns;
+    }
+
+    /**
+     * Appends a check-in
+     * @return a future completed once the record is fsynced
+     */
+    public CompletableFuture<Void> append(Long userId, LocalDate date, boolean completed) {
+        return enqueue(new Record(userId, date.toEpochDay(), sequence.incrementAndGet(),
+                completed ? COMPLETED : NOT_COMPLETED));
+    }
+
+    /**
+     * @return the sequence number of the last check-in appended so far
+     */
+    public long lastSequence() {
+        return sequence.get();
+    }
+
+    /**
+     * Records that every check-in of a user up to a sequence number is in the database.
+     * Read {@link #lastSequence()} before taking the flushed snapshot: a check-in appended
+     * after that was buffered after it too, so it may not be part of the flush.
+     * @param userId the user's ID
+     * @param flushedThrough the sequence number read before the snapshot
+     * @return a future completed once the marker is fsynced
+     */
+    public CompletableFuture<Void> markFlushed(Long userId, long flushedThrough) {
+        return enqueue(new Record(userId, 0, flushedThrough, FLUSHED));
+    }
+
+    private CompletableFuture<Void> enqueue(Record record) {
+        Append append = new Append(record, new CompletableFuture<>());
+        if (closed) {
+            append.done().completeExceptionally(new IllegalStateException("Check-in log is closed"));
+        } else {
+            queue.add(append);
+        }
+        return append.done();
+    }
+
+    /**
+     * Starts a new segment. Every check-in appended before this call is in a closed segment.
+     * @return all closed segments that have not been deleted yet
+     */
+    public List<Path> rotate() {
+        segmentLock.lock();
+        try {
+            channel.close();
+            closedSegments.add(segmentPath(nextSegment - 1));
+            channel = openSegment();
+            return List.copyOf(closedSegments);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            segmentLock.unlock();
+        }
+    }
+
+    /**
+     * Deletes closed segments whose check-ins are all in the database
+     * @param segments segments returned by {@link #rotate()}
+     */
+    public void delete(List<Path> segments) {
+        segmentLock.lock();
+        try {
+            for (Path segment : segments) {
+                Files.deleteIfExists(segment);
+                closedSegments.remove(segment);
+            }
+        } catch (IOException e) {
+            log.warn("Could not delete check-in log segment", e);
+        } finally {
+            segmentLock.unlock();
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        closed = true;
+        try {
+            writer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        segmentLock.lock();
+        try {
+            channel.close();
+        } finally {
+            segmentLock.unlock();
+        }
+    }
+
+    private void writeLoop() {
+        List<Append> batch = new ArrayList<>();
+        while (!closed || !queue.isEmpty()) {
+            // Polls instead of being interrupted on close: an interrupt would close the FileChannel mid-write
+            try {
+                Append first = queue.poll(100, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+            queue.drainTo(batch);
+
+            try {
+                write(batch);
+                batch.forEach(append -> append.done().complete(null));
+            } catch (IOException e) {
+                log.error("Could not write {} check-ins to the log", batch.size(), e);
+                batch.forEach(append -> append.done().completeExceptionally(e));
+            }
+            batch.clear();
+        }
+    }
+
+    private void write(List<Append> batch) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(batch.size() * RECORD_SIZE);
+        for (Append append : batch) {
+            Record record = append.record();
+            buffer.putLong(record.userId());
+            buffer.putLong(record.epochDay());
+            buffer.putLong(record.sequence());
+            buffer.put(record.kind());
+        }
+        buffer.flip();
+
+        segmentLock.lock();
+        try {
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            // Data only; the segment's length is implied by its content
+            channel.force(false);
+        } finally {
+            segmentLock.unlock();
+        }
+    }
+
+    private FileChannel openSegment() throws IOException {
+        return FileChannel.open(segmentPath(nextSegment++),
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+    }
+
+    private Path segmentPath(long number) {
+        return directory.resolve(String.format("%s%019d%s", SEGMENT_PREFIX, number, SEGMENT_SUFFIX));
+    }
+
+    private List<Path> listSegments() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files
+                    .filter(path -> path.getFileName().toString().startsWith(SEGMENT_PREFIX))
+                    .filter(path -> path.getFileName().toString().endsWith(SEGMENT_SUFFIX))
+                    .sorted()
+                    .toList();
+        }
+    }
+
+    private static long segmentNumber(Path segment) {
+        String name = segment.getFileName().toString();
+        return Long.parseLong(name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length()));
+    }
+
+    /**
+     * A logged check-in
+     */
+    public record CheckIn(Long userId, LocalDate date, boolean completed) {
+    }
+
+    private record Record(long userId, long epochDay, long sequence, byte kind) {
+    }
+
+    private record Append(Record record, CompletableFuture<Void> done) {
+    }
+}
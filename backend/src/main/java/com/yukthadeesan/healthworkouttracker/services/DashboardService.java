@@ -0,0 +1,94 @@
+package com.yukthadeesan.healthworkouttracker.services;
+
+import com.yukthadeesan.healthworkouttracker.models.WorkoutDayView;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDate;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Builds everything the dashboard shows (current week, current month and month stats) in one call.
+ * The stats are the ones /stats returns, read from the rollups. The union of the week and month ranges
+ * is read from the user's calendar once, which costs at most one workout_days query and one archive
+ * lookup when the calendar isn't cached; the week and the month are sliced from it on the calling
+ * thread, as they are at most 42 days. Each part is timed, and the timings are returned with the
+ * result and published as workout.dashboard.part (timer).
+ */
+@Service
+public class DashboardService {
+
+    private final WorkoutTrackingService workoutTrackingService;
+    private final WorkoutCalendarCache calendarCache;
+    private final UserClock userClock;
+    private final MeterRegistry registry;
+
+    @Autowired
+    public DashboardService(WorkoutTrackingService workoutTrackingService, WorkoutCalendarCache calendarCache,
+                            UserClock userClock, MeterRegistry registry) {
+        this.workoutTrackingService = workoutTrackingService;
+        this.calendarCache = calendarCache;
+        this.userClock = userClock;
+        this.registry = registry;
+    }
+
+    /**
+     * Gets a user's dashboard for their current day. Like /stats, this first writes the
+     * user's pending write-behind check-ins.
+     * @param userId the user's ID
+     * @return the week, month and stats, with the time each part took
+     */
+    public Dashboard getDashboard(Long userId) {
+        long started = System.nanoTime();
+        Map<String, Double> timings = new LinkedHashMap<>();
+        UserClock.Today today = userClock.today(userId);
+
+        Map<String, Object> stats = timed("stats", timings, () -> workoutTrackingService.getCurrentMonthStats(userId));
+        // A week can start in the previous month or end in the next one
+        LocalDate from = today.weekStart().isBefore(today.monthStart()) ? today.weekStart() : today.monthStart();
+        LocalDate to = today.weekEnd().isAfter(today.monthEnd()) ? today.weekEnd() : today.monthEnd();
+        List<WorkoutDayView> days = timed("range", timings, () -> calendarCache.getDays(userId, from, to));
+
+        Dashboard dashboard = new Dashboard(today.weekStart(), slice(days, today.weekStart(), today.weekEnd()),
+                slice(days, today.monthStart(), today.monthEnd()), stats, timings);
+        timings.put("total", millis(System.nanoTime() - started));
+        return dashboard;
+    }
+
+    private static List<WorkoutDayView> slice(List<WorkoutDayView> days, LocalDate startDate, LocalDate endDate) {
+        return days.stream()
+                .filter(day -> !day.date().isBefore(startDate) && !day.date().isAfter(endDate))
+                .toList();
+    }
+
+    private <T> T timed(String part, Map<String, Double> timings, Supplier<T> work) {
+        long started = System.nanoTime();
+        try {
+            return work.get();
+        } finally {
+            long elapsed = System.nanoTime() - started;
+            Timer.builder("workout.dashboard.part").tag("part", part).register(registry)
+                    .record(elapsed, TimeUnit.NANOSECONDS);
+            timings.put(part, millis(elapsed));
+        }
+    }
+
+    private static double millis(long nanos) {
+        return Math.round(nanos / 1_000.0) / 1_000.0;
+    }
+
+    /**
+     * A user's dashboard
+     * @param weekStart the first day (Sunday) of the current week
+     * @param timings milliseconds taken by each part and in total
+     */
+    public record Dashboard(LocalDate weekStart, List<WorkoutDayView> week, List<WorkoutDayView> month,
+                            Map<String, Object> stats, Map<String, Double> timings) {
+    }
+}
@@ -0,0 +1,378 @@
+package com.yukthadeesan.healthworkouttracker.services;
+
+import com.yukthadeesan.healthworkouttracker.models.User;
+import com.yukthadeesan.healthworkouttracker.models.WorkoutRollup;
+import com.yukthadeesan.healthworkouttracker.models.WorkoutRollup.PeriodType;
+import com.yukthadeesan.healthworkouttracker.models.WorkoutStreakState;
+import com.yukthadeesan.healthworkouttracker.repositories.UserRepository;
+import com.yukthadeesan.healthworkouttracker.repositories.WorkoutRollupRepository;
+import com.yukthadeesan.healthworkouttracker.repositories.WorkoutStreakStateRepository;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.OptionalLong;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.ObjIntConsumer;
+
+/**
+ * Cross-user leaderboards for the current streak and the current month's completion rate.
+ * Scores come from the rollup and streak state tables, the same figures /stats shows, two
+ * queries per chunk of users, never from users' workout history. Users whose rollups aren't
+ * built yet are built once, on the first rebuild that finds them.
+ * Every user's scores are computed on startup and at the top of every hour, so each time
+ * zone's midnight is picked up within the hour, by a fork-join over chunks of users.
+ * Scores use "today" in each user's own time zone. In between, every change to a user's
+ * workout days that this node sees queues the user, and the queue is re-scored on the
+ * leaderboard thread, never on the writing or reading thread. Ranks and pages are served from
+ * {@link RankIndex}es.
+ */
+@Service
+public class LeaderboardService {
+
+    private static final Logger log = LoggerFactory.getLogger(LeaderboardService.class);
+
+    private final UserRepository userRepository;
+    private final WorkoutStreakStateRepository streakStateRepository;
+    private final WorkoutRollupRepository rollupRepository;
+    private final WorkoutRollupService rollupService;
+    private final WorkoutCalendarCache calendarCache;
+    private final UserClock userClock;
+    private final int chunkSize;
+    private final int threads;
+
+    private volatile Leaderboards leaderboards = new Leaderboards(Instant.now(), newIndexes());
+    // Users changed since they were last scored, waiting for the leaderboard thread
+    private final Set<Long> changedUsers = ConcurrentHashMap.newKeySet();
+    private final AtomicBoolean refreshQueued = new AtomicBoolean();
+    private ScheduledExecutorService scheduler;
+
+    @Autowired
+    public LeaderboardService(UserRepository userRepository, WorkoutStreakStateRepository streakStateRepository,
+                              WorkoutRollupRepository rollupRepository, WorkoutRollupService rollupService,
+                              WorkoutCalendarCache calendarCache, UserClock userClock,
+                              @Value("${workout.leaderboard.rebuild.chunk-size:1000}") int chunkSize,
+                              @Value("${workout.leaderboard.rebuild.threads:4}") int threads) {
+        this.userRepository = userRepository;
+        this.streakStateRepository = streakStateRepository;
+        this.rollupRepository = rollupRepository;
+        this.rollupService = rollupService;
+        this.calendarCache = calendarCache;
+        this.userClock = userClock;
+        this.chunkSize = chunkSize;
+        this.threads = threads;
+    }
+
+    @PostConstruct
+    public void start() {
+        scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "leaderboard-rebuild");
+            thread.setDaemon(true);
+            return thread;
+        });
+        calendarCache.addChangeListener(this::queueRefresh);
+        scheduler.execute(this::scheduledRebuild);
+    }
+
+    @PreDestroy
+    public void stop() {
+        scheduler.shutdownNow();
+    }
+
+    /**
+     * Gets a page of a leaderboard. Users with a score of 0 are ranked but not listed.
+     * @param metric the leaderboard
+     * @param page the page number, starting at 0
+     * @param size the page size
+     * @return the page
+     */
+    public Page getPage(Metric metric, int page, int size) {
+        Leaderboards current = leaderboards;
+        RankIndex index = current.indexes().get(metric);
+        List<RankIndex.Ranked> ranked = index.page(page * size, size);
+
+        List<Long> userIds = ranked.stream().map(RankIndex.Ranked::userId).toList();
+        Map<Long, String> usernames = new HashMap<>();
+        for (User user : userRepository.findAllById(userIds)) {
+            usernames.put(user.getId(), user.getUsername());
+        }
+
+        List<Entry> entries = new ArrayList<>(ranked.size());
+        for (RankIndex.Ranked entry : ranked) {
+            entries.add(new Entry(entry.rank(), entry.userId(), usernames.get(entry.userId()),
+                    metric.value(entry.score())));
+        }
+        return new Page(current.rebuiltAt(), index.size(), entries);
+    }
+
+    /**
+     * Gets a user's place on a leaderboard
+     * @param metric the leaderboard
+     * @param userId the user's ID
+     * @return the user's rank and score, empty if the user is not ranked yet
+     */
+    public Optional<Entry> getRank(Metric metric, Long userId) {
+        RankIndex index = leaderboards.indexes().get(metric);
+        OptionalLong rank = index.rank(userId);
+        Integer score = index.score(userId);
+        if (rank.isEmpty() || score == null) {
+            return Optional.empty();
+        }
+        return Optional.of(new Entry(rank.getAsLong(), userId, null, metric.value(score)));
+    }
+
+    /**
+     * @return the number of users on the leaderboards
+     */
+    public int getRankedUsers() {
+        return leaderboards.indexes().get(Metric.CURRENT_STREAK).size();
+    }
+
+    /**
+     * Recomputes every user's scores and replaces the leaderboards. Changes queued meanwhile
+     * are applied to the new leaderboards once it returns.
+     * @return the number of users ranked
+     */
+    public synchronized int rebuild() {
+        Instant rebuiltAt = Instant.now();
+        long started = System.nanoTime();
+        List<Long> userIds = userRepository.findAllIds();
+        ForkJoinPool pool = new ForkJoinPool(threads);
+        List<UserScores> scores;
+        try {
+            scores = pool.invoke(new ScoreTask(userIds.toArray(Long[]::new), 0, userIds.size()));
+        } finally {
+            pool.shutdown();
+        }
+
+        Map<Metric, RankIndex> indexes = newIndexes();
+        for (UserScores userScores : scores) {
+            userScores.forEach((metric, score) -> indexes.get(metric).put(userScores.userId(), score));
+        }
+        leaderboards = new Leaderboards(rebuiltAt, indexes);
+
+        log.info("Rebuilt leaderboards users={} durationMs={}",
+                scores.size(), (System.nanoTime() - started) / 1_000_000);
+        return scores.size();
+    }
+
+    /**
+     * Queues a user to be re-scored on the leaderboard thread, after a change to their workout days
+     * @param userId the user's ID
+     */
+    void queueRefresh(Long userId) {
+        changedUsers.add(userId);
+        if (refreshQueued.compareAndSet(false, true)) {
+            scheduler.execute(this::refreshChangedUsers);
+        }
+    }
+
+    /**
+     * Re-scores the queued users. Synchronized with {@link #rebuild}, so a change read by a
+     * running rebuild, or missed by it, is applied to the leaderboards that rebuild installs.
+     */
+    synchronized void refreshChangedUsers() {
+        refreshQueued.set(false);
+        List<Long> userIds = new ArrayList<>(changedUsers);
+        changedUsers.removeAll(userIds);
+        for (int from = 0; from < userIds.size(); from += chunkSize) {
+            List<Long> chunk = userIds.subList(from, Math.min(from + chunkSize, userIds.size()));
+            try {
+                scoreUsers(chunk).forEach(scores -> put(scores.userId(), scores));
+            } catch (RuntimeException e) {
+                log.warn("Could not update leaderboards users={}", chunk.size(), e);
+            }
+        }
+    }
+
+    private void put(Long userId, UserScores scores) {
+        Map<Metric, RankIndex> indexes = leaderboards.indexes();
+        scores.forEach((metric, score) -> indexes.get(metric).put(userId, score));
+    }
+
+    private void scheduledRebuild() {
+        try {
+            rebuild();
+        } catch (RuntimeException e) {
+            log.error("Leaderboard rebuild failed", e);
+        }
+        // Streaks and completion rates move with each zone's date, and zones change day on the hour
+        Instant now = Instant.now();
+        Duration untilNextHour = Duration.between(now, now.truncatedTo(ChronoUnit.HOURS).plus(1, ChronoUnit.HOURS));
+        scheduler.schedule(this::scheduledRebuild, untilNextHour.toMillis() + 1000, TimeUnit.MILLISECONDS);
+    }
+
+    private static Map<Metric, RankIndex> newIndexes() {
+        Map<Metric, RankIndex> indexes = new EnumMap<>(Metric.class);
+        for (Metric metric : Metric.values()) {
+            indexes.put(metric, new RankIndex(metric.maxScore));
+        }
+        return indexes;
+    }
+
+    /**
+     * @return the share of this month's days up to today that were completed, in basis points
+     */
+    private static int completionRate(long completedDays, LocalDate today) {
+        return (int) (completedDays * 10_000 / today.getDayOfMonth());
+    }
+
+    /**
+     * Scores users from their streak states and current month's rollups, building the rollups
+     * of users who have none yet
+     */
+    private List<UserScores> scoreUsers(List<Long> userIds) {
+        Map<Long, UserClock.Today> todays = new HashMap<>();
+        for (Object[] row : userRepository.findTimeZonesByIds(userIds)) {
+            todays.put((Long) row[0], userClock.today(userClock.toZone((String) row[1])));
+        }
+
+        Map<Long, WorkoutStreakState> states = new HashMap<>();
+        for (WorkoutStreakState state : streakStateRepository.findByUserIdInAndBuiltTrue(userIds)) {
+            states.put(state.getUserId(), state);
+        }
+        List<Long> unbuilt = userIds.stream().filter(id -> todays.containsKey(id) && !states.containsKey(id)).toList();
+        if (!unbuilt.isEmpty()) {
+            rollupService.rebuildUsers(unbuilt);
+            streakStateRepository.findByUserIdInAndBuiltTrue(unbuilt).forEach(state -> states.put(state.getUserId(), state));
+        }
+
+        // Users near a month boundary may be in different months, depending on their time zones
+        Set<LocalDate> monthStarts = new HashSet<>();
+        todays.values().forEach(today -> monthStarts.add(today.monthStart()));
+        Map<Long, Map<LocalDate, Integer>> monthCounts = new HashMap<>();
+        for (WorkoutRollup rollup : rollupRepository.findByUserIdInAndPeriodTypeAndPeriodStartIn(
+                userIds, PeriodType.MONTH, monthStarts)) {
+            monthCounts.computeIfAbsent(rollup.getUserId(), id -> new HashMap<>())
+                    .put(rollup.getPeriodStart(), rollup.getCompletedCount());
+        }
+
+        List<UserScores> scores = new ArrayList<>(userIds.size());
+        for (Long userId : userIds) {
+            UserClock.Today today = todays.get(userId);
+            WorkoutStreakState state = states.get(userId);
+            if (today == null || state == null) {
+                // Deleted since the IDs were read
+                continue;
+            }
+            int currentStreak = rollupService.getStreaks(state, today.date()).current();
+            int completedThisMonth = monthCounts.getOrDefault(userId, Map.of()).getOrDefault(today.monthStart(), 0);
+            scores.add(new UserScores(userId, currentStreak, completionRate(completedThisMonth, today.date())));
+        }
+        return scores;
+    }
+
+    /**
+     * Scores a range of users: splits until a range fits in one chunk, which is scored
+     * from a single read of the chunk's streak states and one of their month rollups
+     */
+    private final class ScoreTask extends RecursiveTask<List<UserScores>> {
+
+        private final Long[] userIds;
+        private final int from;
+        private final int to;
+
+        ScoreTask(Long[] userIds, int from, int to) {
+            this.userIds = userIds;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected List<UserScores> compute() {
+            if (to - from > chunkSize) {
+                int middle = (from + to) >>> 1;
+                ScoreTask left = new ScoreTask(userIds, from, middle);
+                left.fork();
+                List<UserScores> scores = new ScoreTask(userIds, middle, to).compute();
+                scores.addAll(left.join());
+                return scores;
+            }
+            return scoreUsers(Arrays.asList(userIds).subList(from, to));
+        }
+    }
+
+    private record Leaderboards(Instant rebuiltAt, Map<Metric, RankIndex> indexes) {
+    }
+
+    private record UserScores(Long userId, int currentStreak, int completionRate) {
+
+        void forEach(ObjIntConsumer<Metric> action) {
+            action.accept(Metric.CURRENT_STREAK, currentStreak);
+            action.accept(Metric.MONTHLY_COMPLETION_RATE, completionRate);
+        }
+    }
+
+    /**
+     * The available leaderboards
+     */
+    public enum Metric {
+        // Consecutive completed days ending today, up to 100 years
+        CURRENT_STREAK("current-streak", 36_525),
+        // Completed days of the current month so far, in basis points
+        MONTHLY_COMPLETION_RATE("monthly-completion-rate", 10_000);
+
+        private final String path;
+        private final int maxScore;
+
+        Metric(String path, int maxScore) {
+            this.path = path;
+            this.maxScore = maxScore;
+        }
+
+        public String getPath() {
+            return path;
+        }
+
+        /**
+         * @return the score as shown to users: days for streaks, a percentage for rates
+         */
+        public double value(int score) {
+            return this == MONTHLY_COMPLETION_RATE ? score / 100.0 : score;
+        }
+
+        public static Metric fromPath(String path) {
+            for (Metric metric : values()) {
+                if (metric.path.equals(path)) {
+                    return metric;
+                }
+            }
+            throw new RuntimeException("Leaderboard not found: " + path);
+        }
+    }
+
+    /**
+     * One page of a leaderboard. Changes since the last full rebuild are included.
+     */
+    public record Page(Instant rebuiltAt, int rankedUsers, List<Entry> entries) {
+    }
+
+    /**
+     * A user's rank and score on a leaderboard
+     */
+    public record Entry(long rank, Long userId, String username, double value) {
+    }
+}
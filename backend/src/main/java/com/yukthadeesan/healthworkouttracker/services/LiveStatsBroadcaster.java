@@ -0,0 +1,340 @@
+package com.yukthadeesan.healthworkouttracker.services;
+
+import com.yukthadeesan.healthworkouttracker.repositories.WorkoutVersionRepository;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Pushes a user's month stats and current week to their open server-sent event streams
+ * whenever their workout days change, so dashboards don't poll.
+ * Streams are servlet async requests: an idle stream holds no thread, only its connection.
+ * Changes are debounced per user and the payload is computed once per user, not per stream,
+ * by {@link DashboardService}: the stats from the rollups and the week from the cached calendar.
+ * Each stream has at most one write in flight and keeps only the newest undelivered event,
+ * so a slow client skips intermediate updates instead of queueing them. Writes run on a
+ * bounded pool; when it is saturated the stream is closed and the client reconnects.
+ * Heartbeats take at most send-threads tasks per tick however many streams are open, and a
+ * saturated pool skips a tick instead of closing streams.
+ * Writes made through other nodes are found by polling the stored versions (workout_versions) of
+ * the users with a stream on this node, one query per thousand users, so a stream sees them
+ * within the poll interval without sticky routing.
+ */
+@Component
+public class LiveStatsBroadcaster {
+
+    private static final Logger log = LoggerFactory.getLogger(LiveStatsBroadcaster.class);
+
+    private static final int VERSION_POLL_BATCH = 1000;
+
+    private final DashboardService dashboardService;
+    private final WorkoutCalendarCache calendarCache;
+    private final WorkoutVersionTracker versionTracker;
+    private final ReadYourWrites readYourWrites;
+    private final WorkoutVersionRepository versionRepository;
+    private final Duration debounce;
+    private final Duration versionPollInterval;
+    private final Duration heartbeatInterval;
+    private final Duration streamTimeout;
+    private final int maxStreams;
+    private final int maxStreamsPerUser;
+    private final int sendThreads;
+    private final int sendQueueCapacity;
+
+    private final ConcurrentMap<Long, Set<Subscriber>> subscribers = new ConcurrentHashMap<>();
+    private final Set<Long> pendingUsers = ConcurrentHashMap.newKeySet();
+    // Stored version of each subscribed user at the last poll
+    private final ConcurrentMap<Long, Long> polledVersions = new ConcurrentHashMap<>();
+    private final AtomicInteger streams = new AtomicInteger();
+    private ScheduledExecutorService scheduler;
+    private ThreadPoolExecutor sender;
+
+    @Autowired
+    public LiveStatsBroadcaster(DashboardService dashboardService, WorkoutCalendarCache calendarCache,
+                                WorkoutVersionTracker versionTracker, ReadYourWrites readYourWrites,
+                                WorkoutVersionRepository versionRepository,
+                                @Value("${workout.live.debounce:250ms}") Duration debounce,
+                                @Value("${workout.live.version-poll-interval:2s}") Duration versionPollInterval,
+                                @Value("${workout.live.heartbeat-interval:20s}") Duration heartbeatInterval,
+                                @Value("${workout.live.stream-timeout:30m}") Duration streamTimeout,
+                                @Value("${workout.live.max-streams:20000}") int maxStreams,
+                                @Value("${workout.live.max-streams-per-user:5}") int maxStreamsPerUser,
+                                @Value("${workout.live.send-threads:4}") int sendThreads,
+                                @Value("${workout.live.send-queue-capacity:20000}") int sendQueueCapacity) {
+        this.dashboardService = dashboardService;
+        this.calendarCache = calendarCache;
+        this.versionTracker = versionTracker;
+        this.readYourWrites = readYourWrites;
+        this.versionRepository = versionRepository;
+        this.debounce = debounce;
+        this.versionPollInterval = versionPollInterval;
+        this.heartbeatInterval = heartbeatInterval;
+        this.streamTimeout = streamTimeout;
+        this.maxStreams = maxStreams;
+        this.maxStreamsPerUser = maxStreamsPerUser;
+        this.sendThreads = sendThreads;
+        this.sendQueueCapacity = sendQueueCapacity;
+    }
+
+    @PostConstruct
+    public void start() {
+        scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "live-stats-scheduler");
+            thread.setDaemon(true);
+            return thread;
+        });
+        AtomicInteger threadNumber = new AtomicInteger();
+        sender = new ThreadPoolExecutor(sendThreads, sendThreads, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(sendQueueCapacity), runnable -> {
+                    Thread thread = new Thread(runnable, "live-stats-send-" + threadNumber.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+        scheduler.scheduleAtFixedRate(this::heartbeat,
+                heartbeatInterval.toMillis(), heartbeatInterval.toMillis(), TimeUnit.MILLISECONDS);
+        scheduler.scheduleWithFixedDelay(this::pollVersions,
+                versionPollInterval.toMillis(), versionPollInterval.toMillis(), TimeUnit.MILLISECONDS);
+        calendarCache.addChangeListener(this::onChange);
+    }
+
+    @PreDestroy
+    public void stop() {
+        scheduler.shutdownNow();
+        sender.shutdownNow();
+        subscribers.values().forEach(userSubscribers -> userSubscribers.forEach(subscriber -> subscriber.emitter.complete()));
+    }
+
+    /**
+     * Opens a stream for a user. The current stats are sent right away, then again after every change.
+     * @param userId the user's ID
+     * @return the stream
+     * @throws RejectedExecutionException if the node or the user has too many open streams
+     */
+    public SseEmitter subscribe(Long userId) {
+        if (streams.incrementAndGet() > maxStreams) {
+            streams.decrementAndGet();
+            throw new RejectedExecutionException("Too many live streams on this node");
+        }
+
+        Subscriber subscriber = new Subscriber(userId, new SseEmitter(streamTimeout.toMillis()));
+        AtomicBoolean added = new AtomicBoolean();
+        subscribers.compute(userId, (id, userSubscribers) -> {
+            if (userSubscribers == null) {
+                userSubscribers = ConcurrentHashMap.newKeySet();
+            }
+            if (userSubscribers.size() < maxStreamsPerUser) {
+                added.set(userSubscribers.add(subscriber));
+            }
+            return userSubscribers.isEmpty() ? null : userSubscribers;
+        });
+        if (!added.get()) {
+            streams.decrementAndGet();
+            throw new RejectedExecutionException("Too many live streams for user " + userId);
+        }
+
+        subscriber.emitter.onCompletion(() -> remove(subscriber));
+        subscriber.emitter.onTimeout(subscriber.emitter::complete);
+        subscriber.emitter.onError(e -> remove(subscriber));
+        try {
+            sender.execute(() -> subscriber.offer(buildEvent(userId)));
+        } catch (RejectedExecutionException e) {
+            // Not handed to MVC yet, so its completion callback won't run
+            remove(subscriber);
+            throw e;
+        }
+        return subscriber.emitter;
+    }
+
+    /**
+     * @return the number of open streams on this node
+     */
+    public int getStreamCount() {
+        return streams.get();
+    }
+
+    private void onChange(Long userId) {
+        // Users without an open stream cost nothing
+        if (subscribers.containsKey(userId) && pendingUsers.add(userId)) {
+            scheduler.schedule(() -> publish(userId), debounce.toMillis(), TimeUnit.MILLISECONDS);
+        }
+    }
+
+    private void pollVersions() {
+        try {
+            List<Long> userIds = new ArrayList<>(subscribers.keySet());
+            for (int from = 0; from < userIds.size(); from += VERSION_POLL_BATCH) {
+                List<Long> batch = userIds.subList(from, Math.min(from + VERSION_POLL_BATCH, userIds.size()));
+                Map<Long, Long> versions = versionRepository.findByUserIds(batch);
+                for (Long userId : batch) {
+                    long version = versions.getOrDefault(userId, 0L);
+                    Long polled = polledVersions.put(userId, version);
+                    if (polled == null) {
+                        // A new stream, whose first event was built when it opened
+                        calendarCache.catchUp(userId, version);
+                    } else if (polled < version && !calendarCache.catchUp(userId, version)) {
+                        // Either another node wrote, or the calendar isn't cached here to tell
+                        onChange(userId);
+                    }
+                }
+            }
+            polledVersions.keySet().retainAll(subscribers.keySet());
+        } catch (RuntimeException e) {
+            // Retried on the next poll; streams keep getting this node's changes meanwhile
+            log.warn("Could not poll live stats versions", e);
+        }
+    }
+
+    private void publish(Long userId) {
+        pendingUsers.remove(userId);
+        try {
+            sender.execute(() -> {
+                Set<Subscriber> userSubscribers = subscribers.get(userId);
+                if (userSubscribers == null) {
+                    return;
+                }
+                Event event = buildEvent(userId);
+                userSubscribers.forEach(subscriber -> subscriber.offer(event));
+            });
+        } catch (RejectedExecutionException e) {
+            log.warn("Live stats update dropped, send pool saturated userId={}", userId);
+        }
+    }
+
+    private Event buildEvent(Long userId) {
+        // Read the version first, so the event ID never claims newer data than the payload holds
+        long version = versionTracker.getVersion(userId).sequence();
+        // Writes the user's pending write-behind check-ins first, as /stats does, so the stats count them
+        DashboardService.Dashboard dashboard = readYourWrites.readAs(userId, () -> dashboardService.getDashboard(userId));
+        Map<String, Object> payload = new HashMap<>();
+        payload.put("stats", dashboard.stats());
+        payload.put("weekStart", dashboard.weekStart());
+        payload.put("week", dashboard.week());
+        return new Event(Long.toString(version), payload);
+    }
+
+    private void heartbeat() {
+        // Keeps proxies from closing idle streams and finds dead connections.
+        // A few batches per tick, so a slow client only delays the heartbeats in its own batch
+        List<Subscriber> all = new ArrayList<>(streams.get());
+        subscribers.values().forEach(all::addAll);
+        int batchSize = Math.max(1, (all.size() + sendThreads - 1) / sendThreads);
+        for (int from = 0; from < all.size(); from += batchSize) {
+            List<Subscriber> batch = all.subList(from, Math.min(from + batchSize, all.size()));
+            try {
+                sender.execute(() -> batch.forEach(Subscriber::sendHeartbeat));
+            } catch (RejectedExecutionException e) {
+                // Streams stay open; an idle one gets its heartbeat on the next tick
+                log.warn("Live stats heartbeats skipped, send pool saturated streams={}", batch.size());
+            }
+        }
+    }
+
+    private void remove(Subscriber subscriber) {
+        if (subscriber.removed.compareAndSet(false, true)) {
+            streams.decrementAndGet();
+            subscribers.computeIfPresent(subscriber.userId, (id, userSubscribers) -> {
+                userSubscribers.remove(subscriber);
+                return userSubscribers.isEmpty() ? null : userSubscribers;
+            });
+        }
+    }
+
+    /**
+     * A stats event
+     */
+    private record Event(String id, Map<String, Object> payload) {
+    }
+
+    private final class Subscriber {
+
+        private final Long userId;
+        private final SseEmitter emitter;
+        // Newest event not yet written; replaced, not queued, when updates outpace the client
+        private final AtomicReference<Event> latest = new AtomicReference<>();
+        private final AtomicBoolean sending = new AtomicBoolean();
+        private final AtomicBoolean removed = new AtomicBoolean();
+
+        Subscriber(Long userId, SseEmitter emitter) {
+            this.userId = userId;
+            this.emitter = emitter;
+        }
+
+        void offer(Event event) {
+            latest.set(event);
+            scheduleDrain();
+        }
+
+        void sendHeartbeat() {
+            // A write in flight or an event about to be sent keeps the stream alive already
+            if (removed.get() || latest.get() != null || !sending.compareAndSet(false, true)) {
+                return;
+            }
+            try {
+                emitter.send(SseEmitter.event().comment("heartbeat"));
+            } catch (IOException | IllegalStateException e) {
+                remove(this);
+                emitter.completeWithError(e);
+            } finally {
+                sending.set(false);
+            }
+            if (latest.get() != null) {
+                scheduleDrain();
+            }
+        }
+
+        private void scheduleDrain() {
+            if (removed.get() || !sending.compareAndSet(false, true)) {
+                return;
+            }
+            try {
+                sender.execute(this::drain);
+            } catch (RejectedExecutionException e) {
+                sending.set(false);
+                remove(this);
+                emitter.complete();
+            }
+        }
+
+        private void drain() {
+            try {
+                Event event;
+                while ((event = latest.getAndSet(null)) != null) {
+                    emitter.send(SseEmitter.event().name("stats").id(event.id()).data(event.payload()));
+                }
+            } catch (IOException | IllegalStateException e) {
+                // The client went away or the stream already completed
+                remove(this);
+                emitter.completeWithError(e);
+            } finally {
+                sending.set(false);
+            }
+            if (latest.get() != null) {
+                scheduleDrain();
+            }
+        }
+    }
+}
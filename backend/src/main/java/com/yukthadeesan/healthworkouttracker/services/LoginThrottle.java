@@ -0,0 +1,122 @@
+package com.yukthadeesan.healthworkouttracker.services;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Per-username and per-IP token buckets for login attempts, and per-IP buckets for registrations.
+ * Each bucket is a single AtomicLong holding its "theoretical arrival time" (the GCRA
+ * form of a token bucket), updated with a CAS loop, so concurrent attempts never lock.
+ * Idle buckets expire, which keeps the map bounded during credential-stuffing bursts.
+ */
+@Component
+public class LoginThrottle {
+
+    private final Limit usernameLimit;
+    private final Limit ipLimit;
+    private final Limit registrationLimit;
+    private final Cache<String, AtomicLong> buckets;
+    private final Counter usernameThrottled;
+    private final Counter ipThrottled;
+    private final Counter registrationThrottled;
+
+    @Autowired
+    public LoginThrottle(MeterRegistry registry,
+                         @Value("${auth.login.throttle.username.per-minute:10}") int usernamePerMinute,
+                         @Value("${auth.login.throttle.username.burst:5}") int usernameBurst,
+                         @Value("${auth.login.throttle.ip.per-minute:60}") int ipPerMinute,
+                         @Value("${auth.login.throttle.ip.burst:20}") int ipBurst,
+                         @Value("${auth.register.throttle.ip.per-minute:10}") int registrationPerMinute,
+                         @Value("${auth.register.throttle.ip.burst:3}") int registrationBurst,
+                         @Value("${auth.login.throttle.max-keys:100000}") long maxKeys) {
+        this.usernameLimit = Limit.of(usernamePerMinute, usernameBurst);
+        this.ipLimit = Limit.of(ipPerMinute, ipBurst);
+        // 0 turns the registration limit off, e.g. for the load test, which registers its users from one address
+        this.registrationLimit = registrationPerMinute > 0 ? Limit.of(registrationPerMinute, registrationBurst) : null;
+        this.buckets = Caffeine.newBuilder()
+                .maximumSize(maxKeys)
+                .expireAfterAccess(Duration.ofMinutes(10))
+                .build();
+        this.usernameThrottled = Counter.builder("auth.login.throttled").tag("scope", "username").register(registry);
+        this.ipThrottled = Counter.builder("auth.login.throttled").tag("scope", "ip").register(registry);
+        this.registrationThrottled = Counter.builder("auth.register.throttled").tag("scope", "ip").register(registry);
+    }
+
+    /**
+     * Takes one login attempt from the IP's and the username's buckets
+     * @param username the username being logged in
+     * @param ip the client's address
+     * @return 0 if the attempt may proceed, otherwise the milliseconds until the next attempt is allowed
+     */
+    public long tryAcquire(String username, String ip) {
+        long now = System.nanoTime();
+
+        long wait = tryAcquire("ip:" + ip, ipLimit, now);
+        if (wait > 0) {
+            ipThrottled.increment();
+            return TimeUnit.NANOSECONDS.toMillis(wait) + 1;
+        }
+
+        wait = tryAcquire("user:" + username.toLowerCase(Locale.ROOT), usernameLimit, now);
+        if (wait > 0) {
+            usernameThrottled.increment();
+            return TimeUnit.NANOSECONDS.toMillis(wait) + 1;
+        }
+        return 0;
+    }
+
+    /**
+     * Takes one registration from the IP's bucket. Each registration costs a BCrypt hash
+     * and a row, so it is limited more tightly than logins.
+     * @param ip the client's address
+     * @return 0 if the registration may proceed, otherwise the milliseconds until the next one is allowed
+     */
+    public long tryAcquireRegistration(String ip) {
+        if (registrationLimit == null) {
+            return 0;
+        }
+        long wait = tryAcquire("register:" + ip, registrationLimit, System.nanoTime());
+        if (wait > 0) {
+            registrationThrottled.increment();
+            return TimeUnit.NANOSECONDS.toMillis(wait) + 1;
+        }
+        return 0;
+    }
+
+    private long tryAcquire(String key, Limit limit, long now) {
+        // A new bucket starts full: an arrival time of now allows a whole burst
+        AtomicLong arrival = buckets.get(key, k -> new AtomicLong(now));
+        while (true) {
+            long current = arrival.get();
+            long allowedAt = current - limit.burstTolerance();
+            if (now < allowedAt) {
+                return allowedAt - now;
+            }
+            if (arrival.compareAndSet(current, Math.max(current, now) + limit.interval())) {
+                return 0;
+            }
+        }
+    }
+
+    /**
+     * @param interval nanoseconds between attempts at the sustained rate
+     * @param burstTolerance how far ahead of the sustained rate a burst may run
+     */
+    private record Limit(long interval, long burstTolerance) {
+
+        static Limit of(int perMinute, int burst) {
+            long interval = TimeUnit.MINUTES.toNanos(1) / perMinute;
+            return new Limit(interval, interval * (burst - 1));
+        }
+    }
+}
@@ -0,0 +1,117 @@
+package com.yukthadeesan.healthworkouttracker.services;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.stereotype.Component;
+
+import java.security.SecureRandom;
+import java.util.Base64;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Runs BCrypt on a small dedicated pool with a bounded queue, so a burst of logins
+ * can use at most a fixed number of cores and never ties up request threads.
+ * When the queue is full the work is rejected with a {@link RejectedExecutionException}.
+ * Logins for unknown usernames are checked against a dummy hash of the same cost, so response
+ * times don't reveal which usernames exist.
+ * Publishes auth.password.hash (timer) and auth.password.queue.depth (gauge).
+ */
+@Component
+public class PasswordHasher {
+
+    private final PasswordEncoder passwordEncoder;
+    private final ThreadPoolExecutor executor;
+    private final Timer matchesTimer;
+    private final Timer encodeTimer;
+    private final String dummyHash;
+
+    @Autowired
+    public PasswordHasher(PasswordEncoder passwordEncoder, MeterRegistry registry,
+                          @Value("${auth.password.hash-threads:2}") int threads,
+                          @Value("${auth.password.queue-capacity:100}") int queueCapacity) {
+        this.passwordEncoder = passwordEncoder;
+        // Hashed at the configured cost, so comparing against it takes as long as against a real hash
+        byte[] dummyPassword = new byte[16];
+        new SecureRandom().nextBytes(dummyPassword);
+        this.dummyHash = passwordEncoder.encode(Base64.getEncoder().encodeToString(dummyPassword));
+
+        AtomicInteger threadNumber = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "password-hash-" + threadNumber.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                new ThreadPoolExecutor.AbortPolicy());
+
+        this.matchesTimer = Timer.builder("auth.password.hash").tag("operation", "matches").register(registry);
+        this.encodeTimer = Timer.builder("auth.password.hash").tag("operation", "encode").register(registry);
+        Gauge.builder("auth.password.queue.depth", executor, pool -> pool.getQueue().size()).register(registry);
+    }
+
+    /**
+     * Checks a password against its stored hash
+     * @param rawPassword the password sent by the client
+     * @param encodedPassword the stored hash
+     * @return whether the password matches
+     */
+    public CompletableFuture<Boolean> matches(String rawPassword, String encodedPassword) {
+        return submit(matchesTimer, () -> passwordEncoder.matches(rawPassword, encodedPassword));
+    }
+
+    /**
+     * Does the work of {@link #matches} for a user that doesn't exist, so the caller takes as long
+     * to fail as for a wrong password
+     * @param rawPassword the password sent by the client
+     * @return false, once the comparison has run
+     */
+    public CompletableFuture<Boolean> matchesUnknownUser(String rawPassword) {
+        return submit(matchesTimer, () -> {
+            passwordEncoder.matches(rawPassword, dummyHash);
+            return false;
+        });
+    }
+
+    /**
+     * Hashes a password with the configured cost factor
+     * @param rawPassword the password to hash
+     * @return the hash
+     */
+    public CompletableFuture<String> encode(String rawPassword) {
+        return submit(encodeTimer, () -> passwordEncoder.encode(rawPassword));
+    }
+
+    /**
+     * Checks whether a stored hash uses a lower cost factor than the configured one
+     * @param encodedPassword the stored hash
+     * @return whether the password should be hashed again
+     */
+    public boolean needsRehash(String encodedPassword) {
+        return passwordEncoder.upgradeEncoding(encodedPassword);
+    }
+
+    private <T> CompletableFuture<T> submit(Timer timer, Supplier<T> work) {
+        try {
+            return CompletableFuture.supplyAsync(() -> timer.record(work), executor);
+        } catch (RejectedExecutionException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdown();
+    }
+}
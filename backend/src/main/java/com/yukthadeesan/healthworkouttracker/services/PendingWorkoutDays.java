@@ -0,0 +1,88 @@
+package com.yukthadeesan.healthworkouttracker.services;
+
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDate;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Check-ins accepted by the write-behind buffer but not yet written to the database.
+ * Keyed per user and date, so a later check-in for the same day replaces the earlier one.
+ * Reads are lock-free; writes only contend with writes to the same user.
+ */
+@Component
+public class PendingWorkoutDays {
+
+    private final ConcurrentHashMap<Long, ConcurrentHashMap<LocalDate, Boolean>> pendingByUser =
+            new ConcurrentHashMap<>();
+    private final AtomicInteger size = new AtomicInteger();
+
+    /**
+     * Adds or replaces a pending check-in
+     * @param userId the user's ID
+     * @param date the date of the workout
+     * @param completed whether the workout was completed
+     */
+    public void put(Long userId, LocalDate date, boolean completed) {
+        pendingByUser.compute(userId, (id, days) -> {
+            if (days == null) {
+                days = new ConcurrentHashMap<>();
+            }
+            if (days.put(date, completed) == null) {
+                size.incrementAndGet();
+            }
+            return days;
+        });
+    }
+
+    /**
+     * Removes a check-in once it has been written, unless it was replaced in the meantime
+     * @param userId the user's ID
+     * @param date the date of the workout
+     * @param completed the value that was written
+     */
+    public void remove(Long userId, LocalDate date, boolean completed) {
+        pendingByUser.computeIfPresent(userId, (id, days) -> {
+            if (days.remove(date, completed)) {
+                size.decrementAndGet();
+            }
+            return days.isEmpty() ? null : days;
+        });
+    }
+
+    /**
+     * Gets a user's pending check-ins
+     * @param userId the user's ID
+     * @return a snapshot of the completion flag per date, empty if nothing is pending
+     */
+    public Map<LocalDate, Boolean> get(Long userId) {
+        Map<LocalDate, Boolean> days = pendingByUser.get(userId);
+        return days == null ? Map.of() : Map.copyOf(days);
+    }
+
+    /**
+     * Checks whether a user has check-ins that aren't written yet
+     * @param userId the user's ID
+     * @return true if anything is pending for the user
+     */
+    public boolean hasPending(Long userId) {
+        return pendingByUser.containsKey(userId);
+    }
+
+    /**
+     * @return the users with pending check-ins
+     */
+    public Set<Long> userIds() {
+        return Set.copyOf(pendingByUser.keySet());
+    }
+
+    /**
+     * @return the number of pending check-ins
+     */
+    public int size() {
+        return size.get();
+    }
+}
@@ -0,0 +1,262 @@
+package com.yukthadeesan.healthworkouttracker.services;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.OptionalLong;
+import java.util.Random;
+
+/**
+ * Ranking of users by an integer score in [0, maxScore], highest first.
+ * A Fenwick tree counts users per score, so a user's rank is found in O(log maxScore).
+ * Users with a positive score are also kept in a treap ordered by (score, user ID) whose
+ * nodes count their subtree, so a page at any offset costs O(log n + page size), however
+ * many users share a score. Users with a score of 0 are counted but not listed.
+ * Tied users share a rank (1, 2, 2, 4).
+ */
+public class RankIndex {
+
+    private static final Comparator<Entry> ORDER =
+            Comparator.comparingInt(Entry::score).reversed().thenComparingLong(Entry::userId);
+
+    private final int maxScore;
+    // Users per score, at position maxScore - score + 1, so prefix sums count users from the top
+    private final int[] tree;
+    private final Map<Long, Integer> scores = new HashMap<>();
+    private final Random priorities = new Random();
+    // Root of the treap of listed users
+    private Node listed;
+
+    public RankIndex(int maxScore) {
+        this.maxScore = maxScore;
+        this.tree = new int[maxScore + 2];
+    }
+
+    /**
+     * Sets a user's score, clamped to [0, maxScore]
+     * @param userId the user's ID
+     * @param score the new score
+     */
+    public synchronized void put(long userId, int score) {
+        score = Math.max(0, Math.min(score, maxScore));
+        Integer previous = scores.put(userId, score);
+        if (previous != null) {
+            if (previous == score) {
+                return;
+            }
+            unlist(userId, previous);
+        }
+        add(position(score), 1);
+        if (score > 0) {
+            Node[] parts = split(listed, new Entry(userId, score));
+            listed = merge(merge(parts[0], new Node(new Entry(userId, score), priorities.nextInt())), parts[1]);
+        }
+    }
+
+    /**
+     * Removes a user from the ranking
+     * @param userId the user's ID
+     */
+    public synchronized void remove(long userId) {
+        Integer previous = scores.remove(userId);
+        if (previous != null) {
+            unlist(userId, previous);
+        }
+    }
+
+    /**
+     * Gets a user's rank
+     * @param userId the user's ID
+     * @return 1 plus the number of users with a higher score, empty if the user is not ranked
+     */
+    public synchronized OptionalLong rank(long userId) {
+        Integer score = scores.get(userId);
+        if (score == null) {
+            return OptionalLong.empty();
+        }
+        return OptionalLong.of(prefix(position(score) - 1) + 1L);
+    }
+
+    /**
+     * Gets a user's score
+     * @param userId the user's ID
+     * @return the score, or null if the user is not ranked
+     */
+    public synchronized Integer score(long userId) {
+        return scores.get(userId);
+    }
+
+    /**
+     * Gets a page of the users with a positive score, highest first
+     * @param offset the number of users to skip
+     * @param limit the maximum number of users to return
+     * @return the users with their ranks
+     */
+    public synchronized List<Ranked> page(int offset, int limit) {
+        if (offset >= size(listed) || limit <= 0) {
+            return List.of();
+        }
+
+        int to = (int) Math.min((long) offset + limit, size(listed));
+        List<Entry> entries = new ArrayList<>(to - offset);
+        collect(listed, offset, to, entries);
+
+        // The first entry's rank counts the users above its score; the rest follow from it
+        List<Ranked> page = new ArrayList<>(entries.size());
+        int previousScore = entries.get(0).score();
+        long rank = prefix(position(previousScore) - 1) + 1L;
+        for (int index = 0; index < entries.size(); index++) {
+            Entry entry = entries.get(index);
+            if (entry.score() != previousScore) {
+                rank = offset + index + 1;
+                previousScore = entry.score();
+            }
+            page.add(new Ranked(rank, entry.userId(), entry.score()));
+        }
+        return page;
+    }
+
+    /**
+     * @return the number of ranked users, including those with a score of 0
+     */
+    public synchronized int size() {
+        return scores.size();
+    }
+
+    private void unlist(long userId, int score) {
+        add(position(score), -1);
+        if (score > 0) {
+            listed = delete(listed, new Entry(userId, score));
+        }
+    }
+
+    private int position(int score) {
+        return maxScore - score + 1;
+    }
+
+    private void add(int position, int delta) {
+        for (; position < tree.length; position += position & -position) {
+            tree[position] += delta;
+        }
+    }
+
+    private int prefix(int position) {
+        int sum = 0;
+        for (; position > 0; position -= position & -position) {
+            sum += tree[position];
+        }
+        return sum;
+    }
+
+    /**
+     * Splits a treap into the entries before a key and the rest
+     * @return the two treaps
+     */
+    private static Node[] split(Node node, Entry key) {
+        if (node == null) {
+            return new Node[2];
+        }
+        if (ORDER.compare(node.entry, key) < 0) {
+            Node[] parts = split(node.right, key);
+            node.right = parts[0];
+            node.update();
+            parts[0] = node;
+            return parts;
+        }
+        Node[] parts = split(node.left, key);
+        node.left = parts[1];
+        node.update();
+        parts[1] = node;
+        return parts;
+    }
+
+    /**
+     * Joins two treaps, every entry of the first ordered before every entry of the second
+     */
+    private static Node merge(Node first, Node second) {
+        if (first == null) {
+            return second;
+        }
+        if (second == null) {
+            return first;
+        }
+        if (first.priority > second.priority) {
+            first.right = merge(first.right, second);
+            first.update();
+            return first;
+        }
+        second.left = merge(first, second.left);
+        second.update();
+        return second;
+    }
+
+    private static Node delete(Node node, Entry key) {
+        if (node == null) {
+            return null;
+        }
+        int order = ORDER.compare(key, node.entry);
+        if (order == 0) {
+            return merge(node.left, node.right);
+        }
+        if (order < 0) {
+            node.left = delete(node.left, key);
+        } else {
+            node.right = delete(node.right, key);
+        }
+        node.update();
+        return node;
+    }
+
+    /**
+     * Adds the entries at positions [from, to) of a treap, in order; only visits the subtrees holding them
+     */
+    private static void collect(Node node, int from, int to, List<Entry> out) {
+        if (node == null || from >= to) {
+            return;
+        }
+        int leftSize = size(node.left);
+        if (from < leftSize) {
+            collect(node.left, from, Math.min(to, leftSize), out);
+        }
+        if (from <= leftSize && leftSize < to) {
+            out.add(node.entry);
+        }
+        if (to > leftSize + 1) {
+            collect(node.right, Math.max(0, from - leftSize - 1), to - leftSize - 1, out);
+        }
+    }
+
+    private static int size(Node node) {
+        return node == null ? 0 : node.size;
+    }
+
+    private record Entry(long userId, int score) {
+    }
+
+    private static final class Node {
+
+        private final Entry entry;
+        private final int priority;
+        // Entries in this subtree, this one included
+        private int size = 1;
+        private Node left;
+        private Node right;
+
+        Node(Entry entry, int priority) {
+            this.entry = entry;
+            this.priority = priority;
+        }
+
+        void update() {
+            size = 1 + size(left) + size(right);
+        }
+    }
+
+    /**
+     * A user's place on a leaderboard
+     */
+    public record Ranked(long rank, long userId, int score) {
+    }
+}
@@ -0,0 +1,122 @@
+package com.yukthadeesan.healthworkouttracker.services;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.function.Supplier;
+
+/**
+ * Users who changed their data within the last few seconds. Their read-only transactions
+ * are routed to the primary instead of a replica that may not have applied the change yet.
+ * The window has to be longer than the replica's usual lag.
+ * The window travels with the client: a write answers with a signed {@value #HEADER} header
+ * holding the window's end, and the client sends it back on later requests, so whichever node
+ * serves the next read honours it. Node clocks are assumed to be roughly in sync.
+ * Reads made on a user's behalf outside their request, such as live stats pushes, name the user
+ * with {@link #readAs} and fall back to the writes this node has seen.
+ */
+@Component
+public class ReadYourWrites {
+
+    /**
+     * Header carrying the signed end of the window, sent by the server and echoed by the client
+     */
+    public static final String HEADER = "Read-Your-Writes";
+
+    private static final String VERIFIED_ATTRIBUTE = ReadYourWrites.class.getName() + ".until";
+
+    private final AccessTokenService accessTokenService;
+    private final Duration window;
+    private final Cache<Long, Boolean> recentWriters;
+    private final ThreadLocal<Long> reader = new ThreadLocal<>();
+
+    @Autowired
+    public ReadYourWrites(AccessTokenService accessTokenService,
+                          @Value("${workout.datasource.read-your-writes-window:5s}") Duration window,
+                          @Value("${workout.datasource.read-your-writes-max-users:100000}") long maxUsers) {
+        this.accessTokenService = accessTokenService;
+        this.window = window;
+        this.recentWriters = Caffeine.newBuilder()
+                .expireAfterWrite(window)
+                .maximumSize(maxUsers)
+                .build();
+    }
+
+    /**
+     * Starts or extends a user's window, once their write has committed.
+     * Inside a request, the window is also handed to the client.
+     * @param userId the user's ID
+     */
+    public void recordWrite(Long userId) {
+        recentWriters.put(userId, Boolean.TRUE);
+
+        ServletRequestAttributes attributes = currentRequest();
+        HttpServletResponse response = attributes != null ? attributes.getResponse() : null;
+        if (response != null && !response.isCommitted()) {
+            response.setHeader(HEADER, accessTokenService.signWriteWindow(userId, Instant.now().plus(window)));
+        }
+    }
+
+    /**
+     * @param userId the user's ID
+     * @return whether the user's reads must see the primary
+     */
+    public boolean isRecentWriter(Long userId) {
+        if (recentWriters.getIfPresent(userId) != null) {
+            return true;
+        }
+
+        ServletRequestAttributes attributes = currentRequest();
+        if (attributes == null) {
+            return false;
+        }
+        // Verified once per request, not once per transaction
+        HttpServletRequest request = attributes.getRequest();
+        Instant until = (Instant) request.getAttribute(VERIFIED_ATTRIBUTE);
+        if (until == null) {
+            String header = request.getHeader(HEADER);
+            until = header != null ? accessTokenService.verifyWriteWindow(header, userId).orElse(Instant.EPOCH)
+                    : Instant.EPOCH;
+            request.setAttribute(VERIFIED_ATTRIBUTE, until);
+        }
+        return Instant.now().isBefore(until);
+    }
+
+    /**
+     * Runs reads on a user's behalf on a thread that isn't serving their request
+     * @param userId the user's ID
+     * @param read the reads
+     * @return the result of the reads
+     */
+    public <T> T readAs(Long userId, Supplier<T> read) {
+        Long previous = reader.get();
+        reader.set(userId);
+        try {
+            return read.get();
+        } finally {
+            reader.set(previous);
+        }
+    }
+
+    /**
+     * @return the user named by an enclosing {@link #readAs}, or null
+     */
+    public Long getReader() {
+        return reader.get();
+    }
+
+    private static ServletRequestAttributes currentRequest() {
+        RequestAttributes attributes = RequestContextHolder.getRequestAttributes();
+        return attributes instanceof ServletRequestAttributes servletAttributes ? servletAttributes : null;
+    }
+}
@@ -0,0 +1,106 @@
+package com.yukthadeesan.healthworkouttracker.services;
+
+import com.yukthadeesan.healthworkouttracker.repositories.WorkoutDayRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDate;
+import java.util.List;
+
+@Service
+public class StreakService {
+
+    private final WorkoutDayRepository workoutDayRepository;
+    private final WorkoutArchiveService archiveService;
+
+    @Autowired
+    public StreakService(WorkoutDayRepository workoutDayRepository, WorkoutArchiveService archiveService) {
+        this.workoutDayRepository = workoutDayRepository;
+        this.archiveService = archiveService;
+    }
+
+    /**
+     * Computes the current streak for a user with a single query, plus one for archived years.
+     * The current streak can't be longer than the longest one, so only that many days are read.
+     * @param userId the user's ID
+     * @param today the day the current streak has to end on
+     * @param longestStreak the user's longest streak, from their streak state
+     * @return the user's streaks
+     */
+    public Streaks computeStreaks(Long userId, LocalDate today, int longestStreak) {
+        List<LocalDate> completedDates = findCompletedDates(userId, today.minusDays(longestStreak), today);
+        return new Streaks(calculate(completedDates, today).current(), longestStreak);
+    }
+
+    /**
+     * Gets a user's completed dates within a window, archived days included
+     * @param userId the user's ID
+     * @param startDate the start date (inclusive)
+     * @param endDate the end date (inclusive)
+     * @return the completed dates, newest first
+     */
+    public List<LocalDate> findCompletedDates(Long userId, LocalDate startDate, LocalDate endDate) {
+        List<LocalDate> completedDates = archiveService.mergeCompletedDates(userId,
+                workoutDayRepository.findCompletedDatesBetween(userId, startDate, endDate));
+        // Archived years come back whole
+        return completedDates.stream()
+                .filter(date -> !date.isBefore(startDate) && !date.isAfter(endDate))
+                .toList();
+    }
+
+    /**
+     * Gets a user's newest completed day before a date, archived days included
+     * @param userId the user's ID
+     * @param date the date (exclusive)
+     * @return the day, null if there is none
+     */
+    public LocalDate findLatestCompletedDate(Long userId, LocalDate date) {
+        LocalDate hot = workoutDayRepository.findLatestCompletedDateBefore(userId, date);
+        if (hot != null && !hot.isBefore(archiveService.getCutoff())) {
+            return hot;
+        }
+        // An archived day may be newer than any row left before the cutoff
+        return archiveService.mergeCompletedDates(userId, hot != null ? List.of(hot) : List.of()).stream()
+                .filter(completed -> completed.isBefore(date))
+                .findFirst()
+                .orElse(null);
+    }
+
+    /**
+     * Walks completed dates (newest first) and measures the streak runs
+     * @param completedDatesDescending distinct completed dates, newest first
+     * @param today the day the current streak has to end on
+     * @return the current and longest streak
+     */
+    static Streaks calculate(List<LocalDate> completedDatesDescending, LocalDate today) {
+        int current = 0;
+        int longest = 0;
+        int run = 0;
+        boolean inCurrentRun = false;
+        LocalDate previous = null;
+
+        for (LocalDate date : completedDatesDescending) {
+            boolean continuesRun = previous != null && date.equals(previous.minusDays(1));
+            run = continuesRun ? run + 1 : 1;
+
+            // Only the newest run counts as current, and only if it reaches today
+            if (!continuesRun) {
+                inCurrentRun = previous == null && date.equals(today);
+            }
+            if (inCurrentRun) {
+                current = run;
+            }
+
+            longest = Math.max(longest, run);
+            previous = date;
+        }
+
+        return new Streaks(current, longest);
+    }
+
+    /**
+     * Current streak (consecutive completed days ending today) and longest streak ever
+     */
+    public record Streaks(int current, int longest) {
+    }
+}
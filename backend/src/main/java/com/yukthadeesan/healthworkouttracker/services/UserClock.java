@@ -0,0 +1,152 @@
+package com.yukthadeesan.healthworkouttracker.services;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.yukthadeesan.healthworkouttracker.repositories.UserRepository;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.time.temporal.TemporalAdjusters;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Resolves "today" in each user's own time zone.
+ * The current date and its week and month boundaries are cached per zone and recomputed by
+ * a scheduled tick once the zone has passed midnight, so request paths only read a cached
+ * value. Reads still check the entry against the clock, so a late tick never serves
+ * yesterday's date. Users' zones are cached too, and read from the database again
+ * expire-after-write after they were loaded, so a zone changed through another node is picked up.
+ */
+@Component
+public class UserClock {
+
+    private final Clock clock;
+    private final UserRepository userRepository;
+    private final ZoneId defaultZone;
+    private final Duration refreshInterval;
+    private final Cache<Long, ZoneId> userZones;
+    private final ConcurrentMap<ZoneId, Today> todayByZone = new ConcurrentHashMap<>();
+    private ScheduledExecutorService ticker;
+
+    @Autowired
+    public UserClock(Clock clock, UserRepository userRepository,
+                     @Value("${workout.clock.default-zone:}") String defaultZone,
+                     @Value("${workout.clock.refresh-interval:1m}") Duration refreshInterval,
+                     @Value("${workout.clock.user-zones.max-size:100000}") long maxUsers,
+                     @Value("${workout.clock.user-zones.expire-after-write:5m}") Duration zoneExpiry) {
+        this.clock = clock;
+        this.userRepository = userRepository;
+        this.defaultZone = defaultZone.isBlank() ? ZoneId.systemDefault() : ZoneId.of(defaultZone);
+        this.refreshInterval = refreshInterval;
+        this.userZones = Caffeine.newBuilder()
+                .maximumSize(maxUsers)
+                .expireAfterWrite(zoneExpiry)
+                .build();
+    }
+
+    @PostConstruct
+    public void start() {
+        ticker = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "user-clock");
+            thread.setDaemon(true);
+            return thread;
+        });
+        ticker.scheduleAtFixedRate(this::tick,
+                refreshInterval.toMillis(), refreshInterval.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void stop() {
+        ticker.shutdownNow();
+    }
+
+    /**
+     * Gets the current day in a user's time zone
+     * @param userId the user's ID
+     * @return the user's current day and its week and month
+     */
+    public Today today(Long userId) {
+        return today(getZone(userId));
+    }
+
+    /**
+     * Gets the current day in a time zone
+     * @param zone the time zone
+     * @return the zone's current day and its week and month
+     */
+    public Today today(ZoneId zone) {
+        Today today = todayByZone.get(zone);
+        if (today == null || clock.millis() >= today.endMillis()) {
+            today = Today.of(zone, clock);
+            todayByZone.put(zone, today);
+        }
+        return today;
+    }
+
+    /**
+     * Gets a user's time zone
+     * @param userId the user's ID
+     * @return the user's zone, or the default zone if they haven't set one
+     */
+    public ZoneId getZone(Long userId) {
+        return userZones.get(userId, id -> toZone(userRepository.findTimeZoneById(id).orElse(null)));
+    }
+
+    /**
+     * Remembers a user's new time zone, after it was saved
+     * @param userId the user's ID
+     * @param timeZone the zone ID, null for the default zone
+     */
+    public void setZone(Long userId, String timeZone) {
+        userZones.put(userId, toZone(timeZone));
+    }
+
+    /**
+     * Parses a stored zone ID
+     * @param timeZone the zone ID, null for the default zone
+     * @return the zone
+     */
+    public ZoneId toZone(String timeZone) {
+        return timeZone == null ? defaultZone : ZoneId.of(timeZone);
+    }
+
+    private void tick() {
+        long now = clock.millis();
+        todayByZone.replaceAll((zone, today) -> now >= today.endMillis() ? Today.of(zone, clock) : today);
+    }
+
+    /**
+     * A zone's current day with the boundaries of its week (starting on Sunday) and month
+     * @param startMillis the first instant of the day, in epoch milliseconds
+     * @param endMillis the first instant of the next day, in epoch milliseconds
+     */
+    public record Today(LocalDate date, LocalDate weekStart, LocalDate monthStart, LocalDate monthEnd,
+                        long startMillis, long endMillis) {
+
+        static Today of(ZoneId zone, Clock clock) {
+            LocalDate date = LocalDate.now(clock.withZone(zone));
+            return new Today(
+                    date,
+                    date.minusDays(date.getDayOfWeek().getValue() % 7),
+                    date.withDayOfMonth(1),
+                    date.with(TemporalAdjusters.lastDayOfMonth()),
+                    date.atStartOfDay(zone).toInstant().toEpochMilli(),
+                    date.plusDays(1).atStartOfDay(zone).toInstant().toEpochMilli());
+        }
+
+        public LocalDate weekEnd() {
+            return weekStart.plusDays(6);
+        }
+    }
+}
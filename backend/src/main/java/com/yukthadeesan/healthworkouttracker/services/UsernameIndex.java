@@ -0,0 +1,168 @@
+package com.yukthadeesan.healthworkouttracker.services;
+
+import com.yukthadeesan.healthworkouttracker.repositories.UserRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Component;
+
+import java.text.Normalizer;
+import java.time.Duration;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Bloom filter of every taken username, so most "is this name free" checks need no query.
+ * It is warmed from the users table in the background on startup and updated on every
+ * registration; until warming finishes every name counts as possibly taken.
+ * Names are case- and accent-folded like MySQL's default collation, so variants that the
+ * unique constraint treats as equal also match in the filter.
+ * A "free" answer is advisory. Each node keeps its own filter and picks up names registered on
+ * other nodes every refresh-interval, so such a name can be reported as free until then.
+ * The unique constraint is the authority: registration relies on it, not on this index.
+ */
+@Component
+public class UsernameIndex {
+
+    private static final Logger log = LoggerFactory.getLogger(UsernameIndex.class);
+
+    private final UserRepository userRepository;
+    private final BloomFilter filter;
+    private final int warmBatchSize;
+    private final Duration refreshInterval;
+    private final Counter definitelyFree;
+    private final Counter queried;
+    private volatile boolean warm;
+    // Highest user ID added from the table; only used on the refresher thread
+    private long lastSeenId;
+    private ScheduledExecutorService refresher;
+
+    @Autowired
+    public UsernameIndex(UserRepository userRepository, MeterRegistry registry,
+                         @Value("${auth.username-index.expected-users:1000000}") long expectedUsers,
+                         @Value("${auth.username-index.false-positive-rate:0.01}") double falsePositiveRate,
+                         @Value("${auth.username-index.warm-batch-size:10000}") int warmBatchSize,
+                         @Value("${auth.username-index.refresh-interval:30s}") Duration refreshInterval) {
+        this.userRepository = userRepository;
+        this.filter = new BloomFilter(expectedUsers, falsePositiveRate);
+        this.warmBatchSize = warmBatchSize;
+        this.refreshInterval = refreshInterval;
+        this.definitelyFree = Counter.builder("auth.username.lookups").tag("result", "definitely_free").register(registry);
+        this.queried = Counter.builder("auth.username.lookups").tag("result", "queried").register(registry);
+        Gauge.builder("auth.username.index.bytes", filter, BloomFilter::sizeInBytes).register(registry);
+    }
+
+    @PostConstruct
+    public void start() {
+        refresher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "username-index");
+            thread.setDaemon(true);
+            return thread;
+        });
+        refresher.execute(this::warm);
+        refresher.scheduleWithFixedDelay(this::refresh,
+                refreshInterval.toMillis(), refreshInterval.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void stop() {
+        refresher.shutdownNow();
+    }
+
+    /**
+     * Checks whether a username is taken, querying the database only if the filter can't rule it out
+     * @param username the username
+     * @return whether a user with this name exists; false may miss a name registered on another
+     *         node within the last refresh-interval
+     */
+    public boolean isTaken(String username) {
+        if (!mightBeTaken(username)) {
+            definitelyFree.increment();
+            return false;
+        }
+        queried.increment();
+        // Mostly names that are taken, which the natural-id cache then answers
+        return userRepository.findByUsername(username) != null;
+    }
+
+    /**
+     * @param username the username
+     * @return false if no user with this name was known to this node at its last refresh
+     */
+    public boolean mightBeTaken(String username) {
+        return !warm || filter.mightContain(fold(username));
+    }
+
+    /**
+     * Adds a username once its user is saved
+     * @param username the username
+     */
+    public void add(String username) {
+        filter.put(fold(username));
+    }
+
+    private void warm() {
+        long started = System.nanoTime();
+        try {
+            long count = addUsersAfterLastSeen();
+            warm = true;
+            log.info("Username index warmed users={} bytes={} durationMs={}",
+                    count, filter.sizeInBytes(), (System.nanoTime() - started) / 1_000_000);
+        } catch (RuntimeException e) {
+            // Stays cold, so every check falls back to the database; retried on the next refresh
+            log.error("Could not warm the username index", e);
+        }
+    }
+
+    private void refresh() {
+        if (!warm) {
+            warm();
+            return;
+        }
+        try {
+            long count = addUsersAfterLastSeen();
+            if (count > 0) {
+                log.debug("Username index refreshed newUsers={}", count);
+            }
+        } catch (RuntimeException e) {
+            log.warn("Could not refresh the username index", e);
+        }
+    }
+
+    /**
+     * Adds the users registered since the last pass, including those registered on other nodes
+     * @return the number of users added
+     */
+    private long addUsersAfterLastSeen() {
+        long count = 0;
+        // Keyset pages, so each query stays cheap however many users there are
+        while (true) {
+            List<Object[]> rows = userRepository.findUsernamesAfter(lastSeenId, PageRequest.ofSize(warmBatchSize));
+            for (Object[] row : rows) {
+                add((String) row[1]);
+            }
+            count += rows.size();
+            if (!rows.isEmpty()) {
+                lastSeenId = (Long) rows.get(rows.size() - 1)[0];
+            }
+            if (rows.size() < warmBatchSize) {
+                return count;
+            }
+        }
+    }
+
+    private static String fold(String username) {
+        String decomposed = Normalizer.normalize(username, Normalizer.Form.NFD);
+        return decomposed.replaceAll("\\p{M}", "").toLowerCase(Locale.ROOT).stripTrailing();
+    }
+}
@@ -0,0 +1,60 @@
+package com.yukthadeesan.healthworkouttracker.services;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.yukthadeesan.healthworkouttracker.repositories.UserRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * User IDs known to exist, so services don't re-read the users table on every call.
+ * IDs are added when a user logs in and removed when they log out; anything else
+ * is checked against the database once and then remembered.
+ */
+@Component
+public class VerifiedUserCache {
+
+    private final UserRepository userRepository;
+    private final Cache<Long, Boolean> verifiedUserIds;
+
+    @Autowired
+    public VerifiedUserCache(UserRepository userRepository,
+                             @Value("${workout.verified-users.max-size:100000}") long maxSize) {
+        this.userRepository = userRepository;
+        this.verifiedUserIds = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .build();
+    }
+
+    /**
+     * Remembers a user that was just authenticated
+     * @param userId the user's ID
+     */
+    public void markVerified(Long userId) {
+        verifiedUserIds.put(userId, Boolean.TRUE);
+    }
+
+    /**
+     * Forgets a user, e.g. when they log out
+     * @param userId the user's ID
+     */
+    public void forget(Long userId) {
+        verifiedUserIds.invalidate(userId);
+    }
+
+    /**
+     * Makes sure a user exists, hitting the database only for IDs not seen before
+     * @param userId the user's ID
+     */
+    public void requireExisting(Long userId) {
+        if (verifiedUserIds.getIfPresent(userId) != null) {
+            return;
+        }
+        // findById goes through the second-level cache; existsById always queries
+        if (userRepository.findById(userId).isEmpty()) {
+            throw new RuntimeException("User not found with ID: " + userId);
+        }
+        markVerified(userId);
+    }
+}
@@ -0,0 +1,276 @@
+package com.yukthadeesan.healthworkouttracker.services;
+
+import com.yukthadeesan.healthworkouttracker.models.WorkoutBitmap;
+import com.yukthadeesan.healthworkouttracker.models.WorkoutDayView;
+import com.yukthadeesan.healthworkouttracker.repositories.WorkoutDayArchiveRepository;
+import com.yukthadeesan.healthworkouttracker.repositories.WorkoutDayArchiveRepository.Archive;
+import com.yukthadeesan.healthworkouttracker.repositories.WorkoutDayArchiveRepository.HotRow;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Clock;
+import java.time.LocalDate;
+import java.time.Year;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+
+/**
+ * Cold storage for workout history older than the hot years.
+ * Each archived year of a user is one workout_day_archives row holding the year as a
+ * {@link WorkoutBitmap}, so workout_days only keeps recent rows. Readers merge archived
+ * days with workout_days rows; a row for an archived date (written after archival) takes
+ * precedence over the archived day until the next archival run folds it in.
+ */
+@Service
+public class WorkoutArchiveService {
+
+    private final WorkoutDayArchiveRepository archiveRepository;
+    private final Clock clock;
+    private final int hotYears;
+
+    @Autowired
+    public WorkoutArchiveService(WorkoutDayArchiveRepository archiveRepository, Clock clock,
+                                 @Value("${workout.archive.hot-years:2}") int hotYears) {
+        if (hotYears < 1) {
+            throw new IllegalArgumentException("workout.archive.hot-years must be at least 1");
+        }
+        this.archiveRepository = archiveRepository;
+        this.clock = clock;
+        this.hotYears = hotYears;
+    }
+
+    /**
+     * @return the first day that stays in workout_days: January 1 of the oldest hot year
+     */
+    public LocalDate getCutoff() {
+        return LocalDate.of(Year.now(clock).getValue() - hotYears + 1, 1, 1);
+    }
+
+    /**
+     * Calls an action for every archived day of a user, oldest first. Rows written to workout_days
+     * since archival are not taken into account, so apply them afterwards.
+     * @param userId the user's ID
+     * @param action called with the day and whether it was completed
+     */
+    public void forEachArchivedDay(Long userId, BiConsumer<LocalDate, Boolean> action) {
+        for (Archive archive : archiveRepository.findByUserIds(List.of(userId))) {
+            WorkoutBitmap.decode(archive.days()).forEachDay(action);
+        }
+    }
+
+    /**
+     * Streams a user's whole history, archived days merged with workout_days rows
+     * @param userId the user's ID
+     * @param hotDays streams the user's workout_days rows, oldest first, to the action it is given
+     * @param action called for every day, oldest first
+     */
+    public void forEachDay(Long userId, Consumer<Consumer<WorkoutDayView>> hotDays, Consumer<WorkoutDayView> action) {
+        // Only the archived days are held in memory, about 365 per archived year
+        List<WorkoutDayView> archived = new ArrayList<>();
+        forEachArchivedDay(userId, (date, completed) -> archived.add(new WorkoutDayView(date, completed)));
+        if (archived.isEmpty()) {
+            hotDays.accept(action);
+            return;
+        }
+
+        int[] next = {0};
+        hotDays.accept(day -> {
+            while (next[0] < archived.size() && archived.get(next[0]).date().isBefore(day.date())) {
+                action.accept(archived.get(next[0]++));
+            }
+            if (next[0] < archived.size() && archived.get(next[0]).date().equals(day.date())) {
+                next[0]++;
+            }
+            action.accept(day);
+        });
+        while (next[0] < archived.size()) {
+            action.accept(archived.get(next[0]++));
+        }
+    }
+
+    /**
+     * Adds a user's archived completed dates to their completed dates from workout_days
+     * @param userId the user's ID
+     * @param hotCompletedDescending completed dates from workout_days, newest first
+     * @return all completed dates, newest first
+     */
+    public List<LocalDate> mergeCompletedDates(Long userId, List<LocalDate> hotCompletedDescending) {
+        return mergeCompletedDates(List.of(userId), Map.of(userId, hotCompletedDescending))
+                .getOrDefault(userId, List.of());
+    }
+
+    /**
+     * Adds many users' archived completed dates to their completed dates from workout_days
+     * @param userIds the users' IDs
+     * @param hotCompletedDescending completed dates from workout_days per user, newest first
+     * @return all completed dates per user, newest first
+     */
+    public Map<Long, List<LocalDate>> mergeCompletedDates(Collection<Long> userIds,
+                                                           Map<Long, List<LocalDate>> hotCompletedDescending) {
+        Map<Long, TreeSet<LocalDate>> archived = findArchivedCompletedDates(userIds);
+        if (archived.isEmpty()) {
+            return hotCompletedDescending;
+        }
+
+        Map<Long, List<LocalDate>> merged = new HashMap<>(hotCompletedDescending);
+        archived.forEach((userId, dates) -> {
+            dates.addAll(hotCompletedDescending.getOrDefault(userId, List.of()));
+            merged.put(userId, new ArrayList<>(dates.descendingSet()));
+        });
+        return merged;
+    }
+
+    /**
+     * Calls an action for every archived completed day of many users within a date range,
+     * leaving out days that workout_days rows take precedence over
+     * @param userIds the users' IDs
+     * @param startDate the start date (inclusive)
+     * @param endDate the end date (inclusive)
+     * @param action called with the user's ID and the day
+     */
+    public void forEachArchivedCompletedDate(Collection<Long> userIds, LocalDate startDate, LocalDate endDate,
+                                             BiConsumer<Long, LocalDate> action) {
+        findArchivedCompletedDates(userIds).forEach((userId, dates) ->
+                dates.subSet(startDate, true, endDate, true).forEach(date -> action.accept(userId, date)));
+    }
+
+    /**
+     * Gets an archived day, for write paths that need a day's value before it is overwritten
+     * @param userId the user's ID
+     * @param date the day
+     * @return whether the archived day was completed, null if the day isn't archived
+     */
+    public Boolean getArchivedDay(Long userId, LocalDate date) {
+        if (!date.isBefore(getCutoff())) {
+            return null;
+        }
+        Boolean[] day = {null};
+        for (Archive archive : archiveRepository.findByUserIds(List.of(userId))) {
+            if (archive.year() == date.getYear()) {
+                WorkoutBitmap.decode(archive.days()).forEachDay((archivedDate, completed) -> {
+                    if (archivedDate.equals(date)) {
+                        day[0] = completed;
+                    }
+                });
+            }
+        }
+        return day[0];
+    }
+
+    /**
+     * Removes a day from a user's archive
+     * @param userId the user's ID
+     * @param date the day
+     * @return whether the removed day was completed, null if the day wasn't archived
+     */
+    @Transactional
+    public Boolean removeArchivedDay(Long userId, LocalDate date) {
+        if (!date.isBefore(getCutoff())) {
+            return null;
+        }
+        Optional<byte[]> encoded = archiveRepository.findForUpdate(userId, date.getYear());
+        if (encoded.isEmpty()) {
+            return null;
+        }
+
+        WorkoutCalendar year = new WorkoutCalendar();
+        Boolean[] removed = {null};
+        WorkoutBitmap.decode(encoded.get()).forEachDay((archivedDate, completed) -> {
+            if (archivedDate.equals(date)) {
+                removed[0] = completed;
+            } else {
+                year.set(archivedDate, completed);
+            }
+        });
+        if (removed[0] != null) {
+            archiveRepository.upsert(List.of(encode(userId, date.getYear(), year)));
+        }
+        return removed[0];
+    }
+
+    /**
+     * Moves the workout_days rows of the given users from before the cutoff into their archives,
+     * in one transaction. Only the moved rows are locked.
+     * @param userIds the users' IDs
+     * @return the number of rows moved
+     */
+    @Transactional
+    public int archiveUsers(Collection<Long> userIds) {
+        List<HotRow> rows = archiveRepository.lockHotRowsBefore(userIds, getCutoff());
+        if (rows.isEmpty()) {
+            return 0;
+        }
+
+        // Rebuild each touched year from its current archive, then apply the rows over it
+        Map<Long, Set<Integer>> touchedYears = new HashMap<>();
+        for (HotRow row : rows) {
+            touchedYears.computeIfAbsent(row.userId(), id -> new HashSet<>()).add(row.date().getYear());
+        }
+        Map<Long, Map<Integer, WorkoutCalendar>> years = new HashMap<>();
+        for (Archive archive : archiveRepository.findByUserIds(touchedYears.keySet())) {
+            if (touchedYears.get(archive.userId()).contains(archive.year())) {
+                WorkoutCalendar year = years.computeIfAbsent(archive.userId(), id -> new TreeMap<>())
+                        .computeIfAbsent(archive.year(), y -> new WorkoutCalendar());
+                WorkoutBitmap.decode(archive.days()).forEachDay(year::set);
+            }
+        }
+        List<Long> rowIds = new ArrayList<>(rows.size());
+        for (HotRow row : rows) {
+            years.computeIfAbsent(row.userId(), id -> new TreeMap<>())
+                    .computeIfAbsent(row.date().getYear(), y -> new WorkoutCalendar())
+                    .set(row.date(), row.completed());
+            rowIds.add(row.id());
+        }
+
+        List<Archive> archives = new ArrayList<>();
+        years.forEach((userId, userYears) ->
+                userYears.forEach((year, calendar) -> archives.add(encode(userId, year, calendar))));
+        archiveRepository.upsert(archives);
+        archiveRepository.deleteHotRows(rowIds);
+        return rows.size();
+    }
+
+    private Map<Long, TreeSet<LocalDate>> findArchivedCompletedDates(Collection<Long> userIds) {
+        List<Archive> archives = archiveRepository.findByUserIds(userIds);
+        if (archives.isEmpty()) {
+            return Map.of();
+        }
+
+        Map<Long, TreeSet<LocalDate>> completedDates = new HashMap<>();
+        int lastYear = Integer.MIN_VALUE;
+        for (Archive archive : archives) {
+            TreeSet<LocalDate> dates = completedDates.computeIfAbsent(archive.userId(), id -> new TreeSet<>());
+            WorkoutBitmap.decode(archive.days()).forEachDay((date, completed) -> {
+                if (completed) {
+                    dates.add(date);
+                }
+            });
+            lastYear = Math.max(lastYear, archive.year());
+        }
+
+        // Rows written for archived dates since archival take precedence, completed or not
+        for (Object[] row : archiveRepository.findHotDatesBefore(completedDates.keySet(),
+                LocalDate.of(lastYear + 1, 1, 1))) {
+            TreeSet<LocalDate> dates = completedDates.get((Long) row[0]);
+            dates.remove((LocalDate) row[1]);
+        }
+        return completedDates;
+    }
+
+    private static Archive encode(long userId, int year, WorkoutCalendar calendar) {
+        LocalDate start = LocalDate.of(year, 1, 1);
+        return new Archive(userId, year, calendar.getBitmap(start, start.plusYears(1).minusDays(1)).encode());
+    }
+}
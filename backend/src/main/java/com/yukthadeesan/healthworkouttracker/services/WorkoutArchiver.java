@@ -0,0 +1,116 @@
+package com.yukthadeesan.healthworkouttracker.services;
+
+import com.yukthadeesan.healthworkouttracker.repositories.UserRepository;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Moves workout_days rows older than the hot years into the per-user yearly archives.
+ * Users are walked in keyset pages of batch-size, one short transaction per page that
+ * locks only the rows it moves, with a pause between pages so check-ins keep priority.
+ * Runs every interval when enabled (on one node only), or once with --archive-workouts.
+ */
+@Component
+public class WorkoutArchiver implements ApplicationRunner {
+
+    private static final Logger log = LoggerFactory.getLogger(WorkoutArchiver.class);
+
+    private final WorkoutArchiveService archiveService;
+    private final UserRepository userRepository;
+    private final boolean enabled;
+    private final Duration interval;
+    private final int batchSize;
+    private final Duration pause;
+    private ScheduledExecutorService scheduler;
+
+    @Autowired
+    public WorkoutArchiver(WorkoutArchiveService archiveService, UserRepository userRepository,
+                           @Value("${workout.archive.enabled:false}") boolean enabled,
+                           @Value("${workout.archive.interval:24h}") Duration interval,
+                           @Value("${workout.archive.batch-size:200}") int batchSize,
+                           @Value("${workout.archive.pause:100ms}") Duration pause) {
+        this.archiveService = archiveService;
+        this.userRepository = userRepository;
+        this.enabled = enabled;
+        this.interval = interval;
+        this.batchSize = batchSize;
+        this.pause = pause;
+    }
+
+    @PostConstruct
+    public void start() {
+        if (!enabled) {
+            return;
+        }
+        scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "workout-archiver");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleWithFixedDelay(this::scheduledRun,
+                interval.toMillis(), interval.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+        }
+    }
+
+    @Override
+    public void run(ApplicationArguments args) throws Exception {
+        if (args.containsOption("archive-workouts")) {
+            archiveAll();
+        }
+    }
+
+    /**
+     * Archives every user's rows from before the cutoff
+     * @return the number of rows moved
+     */
+    public long archiveAll() throws InterruptedException {
+        log.info("Archiving workout days before {} in batches of {} users", archiveService.getCutoff(), batchSize);
+        long started = System.nanoTime();
+        long moved = 0;
+        Long afterId = 0L;
+        while (true) {
+            List<Long> userIds = userRepository.findIdsAfter(afterId, PageRequest.ofSize(batchSize));
+            if (userIds.isEmpty()) {
+                break;
+            }
+            int batchMoved = archiveService.archiveUsers(userIds);
+            moved += batchMoved;
+            afterId = userIds.get(userIds.size() - 1);
+            if (batchMoved > 0) {
+                Thread.sleep(pause.toMillis());
+            }
+        }
+        log.info("Archived workout days rows={} durationMs={}", moved, (System.nanoTime() - started) / 1_000_000);
+        return moved;
+    }
+
+    private void scheduledRun() {
+        try {
+            archiveAll();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (RuntimeException e) {
+            log.error("Workout archival failed", e);
+        }
+    }
+}
@@ -0,0 +1,382 @@
+package com.yukthadeesan.healthworkouttracker.services;
+
+import com.yukthadeesan.healthworkouttracker.models.WorkoutBitmap;
+import com.yukthadeesan.healthworkouttracker.models.WorkoutDayView;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Compact in-memory calendar of one user's workout days.
+ * Each day is addressed by its epoch-day and uses two bits: one in the
+ * "recorded" bitset (a row exists) and one in the "completed" bitset.
+ * A year of history costs about 96 bytes, plus 12 bytes per workout_days row for the
+ * row IDs, which are kept in a sorted primitive map. Archived days have no row and no ID.
+ * A day written without its ID being known (batch and write-behind writes) is marked
+ * unresolved until {@link #resolveIds} is given the ID.
+ * The calendar also remembers the user's stored version (workout_versions) that it reflects.
+ */
+public class WorkoutCalendar {
+
+    private static final long[] EMPTY = new long[0];
+    private static final int[] NO_DAYS = new int[0];
+    private static final long UNRESOLVED = -1;
+
+    // Epoch-day of bit 0 of word 0, always a multiple of 64
+    private long baseDay;
+    private long[] recorded = EMPTY;
+    private long[] completed = EMPTY;
+
+    // Row IDs by epoch-day, sorted by day; UNRESOLVED for rows whose ID isn't known yet
+    private int[] idDays = NO_DAYS;
+    private long[] ids = EMPTY;
+    private int idCount;
+
+    // Stored version the calendar was loaded at, advanced by this node's own writes
+    private long storedVersion;
+
+    /**
+     * @return the stored version the calendar reflects
+     */
+    public synchronized long getStoredVersion() {
+        return storedVersion;
+    }
+
+    /**
+     * Sets the stored version read before the calendar was loaded
+     * @param version the version
+     */
+    public synchronized void setStoredVersion(long version) {
+        storedVersion = version;
+    }
+
+    /**
+     * Advances the stored version after a write applied to this calendar. A gap means another
+     * node wrote in between, so the version is left behind and the calendar gets reloaded.
+     * @param version the version the write's transaction committed
+     */
+    public synchronized void advanceStoredVersion(long version) {
+        if (storedVersion == version - 1) {
+            storedVersion = version;
+        }
+    }
+
+    /**
+     * Marks a day as recorded, for a day without a workout_days row (an archived day)
+     * @param date the day
+     * @param isCompleted whether the workout was completed
+     */
+    public synchronized void set(LocalDate date, boolean isCompleted) {
+        setBits(date, isCompleted);
+        removeId(date.toEpochDay());
+    }
+
+    /**
+     * Marks a day as recorded, for a day with a workout_days row
+     * @param date the day
+     * @param isCompleted whether the workout was completed
+     * @param id the row's ID, or null if the caller doesn't know it
+     */
+    public synchronized void set(LocalDate date, boolean isCompleted, Long id) {
+        setBits(date, isCompleted);
+        putId(date.toEpochDay(), id != null ? id : UNRESOLVED);
+    }
+
+    private void setBits(LocalDate date, boolean isCompleted) {
+        long index = ensureCapacity(date.toEpochDay());
+        int word = (int) (index >>> 6);
+        long mask = 1L << index;
+
+        recorded[word] |= mask;
+        if (isCompleted) {
+            completed[word] |= mask;
+        } else {
+            completed[word] &= ~mask;
+        }
+    }
+
+    /**
+     * Removes a day from the calendar
+     * @param date the day
+     */
+    public synchronized void clear(LocalDate date) {
+        long index = date.toEpochDay() - baseDay;
+        if (index < 0 || index >= (long) recorded.length << 6) {
+            return;
+        }
+        int word = (int) (index >>> 6);
+        long mask = ~(1L << index);
+        recorded[word] &= mask;
+        completed[word] &= mask;
+        removeId(date.toEpochDay());
+    }
+
+    /**
+     * Checks whether a date range has rows whose ID isn't known yet
+     * @param startDate the start date (inclusive)
+     * @param endDate the end date (inclusive)
+     * @return true if {@link #getDays} would return a null ID for a day that has a row
+     */
+    public synchronized boolean hasUnresolvedIds(LocalDate startDate, LocalDate endDate) {
+        int end = idPosition(endDate.toEpochDay() + 1);
+        for (int position = idPosition(startDate.toEpochDay()); position < end; position++) {
+            if (ids[position] == UNRESOLVED) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Fills in the IDs of unresolved rows; known IDs and days that aren't unresolved are left alone
+     * @param rowIds row IDs by date, as read from workout_days
+     */
+    public synchronized void resolveIds(Map<LocalDate, Long> rowIds) {
+        rowIds.forEach((date, id) -> {
+            int position = Arrays.binarySearch(idDays, 0, idCount, (int) date.toEpochDay());
+            if (position >= 0 && ids[position] == UNRESOLVED) {
+                ids[position] = id;
+            }
+        });
+    }
+
+    /**
+     * Gets the recorded days within a date range, oldest first
+     * @param startDate the start date (inclusive)
+     * @param endDate the end date (inclusive)
+     * @return the recorded days
+     */
+    public synchronized List<WorkoutDayView> getDays(LocalDate startDate, LocalDate endDate) {
+        long from = Math.max(startDate.toEpochDay() - baseDay, 0);
+        long to = Math.min(endDate.toEpochDay() - baseDay, ((long) recorded.length << 6) - 1);
+        List<WorkoutDayView> days = new ArrayList<>((int) countBits(recorded, from, to));
+        int idCursor = idPosition(baseDay + from);
+
+        for (long index = from; index <= to; ) {
+            int word = (int) (index >>> 6);
+            long bits = recorded[word] & (-1L << index);
+            if (bits == 0) {
+                index = (long) (word + 1) << 6;
+                continue;
+            }
+            index = ((long) word << 6) + Long.numberOfTrailingZeros(bits);
+            if (index > to) {
+                break;
+            }
+            boolean isCompleted = (completed[word] & (1L << index)) != 0;
+            // Days come out in order, so the ID cursor only ever moves forward
+            long epochDay = baseDay + index;
+            while (idCursor < idCount && idDays[idCursor] < epochDay) {
+                idCursor++;
+            }
+            Long id = idCursor < idCount && idDays[idCursor] == epochDay && ids[idCursor] != UNRESOLVED
+                    ? ids[idCursor] : null;
+            days.add(new WorkoutDayView(LocalDate.ofEpochDay(epochDay), isCompleted, id));
+            index++;
+        }
+        return days;
+    }
+
+    /**
+     * Copies the bits of a date range out of the calendar, without building a row per day
+     * @param startDate the start date (inclusive)
+     * @param endDate the end date (inclusive)
+     * @return the range as a bitmap
+     */
+    public synchronized WorkoutBitmap getBitmap(LocalDate startDate, LocalDate endDate) {
+        int days = (int) (endDate.toEpochDay() - startDate.toEpochDay() + 1);
+        long from = startDate.toEpochDay() - baseDay;
+        return new WorkoutBitmap(startDate, days, copyBits(recorded, from, days), copyBits(completed, from, days));
+    }
+
+    private static byte[] copyBits(long[] words, long from, int count) {
+        byte[] bytes = new byte[(count + 7) / 8];
+        for (int i = 0; i < bytes.length; i++) {
+            bytes[i] = (byte) bitsAt(words, from + 8L * i);
+        }
+        if ((count & 7) != 0) {
+            bytes[bytes.length - 1] &= (byte) ((1 << (count & 7)) - 1);
+        }
+        return bytes;
+    }
+
+    /**
+     * @return the 64 bits starting at a bit index, with bits outside the array read as 0
+     */
+    private static long bitsAt(long[] words, long index) {
+        long word = Math.floorDiv(index, 64);
+        int shift = (int) Math.floorMod(index, 64);
+        long low = wordAt(words, word) >>> shift;
+        long high = shift == 0 ? 0 : wordAt(words, word + 1) << (64 - shift);
+        return low | high;
+    }
+
+    private static long wordAt(long[] words, long word) {
+        return word >= 0 && word < words.length ? words[(int) word] : 0;
+    }
+
+    /**
+     * Counts the completed days within a date range
+     * @param startDate the start date (inclusive)
+     * @param endDate the end date (inclusive)
+     * @return the number of completed days
+     */
+    public synchronized long countCompleted(LocalDate startDate, LocalDate endDate) {
+        long from = Math.max(startDate.toEpochDay() - baseDay, 0);
+        long to = Math.min(endDate.toEpochDay() - baseDay, ((long) completed.length << 6) - 1);
+        return countBits(completed, from, to);
+    }
+
+    private static long countBits(long[] words, long from, long to) {
+        if (from > to) {
+            return 0;
+        }
+
+        int firstWord = (int) (from >>> 6);
+        int lastWord = (int) (to >>> 6);
+        long count = 0;
+        for (int word = firstWord; word <= lastWord; word++) {
+            long bits = words[word];
+            if (word == firstWord) {
+                bits &= -1L << from;
+            }
+            if (word == lastWord) {
+                bits &= -1L >>> (63 - (to & 63));
+            }
+            count += Long.bitCount(bits);
+        }
+        return count;
+    }
+
+    /**
+     * Computes the current streak (consecutive completed days ending today) and the longest streak
+     * @param today the day the current streak has to end on
+     * @return the streaks
+     */
+    public synchronized StreakService.Streaks getStreaks(LocalDate today) {
+        return new StreakService.Streaks(currentStreak(today.toEpochDay() - baseDay), longestStreak());
+    }
+
+    /**
+     * Computes only the current streak, without scanning the whole history
+     * @param today the day the current streak has to end on
+     * @return the number of consecutive completed days ending today
+     */
+    public synchronized int getCurrentStreak(LocalDate today) {
+        return currentStreak(today.toEpochDay() - baseDay);
+    }
+
+    private int currentStreak(long index) {
+        if (index < 0 || index >= (long) completed.length << 6) {
+            return 0;
+        }
+
+        int streak = 0;
+        while (index >= 0) {
+            int word = (int) (index >>> 6);
+            int bit = (int) (index & 63);
+            // Move the day to the top bit, so the run of ones below it becomes the leading ones
+            int ones = Long.numberOfLeadingZeros(~(completed[word] << (63 - bit)));
+            streak += ones;
+            if (ones <= bit) {
+                break;
+            }
+            index -= ones;
+        }
+        return streak;
+    }
+
+    private int longestStreak() {
+        int longest = 0;
+        int run = 0;
+        for (long bits : completed) {
+            if (bits == -1L) {
+                run += 64;
+                continue;
+            }
+            for (int bit = 0; bit < 64; bit++) {
+                if ((bits & (1L << bit)) != 0) {
+                    run++;
+                } else {
+                    longest = Math.max(longest, run);
+                    run = 0;
+                }
+            }
+        }
+        return Math.max(longest, run);
+    }
+
+    /**
+     * Grows the bitsets so they cover the given epoch-day
+     * @return the bit index of the day
+     */
+    private long ensureCapacity(long epochDay) {
+        if (recorded.length == 0) {
+            baseDay = Math.floorDiv(epochDay, 64) * 64;
+            recorded = new long[1];
+            completed = new long[1];
+        }
+
+        long index = epochDay - baseDay;
+        if (index < 0) {
+            int extraWords = (int) ((-index + 63) >>> 6);
+            recorded = prepend(recorded, extraWords);
+            completed = prepend(completed, extraWords);
+            baseDay -= (long) extraWords << 6;
+            index = epochDay - baseDay;
+        } else if (index >= (long) recorded.length << 6) {
+            int words = Math.max((int) (index >>> 6) + 1, recorded.length * 2);
+            recorded = Arrays.copyOf(recorded, words);
+            completed = Arrays.copyOf(completed, words);
+        }
+        return index;
+    }
+
+    /**
+     * @return the position of the first ID entry on or after an epoch-day
+     */
+    private int idPosition(long epochDay) {
+        // Every LocalDate's epoch-day fits in an int
+        int position = Arrays.binarySearch(idDays, 0, idCount, (int) epochDay);
+        return position >= 0 ? position : -position - 1;
+    }
+
+    private void putId(long epochDay, long id) {
+        int position = Arrays.binarySearch(idDays, 0, idCount, (int) epochDay);
+        if (position >= 0) {
+            ids[position] = id;
+            return;
+        }
+
+        position = -position - 1;
+        if (idCount == idDays.length) {
+            int capacity = Math.max(16, idCount + (idCount >> 1));
+            idDays = Arrays.copyOf(idDays, capacity);
+            ids = Arrays.copyOf(ids, capacity);
+        }
+        // Rows are mostly loaded and recorded oldest first, so this usually moves nothing
+        System.arraycopy(idDays, position, idDays, position + 1, idCount - position);
+        System.arraycopy(ids, position, ids, position + 1, idCount - position);
+        idDays[position] = (int) epochDay;
+        ids[position] = id;
+        idCount++;
+    }
+
+    private void removeId(long epochDay) {
+        int position = Arrays.binarySearch(idDays, 0, idCount, (int) epochDay);
+        if (position >= 0) {
+            System.arraycopy(idDays, position + 1, idDays, position, idCount - position - 1);
+            System.arraycopy(ids, position + 1, ids, position, idCount - position - 1);
+            idCount--;
+        }
+    }
+
+    private static long[] prepend(long[] words, int extraWords) {
+        long[] grown = new long[words.length + extraWords];
+        System.arraycopy(words, 0, grown, extraWords, words.length);
+        return grown;
+    }
+}
@@ -0,0 +1,306 @@
+package com.yukthadeesan.healthworkouttracker.services;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import com.yukthadeesan.healthworkouttracker.models.WorkoutDayView;
+import com.yukthadeesan.healthworkouttracker.repositories.WorkoutDayRepository;
+import com.yukthadeesan.healthworkouttracker.repositories.WorkoutVersionRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.Consumer;
+
+/**
+ * Per-user cache of {@link WorkoutCalendar}s.
+ * A calendar is loaded from the database the first time a user is read and is then
+ * kept up to date by the write paths, so reads never hydrate WorkoutDay entities.
+ * Loads run outside the cache's locks; a load that overlaps an update of the same user is
+ * retried, so a cached calendar never misses an update. Archived history and check-ins still
+ * waiting in the write-behind buffer are applied on load.
+ * Updates made inside a transaction are database writes: they increment the user's stored
+ * version in it and are applied once it commits. Every update also bumps the user's
+ * {@link WorkoutVersionTracker} version and notifies the change listeners.
+ * {@link #checkVersion} compares the stored version with the one a calendar reflects,
+ * so a calendar misses another node's write for one request at most. Independently, a calendar
+ * is dropped max-age after it was loaded, however often it is read or updated in between.
+ */
+@Component
+public class WorkoutCalendarCache {
+
+    // Updates per stripe of users; a load is only cached if its stripe saw none while it ran
+    private static final int CHANGE_STRIPES = 1024;
+    private static final int MAX_LOAD_ATTEMPTS = 3;
+
+    private final WorkoutDayRepository workoutDayRepository;
+    private final VerifiedUserCache verifiedUsers;
+    private final WorkoutArchiveService archiveService;
+    private final PendingWorkoutDays pendingDays;
+    private final WorkoutVersionTracker versionTracker;
+    private final WorkoutVersionRepository versionRepository;
+    private final Cache<Long, WorkoutCalendar> calendars;
+    private final AtomicLongArray changeCounts = new AtomicLongArray(CHANGE_STRIPES);
+    private final List<Consumer<Long>> changeListeners = new CopyOnWriteArrayList<>();
+
+    @Autowired
+    public WorkoutCalendarCache(WorkoutDayRepository workoutDayRepository, VerifiedUserCache verifiedUsers,
+                                WorkoutArchiveService archiveService,
+                                PendingWorkoutDays pendingDays,
+                                WorkoutVersionTracker versionTracker,
+                                WorkoutVersionRepository versionRepository,
+                                @Value("${workout.calendar-cache.max-users:10000}") long maxUsers,
+                                @Value("${workout.calendar-cache.max-age:5m}") Duration maxAge) {
+        this.workoutDayRepository = workoutDayRepository;
+        this.verifiedUsers = verifiedUsers;
+        this.archiveService = archiveService;
+        this.pendingDays = pendingDays;
+        this.versionTracker = versionTracker;
+        this.versionRepository = versionRepository;
+        this.calendars = Caffeine.newBuilder()
+                .maximumSize(maxUsers)
+                // Counted from the load: reads and in-place updates don't extend it
+                .expireAfter(new Expiry<Long, WorkoutCalendar>() {
+                    @Override
+                    public long expireAfterCreate(Long userId, WorkoutCalendar calendar, long currentTime) {
+                        return maxAge.toNanos();
+                    }
+
+                    @Override
+                    public long expireAfterUpdate(Long userId, WorkoutCalendar calendar, long currentTime,
+                                                  long currentDuration) {
+                        return currentDuration;
+                    }
+
+                    @Override
+                    public long expireAfterRead(Long userId, WorkoutCalendar calendar, long currentTime,
+                                                long currentDuration) {
+                        return currentDuration;
+                    }
+                })
+                .build();
+    }
+
+    /**
+     * Gets a user's calendar, loading it on first access
+     * @param userId the user's ID
+     * @return the user's calendar
+     */
+    public WorkoutCalendar getCalendar(Long userId) {
+        WorkoutCalendar calendar = calendars.getIfPresent(userId);
+        return calendar != null ? calendar : loadAndCache(userId);
+    }
+
+    /**
+     * Gets a user's current version, for validating conditional GETs. Reads the stored version
+     * (one primary key lookup) and drops the cached calendar if another node has written since
+     * it was loaded, so the version changes and the next read reloads.
+     * @param userId the user's ID
+     * @return the version; read it before the data it validates
+     */
+    public WorkoutVersionTracker.Version checkVersion(Long userId) {
+        long storedVersion = versionRepository.find(userId);
+        catchUp(userId, storedVersion);
+        return versionTracker.getVersion(userId, storedVersion, pendingDays.hasPending(userId));
+    }
+
+    /**
+     * Drops a user's cached calendar if it is older than a stored version, which notifies the
+     * change listeners
+     * @param userId the user's ID
+     * @param storedVersion the user's stored version, just read
+     * @return true if a cached calendar already reflects the version; its changes were then
+     *         announced to the listeners when they were applied on this node
+     */
+    public boolean catchUp(Long userId, long storedVersion) {
+        WorkoutCalendar calendar = calendars.getIfPresent(userId);
+        if (calendar == null) {
+            return false;
+        }
+        if (calendar.getStoredVersion() < storedVersion) {
+            evict(userId);
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Gets a user's recorded days within a date range, with their row IDs.
+     * IDs of days written without one (batches, write-behind) are looked up first, in one index-only query.
+     * @param userId the user's ID
+     * @param startDate the start date (inclusive)
+     * @param endDate the end date (inclusive)
+     * @return the recorded days, oldest first
+     */
+    public List<WorkoutDayView> getDays(Long userId, LocalDate startDate, LocalDate endDate) {
+        WorkoutCalendar calendar = getCalendar(userId);
+        if (calendar.hasUnresolvedIds(startDate, endDate)) {
+            Map<LocalDate, Long> rowIds = new HashMap<>();
+            for (Object[] row : workoutDayRepository.findIdsByUserIdAndDateBetween(userId, startDate, endDate)) {
+                rowIds.put((LocalDate) row[0], (Long) row[1]);
+            }
+            calendar.resolveIds(rowIds);
+        }
+        return calendar.getDays(startDate, endDate);
+    }
+
+    /**
+     * Applies a recorded workout to the user's calendar if it is cached.
+     * Runs after the database write; a load of the same user in flight is then retried.
+     * @param userId the user's ID
+     * @param date the date of the workout
+     * @param completed whether the workout was completed
+     * @param rowId the workout_days row's ID, or null if it isn't known (yet)
+     */
+    public void recordDay(Long userId, LocalDate date, boolean completed, Long rowId) {
+        afterCommit(userId, calendar -> calendar.set(date, completed, rowId));
+    }
+
+    /**
+     * Applies a batch of recorded workouts to the user's calendar if it is cached.
+     * Their row IDs are looked up when a range containing them is read. A date with a check-in
+     * still pending in the write-behind buffer keeps the pending value, which is newer than the batch.
+     * @param userId the user's ID
+     * @param days the completion flag per date
+     */
+    public void recordDays(Long userId, Map<LocalDate, Boolean> days) {
+        afterCommit(userId, calendar -> {
+            // Read under the entry's lock: a check-in pending after this read is applied after this update
+            Map<LocalDate, Boolean> pending = pendingDays.get(userId);
+            days.forEach((date, completed) -> calendar.set(date, pending.getOrDefault(date, completed), null));
+        });
+    }
+
+    /**
+     * Removes a day from the user's calendar if it is cached
+     * @param userId the user's ID
+     * @param date the date to remove
+     */
+    public void removeDay(Long userId, LocalDate date) {
+        afterCommit(userId, calendar -> calendar.clear(date));
+    }
+
+    /**
+     * Records a change to a user's workout days made without updating the calendar, such as an
+     * import, and drops the calendar on this node. Increments the stored version, so other nodes
+     * reload it too.
+     * @param userId the user's ID
+     */
+    public void invalidate(Long userId) {
+        versionRepository.increment(userId);
+        evict(userId);
+    }
+
+    /**
+     * Drops a user's calendar so it is reloaded on next access
+     * @param userId the user's ID
+     */
+    public void evict(Long userId) {
+        calendars.asMap().compute(userId, (id, calendar) -> {
+            countChange(id);
+            return null;
+        });
+        versionTracker.bump(userId);
+        notifyListeners(userId);
+    }
+
+    /**
+     * Registers a callback that is given the user's ID after every change to a user's workout days,
+     * once the change is visible through {@link #getCalendar}
+     * @param listener the callback
+     */
+    public void addChangeListener(Consumer<Long> listener) {
+        changeListeners.add(listener);
+    }
+
+    private void afterCommit(Long userId, Consumer<WorkoutCalendar> update) {
+        // Only writes to the database run in a transaction; a write-behind check-in isn't stored yet
+        boolean stored = TransactionSynchronizationManager.isSynchronizationActive();
+        long storedVersion = stored ? versionRepository.increment(userId) : 0;
+        // The version moves after the calendar, so a reader never pairs the new version with old data
+        Runnable updateAndBump = () -> {
+            calendars.asMap().compute(userId, (id, calendar) -> {
+                // Counted even if the calendar isn't cached, in case it is being loaded
+                countChange(id);
+                if (calendar != null) {
+                    update.accept(calendar);
+                    if (stored) {
+                        calendar.advanceStoredVersion(storedVersion);
+                    }
+                }
+                return calendar;
+            });
+            versionTracker.bump(userId, storedVersion);
+            notifyListeners(userId);
+        };
+        if (stored) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    updateAndBump.run();
+                }
+            });
+        } else {
+            updateAndBump.run();
+        }
+    }
+
+    private void notifyListeners(Long userId) {
+        for (Consumer<Long> listener : changeListeners) {
+            listener.accept(userId);
+        }
+    }
+
+    private WorkoutCalendar loadAndCache(Long userId) {
+        WorkoutCalendar loaded = null;
+        for (int attempt = 0; attempt < MAX_LOAD_ATTEMPTS; attempt++) {
+            long changes = changeCounts.get(stripe(userId));
+            WorkoutCalendar calendar = loadCalendar(userId);
+            loaded = calendar;
+            // Checked under the entry's lock, which updates take to count themselves
+            WorkoutCalendar cached = calendars.asMap().compute(userId, (id, existing) -> {
+                if (existing != null) {
+                    return existing;
+                }
+                return changeCounts.get(stripe(id)) == changes ? calendar : null;
+            });
+            if (cached != null) {
+                return cached;
+            }
+        }
+        // Updates kept overlapping the load: serve the last one uncached, it was current when read
+        return loaded;
+    }
+
+    private void countChange(Long userId) {
+        changeCounts.incrementAndGet(stripe(userId));
+    }
+
+    private static int stripe(Long userId) {
+        return Long.hashCode(userId) & (CHANGE_STRIPES - 1);
+    }
+
+    private WorkoutCalendar loadCalendar(Long userId) {
+        verifiedUsers.requireExisting(userId);
+
+        WorkoutCalendar calendar = new WorkoutCalendar();
+        // Read first: a write committed during the load can only make the calendar look older than it is
+        calendar.setStoredVersion(versionRepository.find(userId));
+        // Rows written for archived dates since archival are applied last, so they take precedence
+        archiveService.forEachArchivedDay(userId, calendar::set);
+        for (WorkoutDayView day : workoutDayRepository.findViewsByUserId(userId)) {
+            calendar.set(day.date(), day.completed(), day.id());
+        }
+        pendingDays.get(userId).forEach((date, completed) -> calendar.set(date, completed, null));
+        return calendar;
+    }
+}
@@ -0,0 +1,438 @@
+package com.yukthadeesan.healthworkouttracker.services;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.yukthadeesan.healthworkouttracker.models.WorkoutDayView;
+import com.yukthadeesan.healthworkouttracker.models.WorkoutImportJob;
+import com.yukthadeesan.healthworkouttracker.models.WorkoutImportJob.Format;
+import com.yukthadeesan.healthworkouttracker.models.WorkoutImportJob.Status;
+import com.yukthadeesan.healthworkouttracker.repositories.WorkoutDayBatchRepository;
+import com.yukthadeesan.healthworkouttracker.repositories.WorkoutDayRepository;
+import com.yukthadeesan.healthworkouttracker.repositories.WorkoutImportJobRepository;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeParseException;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Imports workout history from CSV ("date,completed") or NDJSON ({"date":..,"completed":..}) files.
+ * Files are read line by line and written in chunks with the batch insert, one transaction
+ * per chunk that also advances the job's checkpoint, so an interrupted job resumes after its
+ * last committed chunk. Days the user already has are kept and counted as skipped.
+ * Uploads run on a small background pool; run with --import-workouts --user-id=ID --file=PATH
+ * to backfill from a server-local file.
+ * A job records the node that stored its file. With resume-on-startup, a node resumes only its
+ * own interrupted jobs, whose files it has. Every run first claims its job with a conditional
+ * status update, so a job queued twice (a resume racing the startup resume, a double click)
+ * still runs once.
+ */
+@Service
+public class WorkoutImportService implements ApplicationRunner {
+
+    private static final Logger log = LoggerFactory.getLogger(WorkoutImportService.class);
+
+    private static final LocalDate EARLIEST_DATE = LocalDate.of(1900, 1, 1);
+
+    private final WorkoutImportJobRepository jobRepository;
+    private final WorkoutDayRepository workoutDayRepository;
+    private final WorkoutDayBatchRepository workoutDayBatchRepository;
+    private final WorkoutArchiveService archiveService;
+    private final WorkoutRollupService rollupService;
+    private final WorkoutCalendarCache calendarCache;
+    private final WorkoutWriteBuffer writeBuffer;
+    private final VerifiedUserCache verifiedUsers;
+    private final TransactionTemplate transactionTemplate;
+    private final ObjectMapper objectMapper;
+    private final int chunkSize;
+    private final Path uploadDirectory;
+    private final boolean resumeOnStartup;
+    private final String nodeId;
+    private final ExecutorService executor;
+
+    @Autowired
+    public WorkoutImportService(WorkoutImportJobRepository jobRepository,
+                                WorkoutDayRepository workoutDayRepository,
+                                WorkoutDayBatchRepository workoutDayBatchRepository,
+                                WorkoutArchiveService archiveService,
+                                WorkoutRollupService rollupService,
+                                WorkoutCalendarCache calendarCache,
+                                WorkoutWriteBuffer writeBuffer,
+                                VerifiedUserCache verifiedUsers,
+                                PlatformTransactionManager transactionManager,
+                                ObjectMapper objectMapper,
+                                @Value("${workout.import.chunk-size:1000}") int chunkSize,
+                                @Value("${workout.import.threads:2}") int threads,
+                                @Value("${workout.import.upload-dir:data/imports}") Path uploadDirectory,
+                                @Value("${workout.import.resume-on-startup:false}") boolean resumeOnStartup,
+                                @Value("${workout.import.node-id:}") String nodeId) throws UnknownHostException {
+        this.jobRepository = jobRepository;
+        this.workoutDayRepository = workoutDayRepository;
+        this.workoutDayBatchRepository = workoutDayBatchRepository;
+        this.archiveService = archiveService;
+        this.rollupService = rollupService;
+        this.calendarCache = calendarCache;
+        this.writeBuffer = writeBuffer;
+        this.verifiedUsers = verifiedUsers;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.objectMapper = objectMapper;
+        this.chunkSize = chunkSize;
+        this.uploadDirectory = uploadDirectory;
+        this.resumeOnStartup = resumeOnStartup;
+        this.nodeId = nodeId.isBlank() ? InetAddress.getLocalHost().getHostName() : nodeId;
+        this.executor = Executors.newFixedThreadPool(threads, runnable -> {
+            Thread thread = new Thread(runnable, "workout-import");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @Override
+    public void run(ApplicationArguments args) throws Exception {
+        if (args.containsOption("import-workouts")) {
+            Long userId = Long.parseLong(requiredOption(args, "user-id"));
+            Path file = Path.of(requiredOption(args, "file"));
+            Format format = args.containsOption("format")
+                    ? Format.valueOf(args.getOptionValues("format").get(0).toUpperCase(Locale.ROOT))
+                    : formatOf(file.getFileName().toString());
+
+            verifiedUsers.requireExisting(userId);
+            WorkoutImportJob job = jobRepository.save(
+                    new WorkoutImportJob(userId, format, file.toAbsolutePath().toString(), false, nodeId));
+            runJob(job.getId(), List.of(Status.QUEUED));
+            return;
+        }
+
+        if (resumeOnStartup) {
+            resumeInterruptedJobs();
+        }
+    }
+
+    /**
+     * Queues this node's jobs that a shutdown or crash interrupted. They continue after their last
+     * committed chunk. A job still RUNNING is assumed to be cut off, so this must only be called
+     * on startup.
+     */
+    void resumeInterruptedJobs() {
+        List<Status> interrupted = List.of(Status.QUEUED, Status.RUNNING);
+        for (WorkoutImportJob job : jobRepository.findByStatusInForNode(interrupted, nodeId)) {
+            log.info("Resuming workout import jobId={} linesRead={}", job.getId(), job.getLinesRead());
+            executor.execute(() -> runJob(job.getId(), interrupted));
+        }
+    }
+
+    /**
+     * Stores an uploaded file and queues its import
+     * @param userId the user's ID
+     * @param file the uploaded file
+     * @param format the file's format, or null to infer it from the file name
+     * @return the queued job
+     */
+    public WorkoutImportJob submitUpload(Long userId, MultipartFile file, Format format) throws IOException {
+        verifiedUsers.requireExisting(userId);
+        if (format == null) {
+            format = formatOf(file.getOriginalFilename() == null ? "" : file.getOriginalFilename());
+        }
+
+        Files.createDirectories(uploadDirectory);
+        Path stored = uploadDirectory.resolve("upload-" + UUID.randomUUID() + "." + format.name().toLowerCase(Locale.ROOT))
+                .toAbsolutePath();
+        file.transferTo(stored);
+
+        WorkoutImportJob job = jobRepository.save(new WorkoutImportJob(userId, format, stored.toString(), true, nodeId));
+        executor.execute(() -> runJob(job.getId(), List.of(Status.QUEUED)));
+        return job;
+    }
+
+    /**
+     * Queues a failed job again; it continues after its last committed chunk.
+     * Only works on a node that can read the job's file.
+     * @param userId the user's ID
+     * @param jobId the job's ID
+     * @return the queued job
+     */
+    public WorkoutImportJob resume(Long userId, Long jobId) {
+        WorkoutImportJob job = getJob(userId, jobId);
+        if (job.getStatus() != Status.FAILED) {
+            throw new RuntimeException("Only failed import jobs can be resumed");
+        }
+        if (!Files.isReadable(Path.of(job.getFilePath()))) {
+            throw new RuntimeException("The import file is stored on another node; upload it again");
+        }
+        if (jobRepository.claim(jobId, List.of(Status.FAILED), Status.QUEUED) == 0) {
+            throw new RuntimeException("Only failed import jobs can be resumed");
+        }
+        executor.execute(() -> runJob(jobId, List.of(Status.QUEUED)));
+        return getJob(userId, jobId);
+    }
+
+    /**
+     * Gets one of a user's import jobs
+     * @param userId the user's ID
+     * @param jobId the job's ID
+     * @return the job
+     */
+    public WorkoutImportJob getJob(Long userId, Long jobId) {
+        return jobRepository.findById(jobId)
+                .filter(job -> job.getUserId().equals(userId))
+                .orElseThrow(() -> new RuntimeException("Import job not found with ID: " + jobId));
+    }
+
+    /**
+     * Gets a user's import jobs, newest first
+     * @param userId the user's ID
+     * @return the jobs
+     */
+    public List<WorkoutImportJob> getJobs(Long userId) {
+        return jobRepository.findByUserIdOrderByCreatedAtDesc(userId);
+    }
+
+    private void runJob(Long jobId, Collection<Status> claimable) {
+        if (jobRepository.claim(jobId, claimable, Status.RUNNING) == 0) {
+            log.info("Workout import already taken jobId={}", jobId);
+            return;
+        }
+        WorkoutImportJob job = jobRepository.findById(jobId).orElseThrow();
+        Long userId = job.getUserId();
+        if (job.getStartedAt() == null) {
+            job.setStartedAt(LocalDateTime.now());
+        }
+        job = jobRepository.save(job);
+
+        try {
+            // Buffered check-ins are newer than anything in the file and must win
+            writeBuffer.flushUser(userId);
+            job = importLines(job);
+
+            rollupService.rebuildUsers(List.of(userId));
+            calendarCache.invalidate(userId);
+
+            job.setStatus(Status.COMPLETED);
+            job.setFinishedAt(LocalDateTime.now());
+            job = jobRepository.save(job);
+            if (job.getDeleteFile()) {
+                Files.deleteIfExists(Path.of(job.getFilePath()));
+            }
+            log.info("Workout import finished jobId={} userId={} imported={} skipped={} rejected={} rowsPerSecond={}",
+                    job.getId(), userId, job.getRowsImported(), job.getRowsSkipped(), job.getRowsRejected(),
+                    Math.round(job.getRowsPerSecond()));
+        } catch (Exception e) {
+            // Reload, so the checkpoint of the last committed chunk is kept
+            WorkoutImportJob failed = jobRepository.findById(jobId).orElseThrow();
+            log.error("Workout import failed jobId={} userId={} linesRead={}", jobId, userId, failed.getLinesRead(), e);
+            failed.setStatus(Status.FAILED);
+            if (failed.getFirstError() == null) {
+                failed.setFirstError(truncate(e.getMessage()));
+            }
+            jobRepository.save(failed);
+            // Committed chunks are already visible in the database
+            calendarCache.invalidate(userId);
+        }
+    }
+
+    private WorkoutImportJob importLines(WorkoutImportJob job) throws IOException {
+        Set<LocalDate> knownDates = new HashSet<>();
+        archiveService.forEachArchivedDay(job.getUserId(), (date, completed) -> knownDates.add(date));
+        for (WorkoutDayView day : workoutDayRepository.findViewsByUserId(job.getUserId())) {
+            knownDates.add(day.date());
+        }
+
+        try (BufferedReader reader = Files.newBufferedReader(Path.of(job.getFilePath()), StandardCharsets.UTF_8)) {
+            long lineNumber = 0;
+            // Lines of committed chunks were imported by an earlier run
+            while (lineNumber < job.getLinesRead() && reader.readLine() != null) {
+                lineNumber++;
+            }
+
+            Chunk chunk = new Chunk();
+            String line;
+            while ((line = reader.readLine()) != null) {
+                lineNumber++;
+                chunk.lines++;
+                if (!line.isBlank() && !isHeader(job.getFormat(), line, lineNumber)) {
+                    try {
+                        ParsedDay day = parse(job.getFormat(), line);
+                        if (knownDates.add(day.date())) {
+                            chunk.days.put(day.date(), day.completed());
+                        } else {
+                            chunk.skipped++;
+                        }
+                    } catch (IllegalArgumentException e) {
+                        chunk.rejected++;
+                        if (chunk.firstError == null) {
+                            chunk.firstError = "Line " + lineNumber + ": " + e.getMessage();
+                        }
+                    }
+                }
+
+                if (chunk.lines >= chunkSize) {
+                    job = commit(job, chunk);
+                    chunk = new Chunk();
+                }
+            }
+            return commit(job, chunk);
+        }
+    }
+
+    private WorkoutImportJob commit(WorkoutImportJob job, Chunk chunk) {
+        if (chunk.lines == 0) {
+            return job;
+        }
+
+        WorkoutImportJob committed = transactionTemplate.execute(status -> {
+            workoutDayBatchRepository.insertMissing(job.getUserId(), chunk.days);
+            job.setLinesRead(job.getLinesRead() + chunk.lines);
+            job.setRowsImported(job.getRowsImported() + chunk.days.size());
+            job.setRowsSkipped(job.getRowsSkipped() + chunk.skipped);
+            job.setRowsRejected(job.getRowsRejected() + chunk.rejected);
+            if (job.getFirstError() == null && chunk.firstError != null) {
+                job.setFirstError(truncate(chunk.firstError));
+            }
+            return jobRepository.save(job);
+        });
+
+        log.info("Workout import progress jobId={} linesRead={} imported={} skipped={} rejected={} rowsPerSecond={}",
+                committed.getId(), committed.getLinesRead(), committed.getRowsImported(), committed.getRowsSkipped(),
+                committed.getRowsRejected(), Math.round(committed.getRowsPerSecond()));
+        return committed;
+    }
+
+    private static boolean isHeader(Format format, String line, long lineNumber) {
+        return format == Format.CSV && lineNumber == 1 && line.trim().toLowerCase(Locale.ROOT).startsWith("date");
+    }
+
+    private ParsedDay parse(Format format, String line) {
+        String date;
+        String completed;
+        if (format == Format.CSV) {
+            String[] fields = line.split(",", -1);
+            if (fields.length != 2) {
+                throw new IllegalArgumentException("expected 2 fields but found " + fields.length);
+            }
+            date = unquote(fields[0]);
+            completed = unquote(fields[1]);
+        } else {
+            JsonNode node;
+            try {
+                node = objectMapper.readTree(line);
+            } catch (IOException e) {
+                throw new IllegalArgumentException("invalid JSON");
+            }
+            date = node.path("date").asText(null);
+            completed = node.path("completed").isMissingNode() ? null : node.path("completed").asText();
+        }
+
+        return new ParsedDay(parseDate(date), parseCompleted(completed));
+    }
+
+    private static LocalDate parseDate(String value) {
+        if (value == null || value.isEmpty()) {
+            throw new IllegalArgumentException("date is missing");
+        }
+        LocalDate date;
+        try {
+            date = LocalDate.parse(value);
+        } catch (DateTimeParseException e) {
+            throw new IllegalArgumentException("invalid date " + value);
+        }
+        // No user's "today" is later than the date at UTC+14
+        if (date.isBefore(EARLIEST_DATE) || date.isAfter(LocalDate.now(ZoneOffset.MAX))) {
+            throw new IllegalArgumentException("date out of range " + value);
+        }
+        return date;
+    }
+
+    private static boolean parseCompleted(String value) {
+        if (value == null) {
+            throw new IllegalArgumentException("completed is missing");
+        }
+        switch (value.toLowerCase(Locale.ROOT)) {
+            case "true", "1", "yes":
+                return true;
+            case "false", "0", "no":
+                return false;
+            default:
+                throw new IllegalArgumentException("invalid completed value " + value);
+        }
+    }
+
+    private static String unquote(String field) {
+        String trimmed = field.trim();
+        if (trimmed.length() >= 2 && trimmed.startsWith("\"") && trimmed.endsWith("\"")) {
+            return trimmed.substring(1, trimmed.length() - 1).trim();
+        }
+        return trimmed;
+    }
+
+    private static Format formatOf(String fileName) {
+        String lower = fileName.toLowerCase(Locale.ROOT);
+        if (lower.endsWith(".ndjson") || lower.endsWith(".jsonl")) {
+            return Format.NDJSON;
+        }
+        return Format.CSV;
+    }
+
+    private static String requiredOption(ApplicationArguments args, String name) {
+        List<String> values = args.getOptionValues(name);
+        if (values == null || values.isEmpty()) {
+            throw new IllegalArgumentException("--" + name + " is required with --import-workouts");
+        }
+        return values.get(0);
+    }
+
+    private static String truncate(String message) {
+        if (message == null) {
+            return null;
+        }
+        return message.length() <= 512 ? message : message.substring(0, 512);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        // Not interrupted: a job cut off by the JVM exit stays RUNNING and is resumed
+        // from its last committed chunk on the next start
+        executor.shutdown();
+    }
+
+    private record ParsedDay(LocalDate date, boolean completed) {
+    }
+
+    /**
+     * Lines read since the last commit
+     */
+    private static class Chunk {
+        final Map<LocalDate, Boolean> days = new LinkedHashMap<>();
+        long lines;
+        long skipped;
+        long rejected;
+        String firstError;
+    }
+}
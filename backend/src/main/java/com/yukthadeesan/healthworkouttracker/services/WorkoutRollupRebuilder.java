@@ -0,0 +1,85 @@
+package com.yukthadeesan.healthworkouttracker.services;
+
+import com.yukthadeesan.healthworkouttracker.repositories.UserRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Recomputes every user's rollups from raw workout_days rows and archived years.
+ * Users are split into chunks that are rebuilt in parallel, one transaction per chunk.
+ * Run with --rebuild-rollups to backfill after a deploy or data repair.
+ */
+@Component
+public class WorkoutRollupRebuilder implements ApplicationRunner {
+
+    private static final Logger log = LoggerFactory.getLogger(WorkoutRollupRebuilder.class);
+
+    private final WorkoutRollupService rollupService;
+    private final UserRepository userRepository;
+    private final int chunkSize;
+    private final int threads;
+
+    @Autowired
+    public WorkoutRollupRebuilder(WorkoutRollupService rollupService, UserRepository userRepository,
+                                  @Value("${workout.rollup.rebuild.chunk-size:500}") int chunkSize,
+                                  @Value("${workout.rollup.rebuild.threads:4}") int threads) {
+        this.rollupService = rollupService;
+        this.userRepository = userRepository;
+        this.chunkSize = chunkSize;
+        this.threads = threads;
+    }
+
+    @Override
+    public void run(ApplicationArguments args) throws Exception {
+        if (args.containsOption("rebuild-rollups")) {
+            rebuildAll();
+        }
+    }
+
+    /**
+     * Rebuilds the rollups of all users
+     * @return the number of users rebuilt
+     */
+    public int rebuildAll() throws InterruptedException, ExecutionException {
+        List<Long> userIds = userRepository.findAllIds();
+        log.info("Rebuilding workout rollups for {} users in chunks of {} on {} threads",
+                userIds.size(), chunkSize, threads);
+
+        long started = System.nanoTime();
+        AtomicInteger rebuiltUsers = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<?>> chunks = new ArrayList<>();
+            for (int from = 0; from < userIds.size(); from += chunkSize) {
+                List<Long> chunk = userIds.subList(from, Math.min(from + chunkSize, userIds.size()));
+                chunks.add(executor.submit(() -> {
+                    rollupService.rebuildUsers(chunk);
+                    int done = rebuiltUsers.addAndGet(chunk.size());
+                    log.info("Rebuilt workout rollups for {}/{} users", done, userIds.size());
+                }));
+            }
+            for (Future<?> chunk : chunks) {
+                chunk.get();
+            }
+        } finally {
+            executor.shutdown();
+        }
+
+        log.info("Rebuilt workout rollups for {} users in {} ms",
+                rebuiltUsers.get(), (System.nanoTime() - started) / 1_000_000);
+        return rebuiltUsers.get();
+    }
+}
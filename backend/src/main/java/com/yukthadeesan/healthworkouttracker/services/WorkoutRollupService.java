@@ -0,0 +1,445 @@
+package com.yukthadeesan.healthworkouttracker.services;
+
+import com.yukthadeesan.healthworkouttracker.models.WorkoutRollup;
+import com.yukthadeesan.healthworkouttracker.models.WorkoutRollup.PeriodType;
+import com.yukthadeesan.healthworkouttracker.models.WorkoutStreakState;
+import com.yukthadeesan.healthworkouttracker.repositories.WorkoutDayRepository;
+import com.yukthadeesan.healthworkouttracker.repositories.WorkoutRollupBatchRepository;
+import com.yukthadeesan.healthworkouttracker.repositories.WorkoutRollupBatchRepository.RollupCount;
+import com.yukthadeesan.healthworkouttracker.repositories.WorkoutRollupRepository;
+import com.yukthadeesan.healthworkouttracker.repositories.WorkoutStreakStateRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+import java.time.temporal.TemporalAdjusters;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.function.UnaryOperator;
+
+/**
+ * Maintains the per-user monthly/weekly completed counts and streak state.
+ * Write paths apply changes incrementally; a user without a built streak state has never
+ * been rolled up and is rebuilt from raw workout_days rows and archived years on first use.
+ * Every change of a user's rollups holds the lock on their streak state row, which is created
+ * in its own transaction first if it is missing, so concurrent first writes queue on it.
+ */
+@Service
+public class WorkoutRollupService {
+
+    // Upper bound of the MySQL DATE type, used to read a user's whole history
+    private static final LocalDate MAX_DATE = LocalDate.of(9999, 12, 31);
+
+    private final WorkoutRollupRepository rollupRepository;
+    private final WorkoutRollupBatchRepository rollupBatchRepository;
+    private final WorkoutStreakStateRepository streakStateRepository;
+    private final WorkoutDayRepository workoutDayRepository;
+    private final WorkoutArchiveService archiveService;
+    private final VerifiedUserCache verifiedUsers;
+    private final StreakService streakService;
+    private final TransactionTemplate newTransaction;
+
+    @Autowired
+    public WorkoutRollupService(WorkoutRollupRepository rollupRepository,
+                                WorkoutRollupBatchRepository rollupBatchRepository,
+                                WorkoutStreakStateRepository streakStateRepository,
+                                WorkoutDayRepository workoutDayRepository,
+                                WorkoutArchiveService archiveService,
+                                VerifiedUserCache verifiedUsers,
+                                StreakService streakService,
+                                PlatformTransactionManager transactionManager) {
+        this.rollupRepository = rollupRepository;
+        this.rollupBatchRepository = rollupBatchRepository;
+        this.streakStateRepository = streakStateRepository;
+        this.workoutDayRepository = workoutDayRepository;
+        this.archiveService = archiveService;
+        this.verifiedUsers = verifiedUsers;
+        this.streakService = streakService;
+        this.newTransaction = new TransactionTemplate(transactionManager);
+        this.newTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+    }
+
+    /**
+     * Applies a change of one day's completion to the rollups
+     * @param userId the user's ID
+     * @param date the changed day
+     * @param wasCompleted the completion flag before the change, null if the day was not recorded
+     * @param isCompleted the completion flag after the change, null if the day was deleted
+     */
+    @Transactional
+    public void applyChange(Long userId, LocalDate date, Boolean wasCompleted, Boolean isCompleted) {
+        boolean before = Boolean.TRUE.equals(wasCompleted);
+        boolean after = Boolean.TRUE.equals(isCompleted);
+        if (before == after) {
+            return;
+        }
+
+        WorkoutStreakState state = lockState(userId);
+        if (!state.getBuilt()) {
+            // The rebuild reads the changed day from workout_days
+            rebuild(List.of(state));
+            return;
+        }
+
+        int delta = after ? 1 : -1;
+        rollupRepository.applyDelta(userId, PeriodType.MONTH.name(), monthStart(date), delta);
+        rollupRepository.applyDelta(userId, PeriodType.WEEK.name(), weekStart(date), delta);
+
+        if (after) {
+            addCompletedDay(state, date);
+        } else {
+            removeCompletedDay(state, date);
+        }
+        streakStateRepository.save(state);
+    }
+
+    /**
+     * Recomputes the rollups of every period overlapping a date range, e.g. after a batch write
+     * @param userId the user's ID
+     * @param startDate the first changed day
+     * @param endDate the last changed day
+     */
+    @Transactional
+    public void refreshRange(Long userId, LocalDate startDate, LocalDate endDate) {
+        WorkoutStreakState state = lockState(userId);
+        if (!state.getBuilt()) {
+            rebuild(List.of(state));
+            return;
+        }
+
+        workoutDayRepository.flush();
+        rebuildPeriods(userId, startDate, endDate);
+        applyCompletedDates(state, findAllCompletedDates(userId));
+        streakStateRepository.save(state);
+    }
+
+    /**
+     * Rebuilds all rollups and streak states of the given users from raw workout_days rows and archived years
+     * @param userIds the users to rebuild
+     */
+    @Transactional
+    public void rebuildUsers(Collection<Long> userIds) {
+        rebuild(lockStates(userIds));
+    }
+
+    /**
+     * Gets a user's streak state, building the user's rollups first if they don't exist yet
+     * @param userId the user's ID
+     * @return the streak state
+     */
+    @Transactional
+    public WorkoutStreakState getStreakState(Long userId) {
+        Optional<WorkoutStreakState> state = streakStateRepository.findById(userId);
+        if (state.isPresent() && state.get().getBuilt()) {
+            return state.get();
+        }
+
+        verifiedUsers.requireExisting(userId);
+        WorkoutStreakState locked = lockState(userId);
+        if (!locked.getBuilt()) {
+            rebuild(List.of(locked));
+        }
+        return locked;
+    }
+
+    /**
+     * Gets the completed count of the current month and the streaks, in a single query
+     * @param userId the user's ID
+     * @param today the current day
+     * @return the month's completed count and the streaks
+     */
+    @Transactional
+    public MonthlySummary getMonthlySummary(Long userId, LocalDate today) {
+        List<Object[]> rows = streakStateRepository.findWithRollup(userId, PeriodType.MONTH, monthStart(today));
+        if (rows.isEmpty()) {
+            getStreakState(userId);
+            rows = streakStateRepository.findWithRollup(userId, PeriodType.MONTH, monthStart(today));
+        }
+        return toMonthlySummary(rows.get(0), today);
+    }
+
+    /**
+     * Like {@link #getMonthlySummary}, but read-only: never builds missing rollups
+     * @param userId the user's ID
+     * @param today the current day
+     * @return the month's completed count and the streaks, empty if the user has no rollups yet
+     */
+    @Transactional(readOnly = true)
+    public Optional<MonthlySummary> findMonthlySummary(Long userId, LocalDate today) {
+        List<Object[]> rows = streakStateRepository.findWithRollup(userId, PeriodType.MONTH, monthStart(today));
+        return rows.isEmpty() ? Optional.empty() : Optional.of(toMonthlySummary(rows.get(0), today));
+    }
+
+    private MonthlySummary toMonthlySummary(Object[] row, LocalDate today) {
+        WorkoutStreakState state = (WorkoutStreakState) row[0];
+        Integer completedCount = (Integer) row[1];
+        return new MonthlySummary(completedCount == null ? 0 : completedCount, getStreaks(state, today));
+    }
+
+    /**
+     * Gets the streaks a streak state describes on a given day
+     * @param state a built streak state
+     * @param today the current day
+     * @return the streaks
+     */
+    StreakService.Streaks getStreaks(WorkoutStreakState state, LocalDate today) {
+        LocalDate lastCompleted = state.getLastCompletedDate();
+
+        if (lastCompleted != null && lastCompleted.isAfter(today)) {
+            // Workouts recorded in the future; the state only describes the newest run
+            return streakService.computeStreaks(state.getUserId(), today, state.getLongestStreak());
+        }
+
+        int current = today.equals(lastCompleted)
+                ? (int) ChronoUnit.DAYS.between(state.getCurrentRunStart(), today) + 1
+                : 0;
+        return new StreakService.Streaks(current, state.getLongestStreak());
+    }
+
+    /**
+     * Gets the completed count of every month in a range, including months without workouts
+     * @param userId the user's ID
+     * @param firstMonth any day of the first month
+     * @param lastMonth any day of the last month
+     * @return the completed count per month start, oldest first
+     */
+    @Transactional
+    public Map<LocalDate, Integer> getMonthlyCompletedCounts(Long userId, LocalDate firstMonth, LocalDate lastMonth) {
+        getStreakState(userId);
+        return readMonthlyCompletedCounts(userId, firstMonth, lastMonth);
+    }
+
+    /**
+     * Like {@link #getMonthlyCompletedCounts}, but read-only: never builds missing rollups
+     * @param userId the user's ID
+     * @param firstMonth any day of the first month
+     * @param lastMonth any day of the last month
+     * @return the completed count per month start, empty if the user has no rollups yet
+     */
+    @Transactional(readOnly = true)
+    public Optional<Map<LocalDate, Integer>> findMonthlyCompletedCounts(Long userId, LocalDate firstMonth,
+                                                                         LocalDate lastMonth) {
+        if (!streakStateRepository.existsByUserIdAndBuiltTrue(userId)) {
+            return Optional.empty();
+        }
+        return Optional.of(readMonthlyCompletedCounts(userId, firstMonth, lastMonth));
+    }
+
+    private Map<LocalDate, Integer> readMonthlyCompletedCounts(Long userId, LocalDate firstMonth, LocalDate lastMonth) {
+        Map<LocalDate, Integer> counts = new LinkedHashMap<>();
+        for (LocalDate month = monthStart(firstMonth); !month.isAfter(lastMonth); month = month.plusMonths(1)) {
+            counts.put(month, 0);
+        }
+        for (WorkoutRollup rollup : rollupRepository.findByUserIdAndPeriodTypeAndPeriodStartBetweenOrderByPeriodStart(
+                userId, PeriodType.MONTH, monthStart(firstMonth), monthStart(lastMonth))) {
+            counts.put(rollup.getPeriodStart(), rollup.getCompletedCount());
+        }
+        return counts;
+    }
+
+    private WorkoutStreakState lockState(Long userId) {
+        return lockStates(List.of(userId)).get(0);
+    }
+
+    private List<WorkoutStreakState> lockStates(Collection<Long> userIds) {
+        // Checked and created without locks: a locking read of a missing row would take a gap lock,
+        // and two transactions holding one deadlock as soon as both insert
+        List<Long> missing = new ArrayList<>(userIds);
+        missing.removeAll(streakStateRepository.findUserIds(userIds));
+        if (!missing.isEmpty()) {
+            newTransaction.executeWithoutResult(status -> rollupBatchRepository.insertUnbuiltStates(missing));
+        }
+        return streakStateRepository.findForUpdateByUserIdInOrderByUserId(userIds);
+    }
+
+    private void rebuild(List<WorkoutStreakState> states) {
+        List<Long> userIds = states.stream().map(WorkoutStreakState::getUserId).toList();
+        workoutDayRepository.flush();
+
+        Map<Long, List<LocalDate>> completedDatesByUser = new HashMap<>();
+        for (Object[] row : workoutDayRepository.findCompletedDatesByUserIds(userIds)) {
+            completedDatesByUser.computeIfAbsent((Long) row[0], id -> new ArrayList<>()).add((LocalDate) row[1]);
+        }
+        completedDatesByUser = archiveService.mergeCompletedDates(userIds, completedDatesByUser);
+
+        rollupRepository.deleteByUserIds(userIds);
+        List<RollupCount> rollups = new ArrayList<>();
+        for (WorkoutStreakState state : states) {
+            List<LocalDate> completedDates = completedDatesByUser.getOrDefault(state.getUserId(), List.of());
+            addCounts(state.getUserId(), PeriodType.MONTH, completedDates, WorkoutRollupService::monthStart, rollups);
+            addCounts(state.getUserId(), PeriodType.WEEK, completedDates, WorkoutRollupService::weekStart, rollups);
+            applyCompletedDates(state, completedDates);
+            state.setBuilt(true);
+        }
+        rollupBatchRepository.insertRollups(rollups);
+        streakStateRepository.saveAll(states);
+    }
+
+    private void rebuildPeriods(Long userId, LocalDate startDate, LocalDate endDate) {
+        LocalDate firstMonth = monthStart(startDate);
+        LocalDate lastMonthEnd = endDate.with(TemporalAdjusters.lastDayOfMonth());
+        LocalDate firstWeek = weekStart(startDate);
+        LocalDate lastWeekEnd = endDate.with(DayOfWeek.SUNDAY);
+        List<Long> userIds = List.of(userId);
+        rollupRepository.deletePeriods(userIds, PeriodType.MONTH, firstMonth, lastMonthEnd);
+        rollupRepository.deletePeriods(userIds, PeriodType.WEEK, firstWeek, lastWeekEnd);
+
+        // Whole months and weeks, so read from whichever of them starts first to whichever ends last
+        LocalDate from = firstWeek.isBefore(firstMonth) ? firstWeek : firstMonth;
+        LocalDate to = lastWeekEnd.isAfter(lastMonthEnd) ? lastWeekEnd : lastMonthEnd;
+        List<RollupCount> rollups = new ArrayList<>();
+        List<LocalDate> completedDates = streakService.findCompletedDates(userId, from, to);
+        List<LocalDate> months = completedDates.stream()
+                .filter(date -> !date.isBefore(firstMonth) && !date.isAfter(lastMonthEnd))
+                .toList();
+        List<LocalDate> weeks = completedDates.stream()
+                .filter(date -> !date.isBefore(firstWeek) && !date.isAfter(lastWeekEnd))
+                .toList();
+        addCounts(userId, PeriodType.MONTH, months, WorkoutRollupService::monthStart, rollups);
+        addCounts(userId, PeriodType.WEEK, weeks, WorkoutRollupService::weekStart, rollups);
+        rollupBatchRepository.insertRollups(rollups);
+    }
+
+    private static void addCounts(Long userId, PeriodType type, List<LocalDate> completedDates,
+                                  UnaryOperator<LocalDate> periodStart, List<RollupCount> rollups) {
+        Map<LocalDate, Integer> counts = new TreeMap<>();
+        for (LocalDate date : completedDates) {
+            counts.merge(periodStart.apply(date), 1, Integer::sum);
+        }
+        counts.forEach((start, count) -> rollups.add(new RollupCount(userId, type, start, count)));
+    }
+
+    /**
+     * Adds a newly completed day to a user's streak state, reading only the runs it can join
+     */
+    private void addCompletedDay(WorkoutStreakState state, LocalDate date) {
+        LocalDate lastCompleted = state.getLastCompletedDate();
+        if (lastCompleted == null || date.isAfter(lastCompleted)) {
+            // Common case: a check-in at the end of the history only extends or starts the newest run
+            if (lastCompleted == null || !date.equals(lastCompleted.plusDays(1))) {
+                state.setCurrentRunStart(date);
+            }
+            state.setLastCompletedDate(date);
+            int runLength = (int) ChronoUnit.DAYS.between(state.getCurrentRunStart(), date) + 1;
+            state.setLongestStreak(Math.max(state.getLongestStreak(), runLength));
+            return;
+        }
+
+        // A back-filled day joins the runs on either side of it, neither longer than the longest streak
+        Run run = findRun(state, date);
+        state.setLongestStreak(Math.max(state.getLongestStreak(), run.length()));
+        if (run.end().equals(lastCompleted)) {
+            state.setCurrentRunStart(run.start());
+        }
+    }
+
+    /**
+     * Removes a day that is no longer completed from a user's streak state, reading only the run it
+     * was part of, unless that run was a longest one
+     */
+    private void removeCompletedDay(WorkoutStreakState state, LocalDate date) {
+        Long userId = state.getUserId();
+        // The run the day split, measured without it, is no longer than the longest streak
+        Set<LocalDate> around = findCompletedAround(state, date);
+        Run left = runOf(around, date.minusDays(1));
+        Run right = runOf(around, date.plusDays(1));
+        if (left.length() + right.length() + 1 >= state.getLongestStreak()) {
+            // The removed day was part of a longest run; whether another run is as long is only
+            // known from the whole history
+            applyCompletedDates(state, findAllCompletedDates(userId));
+            return;
+        }
+
+        LocalDate lastCompleted = state.getLastCompletedDate();
+        if (date.equals(lastCompleted)) {
+            // The newest run now ends the day before, or an older run becomes the newest
+            LocalDate newest = left.length() > 0 ? left.end() : streakService.findLatestCompletedDate(userId, date);
+            state.setLastCompletedDate(newest);
+            state.setCurrentRunStart(left.length() > 0 ? left.start() : findRun(state, newest).start());
+        } else if (!date.isBefore(state.getCurrentRunStart())) {
+            state.setCurrentRunStart(date.plusDays(1));
+        }
+    }
+
+    /**
+     * Finds the run of completed days containing a day, with a single query bounded by the longest streak.
+     * The run has length 0 if the day isn't completed.
+     */
+    private Run findRun(WorkoutStreakState state, LocalDate date) {
+        return runOf(findCompletedAround(state, date), date);
+    }
+
+    private Set<LocalDate> findCompletedAround(WorkoutStreakState state, LocalDate date) {
+        int longest = state.getLongestStreak();
+        return new HashSet<>(streakService.findCompletedDates(state.getUserId(),
+                date.minusDays(longest), date.plusDays(longest)));
+    }
+
+    private static Run runOf(Set<LocalDate> completed, LocalDate date) {
+        if (!completed.contains(date)) {
+            return new Run(date, date.minusDays(1));
+        }
+        LocalDate start = date;
+        while (completed.contains(start.minusDays(1))) {
+            start = start.minusDays(1);
+        }
+        LocalDate end = date;
+        while (completed.contains(end.plusDays(1))) {
+            end = end.plusDays(1);
+        }
+        return new Run(start, end);
+    }
+
+    private List<LocalDate> findAllCompletedDates(Long userId) {
+        return archiveService.mergeCompletedDates(userId, workoutDayRepository.findCompletedDatesUpTo(userId, MAX_DATE));
+    }
+
+    private static void applyCompletedDates(WorkoutStreakState state, List<LocalDate> completedDatesDescending) {
+        if (completedDatesDescending.isEmpty()) {
+            state.setLastCompletedDate(null);
+            state.setCurrentRunStart(null);
+            state.setLongestStreak(0);
+            return;
+        }
+
+        LocalDate lastCompleted = completedDatesDescending.get(0);
+        StreakService.Streaks streaks = StreakService.calculate(completedDatesDescending, lastCompleted);
+        state.setLastCompletedDate(lastCompleted);
+        state.setCurrentRunStart(lastCompleted.minusDays(streaks.current() - 1));
+        state.setLongestStreak(streaks.longest());
+    }
+
+    private static LocalDate monthStart(LocalDate date) {
+        return date.withDayOfMonth(1);
+    }
+
+    private static LocalDate weekStart(LocalDate date) {
+        return date.with(DayOfWeek.MONDAY);
+    }
+
+    private record Run(LocalDate start, LocalDate end) {
+        int length() {
+            return (int) ChronoUnit.DAYS.between(start, end) + 1;
+        }
+    }
+
+    /**
+     * Completed workouts of one month together with the user's streaks
+     */
+    public record MonthlySummary(long completedWorkouts, StreakService.Streaks streaks) {
+    }
+}
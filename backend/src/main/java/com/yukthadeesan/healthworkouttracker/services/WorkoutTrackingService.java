@@ -1,17 +1,28 @@
 package com.yukthadeesan.healthworkouttracker.services;
 
 import com.yukthadeesan.healthworkouttracker.models.User;
+import com.yukthadeesan.healthworkouttracker.models.WorkoutBitmap;
 import com.yukthadeesan.healthworkouttracker.models.WorkoutDay;
+import com.yukthadeesan.healthworkouttracker.models.WorkoutDayView;
 import com.yukthadeesan.healthworkouttracker.repositories.UserRepository;
+import com.yukthadeesan.healthworkouttracker.repositories.WorkoutDayBatchRepository;
+import com.yukthadeesan.healthworkouttracker.repositories.WorkoutDayExportRepository;
 import com.yukthadeesan.healthworkouttracker.repositories.WorkoutDayRepository;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDate;
-import java.time.temporal.TemporalAdjusters;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
 
 @Service
@@ -19,11 +30,40 @@ public class WorkoutTrackingService {
 
     private final WorkoutDayRepository workoutDayRepository;
     private final UserRepository userRepository;
+    private final WorkoutDayBatchRepository workoutDayBatchRepository;
+    private final WorkoutDayExportRepository workoutDayExportRepository;
+    private final WorkoutArchiveService archiveService;
+    private final WorkoutCalendarCache calendarCache;
+    private final WorkoutRollupService rollupService;
+    private final WorkoutWriteBuffer writeBuffer;
+    private final UserClock userClock;
+    private final ReadYourWrites readYourWrites;
+    private final int maxBatchEntries;
 
     @Autowired
-    public WorkoutTrackingService(WorkoutDayRepository workoutDayRepository, UserRepository userRepository) {
+    public WorkoutTrackingService(WorkoutDayRepository workoutDayRepository, UserRepository userRepository,
+                                  WorkoutDayBatchRepository workoutDayBatchRepository,
+                                  WorkoutDayExportRepository workoutDayExportRepository,
+                                  WorkoutArchiveService archiveService,
+                                  WorkoutCalendarCache calendarCache,
+                                  WorkoutRollupService rollupService,
+                                  WorkoutWriteBuffer writeBuffer,
+                                  UserClock userClock,
+                                  ReadYourWrites readYourWrites,
+                                  @Value("${workout.batch.max-entries:1000}") int maxBatchEntries) {
         this.workoutDayRepository = workoutDayRepository;
         this.userRepository = userRepository;
+        this.workoutDayBatchRepository = workoutDayBatchRepository;
+        this.workoutDayExportRepository = workoutDayExportRepository;
+        this.archiveService = archiveService;
+        this.calendarCache = calendarCache;
+        this.rollupService = rollupService;
+        this.writeBuffer = writeBuffer;
+        this.userClock = userClock;
+        this.readYourWrites = readYourWrites;
+        // Every committed change to a user's workout days opens their read-your-writes window
+        calendarCache.addChangeListener(readYourWrites::recordWrite);
+        this.maxBatchEntries = maxBatchEntries;
     }
 
     /**
@@ -33,22 +73,113 @@ public class WorkoutTrackingService {
      * @param completed whether the workout was completed
      * @return the saved WorkoutDay entity
      */
+    @Transactional
     public WorkoutDay recordWorkout(Long userId, LocalDate date, boolean completed) {
-        User user = userRepository.findById(userId)
-                .orElseThrow(() -> new RuntimeException("User not found with ID: " + userId));
-
         // Check if a workout record already exists for this date
-        WorkoutDay existingWorkout = workoutDayRepository.findByUserAndDate(user, date);
+        WorkoutDay existingWorkout = workoutDayRepository.findByUserIdAndDate(userId, date);
 
+        WorkoutDay savedWorkout;
+        Boolean previouslyCompleted = null;
         if (existingWorkout != null) {
             // Update existing record
+            previouslyCompleted = existingWorkout.getCompleted();
             existingWorkout.setCompleted(completed);
-            return workoutDayRepository.save(existingWorkout);
+            savedWorkout = workoutDayRepository.save(existingWorkout);
         } else {
-            // Create new record
+            // A day before the hot years may be archived; the new row takes precedence over it
+            previouslyCompleted = archiveService.getArchivedDay(userId, date);
+            // Create new record; the user_id foreign key rejects unknown users, so a proxy is enough
+            User user = userRepository.getReferenceById(userId);
             WorkoutDay newWorkout = new WorkoutDay(date, completed, user);
-            return workoutDayRepository.save(newWorkout);
+            savedWorkout = workoutDayRepository.save(newWorkout);
+        }
+
+        rollupService.applyChange(userId, date, previouslyCompleted, completed);
+        calendarCache.recordDay(userId, date, completed, savedWorkout.getId());
+        return savedWorkout;
+    }
+
+    /**
+     * Records a workout through the write-behind buffer, if it is enabled.
+     * The workout is visible to this user's calendar reads immediately and reaches the database shortly after.
+     * @param userId the user's ID
+     * @param date the date of the workout
+     * @param completed whether the workout was completed
+     * @return false if write-behind is disabled and nothing was recorded
+     */
+    public boolean recordWorkoutBuffered(Long userId, LocalDate date, boolean completed) {
+        if (!writeBuffer.isEnabled()) {
+            return false;
+        }
+        writeBuffer.record(userId, date, completed);
+        return true;
+    }
+
+    /**
+     * Records many workouts for a user in one batched upsert.
+     * Invalid entries are rejected, and when a date appears more than once the last entry wins.
+     * @param userId the user's ID
+     * @param entries the workouts to record
+     * @return one result per entry, in request order
+     */
+    @Transactional
+    public List<Map<String, Object>> recordWorkouts(Long userId, List<WorkoutEntry> entries) {
+        if (entries.size() > maxBatchEntries) {
+            throw new RuntimeException("A batch may contain at most " + maxBatchEntries + " entries");
+        }
+        // Buffered check-ins must not overwrite this batch later
+        writeBuffer.flushUser(userId);
+
+        Map<LocalDate, Integer> lastIndexByDate = new HashMap<>();
+        for (int i = 0; i < entries.size(); i++) {
+            WorkoutEntry entry = entries.get(i);
+            if (entry != null && entry.date() != null && entry.completed() != null) {
+                lastIndexByDate.put(entry.date(), i);
+            }
+        }
+
+        List<Map<String, Object>> results = new ArrayList<>(entries.size());
+        List<Map<String, Object>> appliedResults = new ArrayList<>(lastIndexByDate.size());
+        Map<LocalDate, Boolean> days = new LinkedHashMap<>();
+
+        for (int i = 0; i < entries.size(); i++) {
+            WorkoutEntry entry = entries.get(i);
+            Map<String, Object> result = new HashMap<>();
+            result.put("index", i);
+            results.add(result);
+
+            if (entry == null || entry.date() == null || entry.completed() == null) {
+                result.put("status", "rejected");
+                result.put("error", "Both date and completed are required");
+                continue;
+            }
+
+            result.put("date", entry.date());
+            result.put("completed", entry.completed());
+            if (lastIndexByDate.get(entry.date()) != i) {
+                result.put("status", "superseded");
+                continue;
+            }
+
+            days.put(entry.date(), entry.completed());
+            appliedResults.add(result);
+        }
+
+        // Update counts don't tell inserts from updates: Connector/J reports found rather than changed
+        // rows by default, and nothing per row once it rewrites the batch
+        workoutDayBatchRepository.upsert(userId, days);
+        for (Map<String, Object> result : appliedResults) {
+            result.put("status", "applied");
+        }
+
+        if (!days.isEmpty()) {
+            LocalDate firstDate = days.keySet().stream().min(LocalDate::compareTo).orElseThrow();
+            LocalDate lastDate = days.keySet().stream().max(LocalDate::compareTo).orElseThrow();
+            rollupService.refreshRange(userId, firstDate, lastDate);
         }
+
+        calendarCache.recordDays(userId, days);
+        return results;
     }
 
     /**
@@ -56,26 +187,38 @@ public class WorkoutTrackingService {
      * @param userId the user's ID
      * @param startDate the start date (inclusive)
      * @param endDate the end date (inclusive)
-     * @return a list of workout days
+     * @return a list of workout days, oldest first
      */
-    public List<WorkoutDay> getWorkoutDays(Long userId, LocalDate startDate, LocalDate endDate) {
-        User user = userRepository.findById(userId)
-                .orElseThrow(() -> new RuntimeException("User not found with ID: " + userId));
+    @Transactional(readOnly = true)
+    public List<WorkoutDayView> getWorkoutDays(Long userId, LocalDate startDate, LocalDate endDate) {
+        return calendarCache.getDays(userId, startDate, endDate);
+    }
 
-        return workoutDayRepository.findByUserAndDateBetween(user, startDate, endDate);
+    /**
+     * Gets a date range of a user's workout days as a packed bitmap
+     * @param userId the user's ID
+     * @param startDate the start date (inclusive)
+     * @param endDate the end date (inclusive)
+     * @return the bitmap
+     */
+    @Transactional(readOnly = true)
+    public WorkoutBitmap getWorkoutBitmap(Long userId, LocalDate startDate, LocalDate endDate) {
+        long days = endDate.toEpochDay() - startDate.toEpochDay() + 1;
+        if (days < 1 || days > WorkoutBitmap.MAX_DAYS) {
+            throw new RuntimeException("A bitmap range must cover 1 to " + WorkoutBitmap.MAX_DAYS + " days");
+        }
+        return calendarCache.getCalendar(userId).getBitmap(startDate, endDate);
     }
 
     /**
-     * Gets all workout days for a user in the current month
+     * Gets all workout days for a user in the current month of the user's time zone
      * @param userId the user's ID
      * @return a list of workout days in the current month
      */
-    public List<WorkoutDay> getCurrentMonthWorkouts(Long userId) {
-        LocalDate today = LocalDate.now();
-        LocalDate firstDayOfMonth = today.with(TemporalAdjusters.firstDayOfMonth());
-        LocalDate lastDayOfMonth = today.with(TemporalAdjusters.lastDayOfMonth());
-
-        return getWorkoutDays(userId, firstDayOfMonth, lastDayOfMonth);
+    @Transactional(readOnly = true)
+    public List<WorkoutDayView> getCurrentMonthWorkouts(Long userId) {
+        UserClock.Today today = userClock.today(userId);
+        return getWorkoutDays(userId, today.monthStart(), today.monthEnd());
     }
 
     /**
@@ -84,7 +227,8 @@ public class WorkoutTrackingService {
      * @param weekStartDate the start date of the week (usually Sunday or Monday)
      * @return a list of workout days for the week
      */
-    public List<WorkoutDay> getWeekWorkouts(Long userId, LocalDate weekStartDate) {
+    @Transactional(readOnly = true)
+    public List<WorkoutDayView> getWeekWorkouts(Long userId, LocalDate weekStartDate) {
         LocalDate weekEndDate = weekStartDate.plusDays(6); // 7 days in a week
         return getWorkoutDays(userId, weekStartDate, weekEndDate);
     }
@@ -96,12 +240,21 @@ public class WorkoutTrackingService {
      * @param endDate the end date
      * @return the count of completed workouts
      */
+    @Transactional(readOnly = true)
     public long countCompletedWorkouts(Long userId, LocalDate startDate, LocalDate endDate) {
-        User user = userRepository.findById(userId)
-                .orElseThrow(() -> new RuntimeException("User not found with ID: " + userId));
+        return calendarCache.getCalendar(userId).countCompleted(startDate, endDate);
+    }
 
-        return workoutDayRepository.countByUserAndCompletedAndDateBetween(
-                user, true, startDate, endDate);
+    /**
+     * Streams a user's whole workout history straight from the database, without
+     * collecting it in memory or going through the calendar cache. Archived years are
+     * merged in; only those are held in memory.
+     * @param userId the user's ID
+     * @param action called for every workout day, oldest first
+     */
+    public void exportWorkoutDays(Long userId, Consumer<WorkoutDayView> action) {
+        writeBuffer.flushUser(userId);
+        archiveService.forEachDay(userId, hotDays -> workoutDayExportRepository.forEachDay(userId, hotDays), action);
     }
 
     /**
@@ -109,13 +262,19 @@ public class WorkoutTrackingService {
      * @param userId the user's ID
      * @param date the date to delete
      */
+    @Transactional
     public void deleteWorkout(Long userId, LocalDate date) {
-        User user = userRepository.findById(userId)
-                .orElseThrow(() -> new RuntimeException("User not found with ID: " + userId));
-
-        WorkoutDay workout = workoutDayRepository.findByUserAndDate(user, date);
-        if (workout != null) {
-            workoutDayRepository.delete(workout);
+        writeBuffer.flushUser(userId);
+        WorkoutDay workout = workoutDayRepository.findByUserIdAndDate(userId, date);
+        // Also cleared when a row exists, so deleting the row doesn't uncover the archived day
+        Boolean archivedCompleted = archiveService.removeArchivedDay(userId, date);
+        if (workout != null || archivedCompleted != null) {
+            if (workout != null) {
+                workoutDayRepository.delete(workout);
+            }
+            Boolean previouslyCompleted = workout != null ? workout.getCompleted() : archivedCompleted;
+            rollupService.applyChange(userId, date, previouslyCompleted, null);
+            calendarCache.removeDay(userId, date);
         }
     }
 
@@ -125,36 +284,66 @@ public class WorkoutTrackingService {
      * @return a map of statistics
      */
     public Map<String, Object> getCurrentMonthStats(Long userId) {
-        LocalDate today = LocalDate.now();
-        LocalDate firstDayOfMonth = today.with(TemporalAdjusters.firstDayOfMonth());
-        LocalDate lastDayOfMonth = today.with(TemporalAdjusters.lastDayOfMonth());
+        LocalDate today = userClock.today(userId).date();
+        writeBuffer.flushUser(userId);
 
-        User user = userRepository.findById(userId)
-                .orElseThrow(() -> new RuntimeException("User not found with ID: " + userId));
+        // Read from the rollups in one statement, so stats never scan raw workout_days rows.
+        // Served by a replica once the rollups exist; the first call builds them on the primary
+        WorkoutRollupService.MonthlySummary summary = rollupService.findMonthlySummary(userId, today)
+                .orElseGet(() -> buildRollups(userId, () -> rollupService.getMonthlySummary(userId, today)));
 
         long totalDaysInMonth = today.lengthOfMonth();
-        long completedWorkouts = workoutDayRepository.countByUserAndCompletedAndDateBetween(
-                user, true, firstDayOfMonth, lastDayOfMonth);
-
-        // Calculate streak (consecutive workout days leading up to today)
-        int currentStreak = 0;
-        LocalDate checkDate = today;
-
-        while (true) {
-            WorkoutDay workout = workoutDayRepository.findByUserAndDate(user, checkDate);
-            if (workout != null && workout.getCompleted()) {
-                currentStreak++;
-                checkDate = checkDate.minusDays(1);
-            } else {
-                break;
-            }
-        }
+        long completedWorkouts = summary.completedWorkouts();
+
+        // Current streak (consecutive workout days leading up to today) and longest streak
+        StreakService.Streaks streaks = summary.streaks();
 
         return Map.of(
                 "totalDaysInMonth", totalDaysInMonth,
                 "completedWorkouts", completedWorkouts,
                 "completionRate", (double) completedWorkouts / totalDaysInMonth,
-                "currentStreak", currentStreak
+                "currentStreak", streaks.current(),
+                "longestStreak", streaks.longest()
         );
     }
+
+    /**
+     * Get the monthly completion history for a user, ending with the current month
+     * @param userId the user's ID
+     * @param months the number of months to include
+     * @return one entry per month, oldest first
+     */
+    public List<Map<String, Object>> getMonthlyHistory(Long userId, int months) {
+        writeBuffer.flushUser(userId);
+        LocalDate currentMonth = userClock.today(userId).monthStart();
+        LocalDate firstMonth = currentMonth.minusMonths(Math.max(months, 1) - 1);
+
+        Map<LocalDate, Integer> counts = rollupService.findMonthlyCompletedCounts(userId, firstMonth, currentMonth)
+                .orElseGet(() -> buildRollups(userId,
+                        () -> rollupService.getMonthlyCompletedCounts(userId, firstMonth, currentMonth)));
+
+        List<Map<String, Object>> history = new ArrayList<>();
+        counts.forEach((month, completed) -> {
+            Map<String, Object> entry = new HashMap<>();
+            entry.put("month", YearMonth.from(month).toString());
+            entry.put("totalDaysInMonth", month.lengthOfMonth());
+            entry.put("completedWorkouts", completed);
+            entry.put("completionRate", (double) completed / month.lengthOfMonth());
+            history.add(entry);
+        });
+        return history;
+    }
+
+    private <T> T buildRollups(Long userId, Supplier<T> read) {
+        T result = read.get();
+        // The replica may not have the new rollups yet
+        readYourWrites.recordWrite(userId);
+        return result;
+    }
+
+    /**
+     * A single workout in a batch recording request
+     */
+    public record WorkoutEntry(LocalDate date, Boolean completed) {
+    }
 }
\ No newline at end of file
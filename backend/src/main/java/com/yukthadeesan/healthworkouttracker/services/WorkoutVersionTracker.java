@@ -0,0 +1,124 @@
+package com.yukthadeesan.healthworkouttracker.services;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.security.SecureRandom;
+import java.time.LocalDate;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Version of each user's workout data, used as the validator for conditional GETs.
+ * ETags come from the stored version (workout_versions), so every node hands out the same ETag
+ * for the same data and a client's If-None-Match matches whichever node it reaches.
+ * Check-ins still waiting in this node's write-behind buffer aren't stored yet: while a user has
+ * some, the ETag is this node's own, taken from a process-wide sequence that every change on
+ * this node advances, so it is never reused and matches nowhere else.
+ */
+@Component
+public class WorkoutVersionTracker {
+
+    // Differs per process, so node-local ETags handed out before a restart never match
+    private final String instanceId = Long.toString(new SecureRandom().nextLong() >>> 1, 36);
+    private final AtomicLong sequence = new AtomicLong();
+    private final Cache<Long, Version> versions;
+
+    @Autowired
+    public WorkoutVersionTracker(@Value("${workout.calendar-cache.max-users:10000}") long maxUsers) {
+        // No expiry: other nodes' writes are detected through the stored version
+        this.versions = Caffeine.newBuilder()
+                .maximumSize(maxUsers)
+                .build();
+    }
+
+    /**
+     * Gets a user's current version; a user not seen yet gets a fresh one
+     * @param userId the user's ID
+     * @return the version
+     */
+    public Version getVersion(Long userId) {
+        return versions.get(userId, id -> newVersion(0));
+    }
+
+    /**
+     * Gets a user's current version given their stored version
+     * @param userId the user's ID
+     * @param storedVersion the stored version, just read
+     * @param unstoredChanges whether the user has check-ins on this node that aren't stored yet
+     * @return the version, a new one if the stored version moved since it was created
+     */
+    public Version getVersion(Long userId, long storedVersion, boolean unstoredChanges) {
+        Version current = versions.asMap().compute(userId, (id, version) ->
+                version != null && version.storedVersion() >= storedVersion ? version : newVersion(storedVersion));
+        return unstoredChanges ? current.withUnstoredChanges() : current;
+    }
+
+    /**
+     * Marks a user's data as changed on this node
+     * @param userId the user's ID
+     */
+    public void bump(Long userId) {
+        bump(userId, 0);
+    }
+
+    /**
+     * Marks a user's data as changed by a write that committed a stored version
+     * @param userId the user's ID
+     * @param storedVersion the committed stored version, 0 if the change isn't stored
+     */
+    public void bump(Long userId, long storedVersion) {
+        versions.asMap().compute(userId, (id, version) ->
+                newVersion(Math.max(storedVersion, version != null ? version.storedVersion() : 0)));
+    }
+
+    /**
+     * Builds a strong ETag for data read at a version on a given day.
+     * The day is included because the current month, week and streak move at midnight.
+     * @param userId the user's ID
+     * @param version the version read before the data
+     * @param today the current day
+     * @return the quoted ETag
+     */
+    public String etag(Long userId, Version version, LocalDate today) {
+        return etag(userId, version, today, null);
+    }
+
+    /**
+     * Builds a strong ETag for one representation of data read at a version on a given day.
+     * Representations of the same data must not share an ETag, or a client could be sent a 304
+     * for a body in another format. The user's ID is included because browsers key their cache
+     * by URL only, and two users on one browser share the stored version 0.
+     * @param userId the user's ID
+     * @param version the version read before the data
+     * @param today the current day
+     * @param representation a suffix naming the representation, or null for the default one
+     * @return the quoted ETag
+     */
+    public String etag(Long userId, Version version, LocalDate today, String representation) {
+        String data = version.unstoredChanges()
+                ? instanceId + "." + version.sequence()
+                : Long.toString(version.storedVersion());
+        String suffix = representation != null ? "-" + representation : "";
+        return "\"" + userId + "-" + data + "-" + today.toEpochDay() + suffix + "\"";
+    }
+
+    private Version newVersion(long storedVersion) {
+        return new Version(sequence.incrementAndGet(), System.currentTimeMillis(), storedVersion, false);
+    }
+
+    /**
+     * @param sequence unique number of this version on this node
+     * @param modifiedAt when the version was created, in epoch milliseconds
+     * @param storedVersion the highest stored version seen for the user when it was created
+     * @param unstoredChanges whether the data includes check-ins this node hasn't stored yet
+     */
+    public record Version(long sequence, long modifiedAt, long storedVersion, boolean unstoredChanges) {
+
+        Version withUnstoredChanges() {
+            return new Version(sequence, modifiedAt, storedVersion, true);
+        }
+    }
+}
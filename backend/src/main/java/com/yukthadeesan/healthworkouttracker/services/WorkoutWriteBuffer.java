@@ -0,0 +1,289 @@
+package com.yukthadeesan.healthworkouttracker.services;
+
+import com.yukthadeesan.healthworkouttracker.repositories.UserRepository;
+import com.yukthadeesan.healthworkouttracker.repositories.WorkoutDayBatchRepository;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Optional write-behind mode for check-ins (workout.write-behind.enabled).
+ * A check-in is stored in {@link PendingWorkoutDays}, where the last write for a
+ * (user, date) wins, and applied to the user's cached calendar right away. A background
+ * thread writes pending check-ins with the batch upsert, many users per transaction,
+ * every flush-interval or as soon as flush-size check-ins are pending.
+ * With durability=fsync a check-in is acknowledged only after it is fsynced to a local
+ * {@link CheckInLog}, which is replayed on startup. Every flush logs which of a user's check-ins
+ * it wrote, so replay never restores a check-in that a later write replaced.
+ */
+@Component
+public class WorkoutWriteBuffer {
+
+    private static final Logger log = LoggerFactory.getLogger(WorkoutWriteBuffer.class);
+
+    public enum Durability { NONE, FSYNC }
+
+    private final PendingWorkoutDays pending;
+    private final WorkoutDayBatchRepository workoutDayBatchRepository;
+    private final WorkoutRollupService rollupService;
+    private final WorkoutCalendarCache calendarCache;
+    private final VerifiedUserCache verifiedUsers;
+    private final UserRepository userRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final boolean enabled;
+    private final Duration flushInterval;
+    private final int flushSize;
+    private final int usersPerTransaction;
+    private final Durability durability;
+    private final Path logDirectory;
+
+    // Flushes of the whole buffer and of single users never overlap, so an older value can't overwrite a newer one
+    private final ReentrantLock flushLock = new ReentrantLock();
+    private final AtomicBoolean flushRequested = new AtomicBoolean();
+    private ScheduledExecutorService flusher;
+    private CheckInLog checkInLog;
+
+    @Autowired
+    public WorkoutWriteBuffer(PendingWorkoutDays pending,
+                              WorkoutDayBatchRepository workoutDayBatchRepository,
+                              WorkoutRollupService rollupService,
+                              WorkoutCalendarCache calendarCache,
+                              VerifiedUserCache verifiedUsers,
+                              UserRepository userRepository,
+                              PlatformTransactionManager transactionManager,
+                              @Value("${workout.write-behind.enabled:false}") boolean enabled,
+                              @Value("${workout.write-behind.flush-interval:200ms}") Duration flushInterval,
+                              @Value("${workout.write-behind.flush-size:500}") int flushSize,
+                              @Value("${workout.write-behind.users-per-transaction:100}") int usersPerTransaction,
+                              @Value("${workout.write-behind.durability:fsync}") Durability durability,
+                              @Value("${workout.write-behind.log-dir:data/write-behind}") Path logDirectory) {
+        this.pending = pending;
+        this.workoutDayBatchRepository = workoutDayBatchRepository;
+        this.rollupService = rollupService;
+        this.calendarCache = calendarCache;
+        this.verifiedUsers = verifiedUsers;
+        this.userRepository = userRepository;
+        // Flushes commit on their own, even when called from inside a request's transaction
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.enabled = enabled;
+        this.flushInterval = flushInterval;
+        this.flushSize = flushSize;
+        this.usersPerTransaction = usersPerTransaction;
+        this.durability = durability;
+        this.logDirectory = logDirectory;
+    }
+
+    @PostConstruct
+    public void start() throws IOException {
+        if (!enabled) {
+            return;
+        }
+
+        if (durability == Durability.FSYNC) {
+            checkInLog = new CheckInLog(logDirectory);
+            List<CheckInLog.CheckIn> recovered = checkInLog.recover();
+            recovered.forEach(checkIn -> pending.put(checkIn.userId(), checkIn.date(), checkIn.completed()));
+            log.info("Write-behind log opened dir={} recoveredCheckIns={}", logDirectory, recovered.size());
+        }
+
+        flusher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "workout-write-behind");
+            thread.setDaemon(true);
+            return thread;
+        });
+        flusher.scheduleWithFixedDelay(this::flushAll,
+                flushInterval.toMillis(), flushInterval.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * @return whether check-ins are buffered instead of written synchronously
+     */
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Accepts a check-in. Returns once the check-in is durable according to the configured durability.
+     * @param userId the user's ID
+     * @param date the date of the workout
+     * @param completed whether the workout was completed
+     */
+    public void record(Long userId, LocalDate date, boolean completed) {
+        verifiedUsers.requireExisting(userId);
+
+        // Pending before logged: a log segment is only deleted after a flush that started later,
+        // so every check-in in it is guaranteed to have been part of that flush
+        pending.put(userId, date, completed);
+        // No row yet; the ID is looked up once a read needs it
+        calendarCache.recordDay(userId, date, completed, null);
+        if (checkInLog != null) {
+            checkInLog.append(userId, date, completed).join();
+        }
+
+        if (pending.size() >= flushSize && flushRequested.compareAndSet(false, true)) {
+            flusher.execute(this::flushAll);
+        }
+    }
+
+    /**
+     * Writes a user's pending check-ins now, e.g. before reading data the calendar doesn't cover
+     * @param userId the user's ID
+     */
+    public void flushUser(Long userId) {
+        if (!enabled || pending.get(userId).isEmpty()) {
+            return;
+        }
+
+        flushLock.lock();
+        try {
+            flushUsers(List.of(userId));
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    private void flushAll() {
+        flushRequested.set(false);
+        flushLock.lock();
+        try {
+            List<Path> segments = checkInLog != null ? checkInLog.rotate() : List.of();
+            if (flushUsers(pending.userIds()) && !segments.isEmpty()) {
+                checkInLog.delete(segments);
+            }
+        } catch (RuntimeException e) {
+            log.error("Write-behind flush failed", e);
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    /**
+     * @return whether every pending check-in of the users was written
+     */
+    private boolean flushUsers(Collection<Long> userIds) {
+        // Read before the snapshot, so every check-in logged up to here is part of it
+        long flushedThrough = checkInLog != null ? checkInLog.lastSequence() : 0;
+        Map<Long, Map<LocalDate, Boolean>> snapshot = new LinkedHashMap<>();
+        for (Long userId : userIds) {
+            Map<LocalDate, Boolean> days = pending.get(userId);
+            if (!days.isEmpty()) {
+                snapshot.put(userId, days);
+            }
+        }
+
+        boolean allWritten = true;
+        List<Long> written = new ArrayList<>();
+        List<Long> snapshotUsers = new ArrayList<>(snapshot.keySet());
+        for (int from = 0; from < snapshotUsers.size(); from += usersPerTransaction) {
+            List<Long> chunk = snapshotUsers.subList(from, Math.min(from + usersPerTransaction, snapshotUsers.size()));
+            try {
+                transactionTemplate.executeWithoutResult(status -> chunk.forEach(id -> write(id, snapshot.get(id))));
+                chunk.forEach(id -> markWritten(id, snapshot.get(id)));
+                written.addAll(chunk);
+            } catch (RuntimeException e) {
+                // Retry one user per transaction, so a single bad user doesn't hold back the others
+                log.warn("Write-behind batch failed, retrying per user users={}", chunk.size(), e);
+                for (Long userId : chunk) {
+                    if (flushSingleUser(userId, snapshot.get(userId))) {
+                        written.add(userId);
+                    } else {
+                        allWritten = false;
+                    }
+                }
+            }
+        }
+
+        if (checkInLog != null && !written.isEmpty()) {
+            // Durable before returning, so a write that follows a flushUser can't be undone by a replay
+            CompletableFuture.allOf(written.stream()
+                    .map(userId -> checkInLog.markFlushed(userId, flushedThrough))
+                    .toArray(CompletableFuture[]::new)).join();
+        }
+        return allWritten;
+    }
+
+    private boolean flushSingleUser(Long userId, Map<LocalDate, Boolean> days) {
+        try {
+            transactionTemplate.executeWithoutResult(status -> write(userId, days));
+            markWritten(userId, days);
+            return true;
+        } catch (DataIntegrityViolationException e) {
+            if (!isDeleted(userId)) {
+                // Acknowledged check-ins stay pending, and their log segments on disk, until a flush succeeds
+                log.error("Write-behind flush failed userId={} days={}", userId, days.size(), e);
+                return false;
+            }
+            // The user no longer exists; these check-ins can never be written
+            log.error("Dropping write-behind check-ins of a deleted user userId={} days={}", userId, days.size(), e);
+            verifiedUsers.forget(userId);
+            markWritten(userId, days);
+            calendarCache.evict(userId);
+            return true;
+        } catch (RuntimeException e) {
+            log.error("Write-behind flush failed userId={} days={}", userId, days.size(), e);
+            return false;
+        }
+    }
+
+    private boolean isDeleted(Long userId) {
+        try {
+            // existsById always queries; the second-level cache may still hold a deleted user
+            return !userRepository.existsById(userId);
+        } catch (RuntimeException e) {
+            log.warn("Could not check whether user exists userId={}", userId, e);
+            return false;
+        }
+    }
+
+    private void write(Long userId, Map<LocalDate, Boolean> days) {
+        workoutDayBatchRepository.upsert(userId, days);
+        LocalDate firstDate = days.keySet().stream().min(LocalDate::compareTo).orElseThrow();
+        LocalDate lastDate = days.keySet().stream().max(LocalDate::compareTo).orElseThrow();
+        rollupService.refreshRange(userId, firstDate, lastDate);
+        // Waits for a calendar load that read the database before this commit
+        calendarCache.recordDays(userId, days);
+    }
+
+    private void markWritten(Long userId, Map<LocalDate, Boolean> days) {
+        days.forEach((date, completed) -> pending.remove(userId, date, completed));
+    }
+
+    @PreDestroy
+    public void stop() throws IOException, InterruptedException {
+        if (!enabled) {
+            return;
+        }
+
+        flusher.shutdown();
+        flusher.awaitTermination(30, TimeUnit.SECONDS);
+        flushAll();
+        if (checkInLog != null) {
+            checkInLog.close();
+        }
+    }
+}
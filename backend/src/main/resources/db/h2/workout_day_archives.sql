@@ -0,0 +1,10 @@
+-- workout_day_archives for the embedded H2 profiles, whose schema Hibernate creates from the entities.
+-- Mirrors db/migration/V5__workout_day_archives.sql without the foreign key, so Hibernate can drop users.
+-- Recreated along with Hibernate's tables, so rows never outlive the users they belong to
+DROP TABLE IF EXISTS workout_day_archives;
+CREATE TABLE workout_day_archives (
+    user_id      BIGINT        NOT NULL,
+    archive_year SMALLINT      NOT NULL,
+    days         VARBINARY(98) NOT NULL,
+    PRIMARY KEY (user_id, archive_year)
+);
@@ -0,0 +1,9 @@
+-- workout_versions for the embedded H2 profiles, whose schema Hibernate creates from the entities.
+-- Mirrors db/migration/V7__workout_versions.sql without the foreign key, so Hibernate can drop users.
+-- Recreated along with Hibernate's tables, so rows never outlive the users they belong to
+DROP TABLE IF EXISTS workout_versions;
+CREATE TABLE workout_versions (
+    user_id BIGINT NOT NULL,
+    version BIGINT NOT NULL,
+    PRIMARY KEY (user_id)
+);
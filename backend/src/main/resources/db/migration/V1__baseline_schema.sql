@@ -0,0 +1,20 @@
+-- Schema as previously created by spring.jpa.hibernate.ddl-auto=update.
+-- Existing databases are baselined at this version (spring.flyway.baseline-on-migrate).
+
+CREATE TABLE users (
+    id         BIGINT       NOT NULL AUTO_INCREMENT,
+    username   VARCHAR(255) NOT NULL,
+    password   VARCHAR(255) NOT NULL,
+    created_at DATETIME(6),
+    PRIMARY KEY (id),
+    CONSTRAINT uk_users_username UNIQUE (username)
+) ENGINE = InnoDB;
+
+CREATE TABLE workout_days (
+    id        BIGINT NOT NULL AUTO_INCREMENT,
+    user_id   BIGINT NOT NULL,
+    date      DATE   NOT NULL,
+    completed BIT(1) NOT NULL,
+    PRIMARY KEY (id),
+    CONSTRAINT fk_workout_days_user FOREIGN KEY (user_id) REFERENCES users (id)
+) ENGINE = InnoDB;
@@ -0,0 +1,25 @@
+-- One row per user per day. Databases created by ddl-auto may already hold duplicates,
+-- so keep the newest row of each (user_id, date) before adding the unique index.
+DELETE older
+FROM workout_days older
+         JOIN workout_days newer
+              ON newer.user_id = older.user_id
+                  AND newer.date = older.date
+                  AND newer.id > older.id;
+
+-- ddl-auto may already have created the unique index from the entity mapping
+SET @has_unique_index = (SELECT COUNT(*)
+                         FROM information_schema.statistics
+                         WHERE table_schema = DATABASE()
+                           AND table_name = 'workout_days'
+                           AND index_name = 'uk_workout_days_user_date');
+SET @ddl = IF(@has_unique_index = 0,
+              'ALTER TABLE workout_days ADD CONSTRAINT uk_workout_days_user_date UNIQUE (user_id, date)',
+              'DO 0');
+PREPARE statement FROM @ddl;
+EXECUTE statement;
+DEALLOCATE PREPARE statement;
+
+-- Covers countByUserAndCompletedAndDateBetween and the completed-dates streak query
+-- without touching the clustered rows
+CREATE INDEX idx_workout_days_user_completed_date ON workout_days (user_id, completed, date);
@@ -0,0 +1,22 @@
+-- Bulk history imports. lines_read is the checkpoint: it is updated in the same
+-- transaction as the chunk it covers, so a restarted job resumes after the last committed chunk.
+CREATE TABLE workout_import_jobs (
+    id             BIGINT        NOT NULL AUTO_INCREMENT,
+    user_id        BIGINT        NOT NULL,
+    format         VARCHAR(8)    NOT NULL,
+    file_path      VARCHAR(1024) NOT NULL,
+    delete_file    BIT(1)        NOT NULL,
+    status         VARCHAR(16)   NOT NULL,
+    lines_read     BIGINT        NOT NULL,
+    rows_imported  BIGINT        NOT NULL,
+    rows_skipped   BIGINT        NOT NULL,
+    rows_rejected  BIGINT        NOT NULL,
+    first_error    VARCHAR(512),
+    created_at     DATETIME(6)   NOT NULL,
+    started_at     DATETIME(6),
+    finished_at    DATETIME(6),
+    PRIMARY KEY (id),
+    CONSTRAINT fk_workout_import_jobs_user FOREIGN KEY (user_id) REFERENCES users (id)
+) ENGINE = InnoDB;
+
+CREATE INDEX idx_workout_import_jobs_status ON workout_import_jobs (status);
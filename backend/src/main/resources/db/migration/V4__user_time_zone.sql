@@ -0,0 +1,2 @@
+-- IANA zone ID (e.g. Europe/Berlin) that decides a user's "today"; NULL uses workout.clock.default-zone
+ALTER TABLE users ADD COLUMN time_zone VARCHAR(64) NULL;
@@ -0,0 +1,10 @@
+-- Cold history: one row per user per archived calendar year instead of up to 366 workout_days rows.
+-- days is a WorkoutBitmap of January 1 to December 31 (a recorded and a completed bit per day, 98 bytes).
+-- A workout_days row for an archived date takes precedence until the next archival run merges it in.
+CREATE TABLE workout_day_archives (
+    user_id      BIGINT        NOT NULL,
+    archive_year SMALLINT      NOT NULL,
+    days         VARBINARY(98) NOT NULL,
+    PRIMARY KEY (user_id, archive_year),
+    CONSTRAINT fk_workout_day_archives_user FOREIGN KEY (user_id) REFERENCES users (id)
+) ENGINE = InnoDB;
@@ -0,0 +1,20 @@
+-- Tables for the rollups and streak states, which postdate the baseline schema in V1.
+-- IF NOT EXISTS because databases baselined at V1 may already have them from ddl-auto=update.
+
+CREATE TABLE IF NOT EXISTS workout_rollups (
+    id              BIGINT     NOT NULL AUTO_INCREMENT,
+    user_id         BIGINT     NOT NULL,
+    period_type     VARCHAR(8) NOT NULL,
+    period_start    DATE       NOT NULL,
+    completed_count INT        NOT NULL,
+    PRIMARY KEY (id),
+    CONSTRAINT uk_workout_rollups_user_period UNIQUE (user_id, period_type, period_start)
+) ENGINE = InnoDB;
+
+CREATE TABLE IF NOT EXISTS workout_streak_states (
+    user_id             BIGINT NOT NULL,
+    last_completed_date DATE,
+    current_run_start   DATE,
+    longest_streak      INT    NOT NULL,
+    PRIMARY KEY (user_id)
+) ENGINE = InnoDB;
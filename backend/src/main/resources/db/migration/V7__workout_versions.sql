@@ -0,0 +1,9 @@
+-- Version of each user's workout data, incremented in every transaction that changes it.
+-- Nodes compare it with the version their cached calendar was loaded at, so a write made on
+-- another node reloads the calendar and changes the ETag there too.
+CREATE TABLE workout_versions (
+    user_id BIGINT NOT NULL,
+    version BIGINT NOT NULL,
+    PRIMARY KEY (user_id),
+    CONSTRAINT fk_workout_versions_user FOREIGN KEY (user_id) REFERENCES users (id)
+) ENGINE = InnoDB;
@@ -0,0 +1,4 @@
+-- A user's streak state row is now created, in its own transaction, before their rollups are
+-- built, so concurrent first writers of a user queue on the row's lock instead of racing to
+-- insert it. built stays false until the rollups exist; rows from before this were built.
+ALTER TABLE workout_streak_states ADD COLUMN built BOOLEAN NOT NULL DEFAULT TRUE;
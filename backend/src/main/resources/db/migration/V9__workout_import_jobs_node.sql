@@ -0,0 +1,3 @@
+-- The node that stored the job's file, which is the only one that resumes the job after a restart.
+-- Jobs from before the column have none and are resumed by any node with resume-on-startup, as before.
+ALTER TABLE workout_import_jobs ADD COLUMN node VARCHAR(255) NULL;
@@ -0,0 +1,103 @@
+package com.yukthadeesan.healthworkouttracker;
+
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Records the SQL statements the current thread sends through the application's DataSource,
+ * for tests that assert how many queries a code path issues.
+ * Import it into a test, then wrap the code under test in {@link #start()} and {@link #stop()}.
+ * Only the thread that called start() is recorded, so background work (schedulers, leaderboard
+ * rebuilds) doesn't make counts flaky. A batch counts once, when its statement is prepared.
+ */
+@TestConfiguration
+public class SqlStatementRecorder {
+
+    private static final ThreadLocal<List<String>> RECORDED = new ThreadLocal<>();
+    private static final Set<String> STATEMENT_EXECUTIONS =
+            Set.of("execute", "executeQuery", "executeUpdate", "executeLargeUpdate", "addBatch");
+
+    @Bean
+    static BeanPostProcessor sqlStatementRecordingPostProcessor() {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                // The @Primary DataSource that JPA and every JdbcTemplate go through
+                return "dataSource".equals(beanName) && bean instanceof DataSource dataSource
+                        ? proxy(DataSource.class, dataSource, SqlStatementRecorder::wrapDataSourceCall)
+                        : bean;
+            }
+        };
+    }
+
+    /**
+     * Starts recording the current thread's statements, dropping anything recorded before
+     */
+    public static void start() {
+        RECORDED.set(new ArrayList<>());
+    }
+
+    /**
+     * Stops recording the current thread's statements
+     * @return the statements recorded since start(), in the order they were sent
+     */
+    public static List<String> stop() {
+        List<String> recorded = RECORDED.get();
+        RECORDED.remove();
+        return recorded == null ? List.of() : List.copyOf(recorded);
+    }
+
+    private static void record(Object sql) {
+        List<String> recorded = RECORDED.get();
+        if (recorded != null && sql instanceof String statement) {
+            recorded.add(statement);
+        }
+    }
+
+    private static Object wrapDataSourceCall(String method, Object result, Object[] args) {
+        return result instanceof Connection connection && method.equals("getConnection")
+                ? proxy(Connection.class, connection, SqlStatementRecorder::wrapConnectionCall)
+                : result;
+    }
+
+    private static Object wrapConnectionCall(String method, Object result, Object[] args) {
+        if (method.equals("prepareStatement") || method.equals("prepareCall")) {
+            record(args[0]);
+        } else if (method.equals("createStatement") && result instanceof Statement statement) {
+            return proxy(Statement.class, statement, (statementMethod, statementResult, statementArgs) -> {
+                if (STATEMENT_EXECUTIONS.contains(statementMethod) && statementArgs != null) {
+                    record(statementArgs[0]);
+                }
+                return statementResult;
+            });
+        }
+        return result;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> T proxy(Class<T> type, T target, CallListener listener) {
+        InvocationHandler handler = (proxy, method, args) -> {
+            try {
+                return listener.called(method.getName(), method.invoke(target, args), args);
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            }
+        };
+        return (T) Proxy.newProxyInstance(SqlStatementRecorder.class.getClassLoader(), new Class<?>[]{type}, handler);
+    }
+
+    private interface CallListener {
+        Object called(String method, Object result, Object[] args);
+    }
+}
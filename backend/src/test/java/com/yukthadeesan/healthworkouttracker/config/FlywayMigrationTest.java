@@ -0,0 +1,174 @@
+package com.yukthadeesan.healthworkouttracker.config;
+
+import com.yukthadeesan.healthworkouttracker.HealthWorkoutTrackerApplication;
+import org.flywaydb.core.Flyway;
+import org.flywaydb.core.api.MigrationInfo;
+import org.flywaydb.core.api.MigrationInfoService;
+import org.flywaydb.core.api.MigrationState;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.jdbc.datasource.init.ScriptUtils;
+import org.testcontainers.containers.MySQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.Date;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Runs the real Flyway migrations against MySQL, which the H2 tests can't: V2 uses MySQL's
+ * information_schema, session variables and prepared statements. Each test gets its own database.
+ * Needs Docker, and is skipped without it.
+ */
+@Testcontainers(disabledWithoutDocker = true)
+class FlywayMigrationTest {
+
+    private static final LocalDate TODAY = LocalDate.of(2026, 10, 17);
+    private static final int USERS = 1000;
+    private static final int DAYS = 365;
+    // Every DUPLICATE_EVERYth day of a user gets an older duplicate row, as ddl-auto allowed
+    private static final int DUPLICATE_EVERY = 10;
+
+    @Container
+    private static final MySQLContainer<?> MYSQL = new MySQLContainer<>("mysql:8.0");
+
+    @Test
+    void databaseFromBeforeFlywayIsBaselinedAndMigrated() throws SQLException {
+        DataSource dataSource = newDatabase("pre_flyway");
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+        // The tables ddl-auto created, without the unique (user_id, date) index
+        try (Connection connection = dataSource.getConnection()) {
+            ScriptUtils.executeSqlScript(connection, new ClassPathResource("db/migration/V1__baseline_schema.sql"));
+        }
+        int duplicates = seed(jdbcTemplate);
+
+        long started = System.nanoTime();
+        flyway(dataSource).migrate();
+        long migrationMillis = (System.nanoTime() - started) / 1_000_000;
+
+        assertAllApplied(dataSource);
+        assertEquals((long) USERS * DAYS, jdbcTemplate.queryForObject("SELECT COUNT(*) FROM workout_days", Long.class),
+                () -> duplicates + " duplicates should be gone after " + migrationMillis + " ms");
+        // The newest row of each duplicated day is kept, and seed() made it the completed one
+        assertEquals(0, jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM workout_days WHERE completed = false AND DATEDIFF(?, date) % ? = 0",
+                Long.class, Date.valueOf(TODAY), DUPLICATE_EVERY));
+
+        String plan = String.join("\n", jdbcTemplate.query(
+                "EXPLAIN FORMAT=TREE SELECT date FROM workout_days WHERE user_id = ? AND completed = true " +
+                "AND date <= ? ORDER BY date DESC", (rs, row) -> rs.getString(1), 1L, Date.valueOf(TODAY)));
+        assertTrue(plan.contains("idx_workout_days_user_completed_date"), () -> "Streak query plan:\n" + plan);
+    }
+
+    @Test
+    void migratedSchemaPassesHibernateValidation() {
+        DataSource dataSource = newDatabase("fresh");
+        flyway(dataSource).migrate();
+        assertAllApplied(dataSource);
+
+        // Starts the application with ddl-auto=validate, as in production. Passed as arguments,
+        // which take precedence over application.properties
+        try (ConfigurableApplicationContext context = new SpringApplicationBuilder(HealthWorkoutTrackerApplication.class)
+                .web(WebApplicationType.NONE)
+                .run(
+                        "--spring.datasource.url=" + jdbcUrl("fresh"),
+                        "--spring.datasource.username=root",
+                        "--spring.datasource.password=" + MYSQL.getPassword(),
+                        "--auth.token.secret=lKEqj2GW85/KocNN+HNzhn5HMxiTCBs/Q0B2U92ZKwg=",
+                        "--workout.import.resume-on-startup=false",
+                        "--workout.import.upload-dir=build/test-data/imports",
+                        "--workout.write-behind.log-dir=build/test-data/write-behind",
+                        "--spring.main.banner-mode=off")) {
+            assertTrue(context.isActive());
+        }
+    }
+
+    @Test
+    void databaseThatRanTheFirstV1IsRepairedAndMigrated() {
+        DataSource dataSource = newDatabase("first_v1");
+        Flyway firstV1 = Flyway.configure()
+                .dataSource(dataSource)
+                .locations("classpath:db/first-v1")
+                .load();
+        firstV1.migrate();
+        assertEquals(FlywayConfig.FIRST_V1_CHECKSUM, firstV1.info().applied()[0].getChecksum());
+
+        Flyway current = flyway(dataSource);
+        assertTrue(FlywayConfig.ranFirstV1(current));
+        new FlywayConfig().flywayMigrationStrategy().migrate(current);
+
+        assertAllApplied(dataSource);
+    }
+
+    private int seed(JdbcTemplate jdbcTemplate) {
+        List<Object[]> users = new ArrayList<>(USERS);
+        for (int i = 0; i < USERS; i++) {
+            users.add(new Object[] {(long) i + 1, "migration-user-" + i, "not-a-real-hash"});
+        }
+        jdbcTemplate.batchUpdate("INSERT INTO users (id, username, password) VALUES (?, ?, ?)", users);
+
+        List<Object[]> days = new ArrayList<>();
+        int duplicates = 0;
+        for (int user = 1; user <= USERS; user++) {
+            for (int daysAgo = 0; daysAgo < DAYS; daysAgo++) {
+                Date date = Date.valueOf(TODAY.minusDays(daysAgo));
+                if (daysAgo % DUPLICATE_EVERY == 0) {
+                    // Inserted first, so it has the lower ID and is the one V2 removes
+                    days.add(new Object[] {(long) user, date, false});
+                    duplicates++;
+                }
+                days.add(new Object[] {(long) user, date, daysAgo % DUPLICATE_EVERY == 0 || daysAgo % 3 != 0});
+            }
+            if (days.size() >= 50_000) {
+                jdbcTemplate.batchUpdate("INSERT INTO workout_days (user_id, date, completed) VALUES (?, ?, ?)", days);
+                days.clear();
+            }
+        }
+        jdbcTemplate.batchUpdate("INSERT INTO workout_days (user_id, date, completed) VALUES (?, ?, ?)", days);
+        return duplicates;
+    }
+
+    private static void assertAllApplied(DataSource dataSource) {
+        MigrationInfoService info = flyway(dataSource).info();
+        assertEquals(0, info.pending().length, "pending migrations");
+        for (MigrationInfo migration : info.all()) {
+            // A baselined database reports V1 as ignored: the baseline row stands in for it
+            assertTrue(migration.getState() != MigrationState.FAILED,
+                    () -> "V" + migration.getVersion() + " is " + migration.getState());
+        }
+        assertEquals("9", info.current().getVersion().getVersion());
+    }
+
+    private static Flyway flyway(DataSource dataSource) {
+        // As configured in application.properties
+        return Flyway.configure()
+                .dataSource(dataSource)
+                .baselineOnMigrate(true)
+                .baselineVersion("1")
+                .load();
+    }
+
+    private static DataSource newDatabase(String name) {
+        new JdbcTemplate(new DriverManagerDataSource(MYSQL.getJdbcUrl(), "root", MYSQL.getPassword()))
+                .execute("CREATE DATABASE " + name);
+        return new DriverManagerDataSource(jdbcUrl(name), "root", MYSQL.getPassword());
+    }
+
+    private static String jdbcUrl(String database) {
+        String url = MYSQL.getJdbcUrl().replace("/" + MYSQL.getDatabaseName(), "/" + database);
+        return url + (url.contains("?") ? "&" : "?") + "rewriteBatchedStatements=true";
+    }
+}
@@ -0,0 +1,105 @@
+package com.yukthadeesan.healthworkouttracker.config;
+
+import com.yukthadeesan.healthworkouttracker.services.AccessTokenService;
+import com.yukthadeesan.healthworkouttracker.services.ReadYourWrites;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.support.StaticListableBeanFactory;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabase;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseBuilder;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseType;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class ReplicaRoutingDataSourceTest {
+
+    private final EmbeddedDatabase primary = database("primary");
+    private final EmbeddedDatabase replica = database("replica");
+    private final ReadYourWrites readYourWrites = new ReadYourWrites(
+            new AccessTokenService("lKEqj2GW85/KocNN+HNzhn5HMxiTCBs/Q0B2U92ZKwg=", Duration.ofHours(1), 100),
+            Duration.ofMinutes(1), 100);
+    private final DataSource dataSource = new DataSourceConfig().dataSource(primary,
+            new StaticListableBeanFactory(Map.of("replicaDataSource", replica)).getBeanProvider(DataSource.class),
+            readYourWrites);
+    private final JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+    private final TransactionTemplate readWrite = new TransactionTemplate(new DataSourceTransactionManager(dataSource));
+    private final TransactionTemplate readOnly = new TransactionTemplate(new DataSourceTransactionManager(dataSource));
+
+    {
+        readOnly.setReadOnly(true);
+    }
+
+    @AfterEach
+    void tearDown() {
+        SecurityContextHolder.clearContext();
+        primary.shutdown();
+        replica.shutdown();
+    }
+
+    @Test
+    void readOnlyTransactionsGoToTheReplicaAndEverythingElseToThePrimary() {
+        assertEquals("primary", readWrite.execute(status -> server()));
+        assertEquals("replica", readOnly.execute(status -> server()));
+        // Outside a transaction
+        assertEquals("primary", server());
+    }
+
+    @Test
+    void aUserInsideTheirWindowReadsFromThePrimary() {
+        readYourWrites.recordWrite(1L);
+
+        assertEquals("primary", readYourWrites.readAs(1L, () -> readOnly.execute(status -> server())));
+        assertEquals("replica", readYourWrites.readAs(2L, () -> readOnly.execute(status -> server())));
+    }
+
+    @Test
+    void theSignedInUserIsTheReaderOutsideReadAs() {
+        readYourWrites.recordWrite(1L);
+        SecurityContextHolder.getContext().setAuthentication(
+                new UsernamePasswordAuthenticationToken("1", null, List.of()));
+
+        assertEquals("primary", readOnly.execute(status -> server()));
+
+        SecurityContextHolder.getContext().setAuthentication(
+                new UsernamePasswordAuthenticationToken("2", null, List.of()));
+        assertEquals("replica", readOnly.execute(status -> server()));
+    }
+
+    @Test
+    void withoutAReplicaEveryReadGoesToThePrimary() {
+        DataSource primaryOnly = new DataSourceConfig().dataSource(primary,
+                new StaticListableBeanFactory().getBeanProvider(DataSource.class), readYourWrites);
+        TransactionTemplate transaction = new TransactionTemplate(new DataSourceTransactionManager(primaryOnly));
+        transaction.setReadOnly(true);
+
+        assertEquals("primary", transaction.execute(status ->
+                new JdbcTemplate(primaryOnly).queryForObject("SELECT name FROM server", String.class)));
+    }
+
+    private String server() {
+        return jdbcTemplate.queryForObject("SELECT name FROM server", String.class);
+    }
+
+    // Each database names itself, so a query shows which one it reached
+    private static EmbeddedDatabase database(String name) {
+        EmbeddedDatabase database = new EmbeddedDatabaseBuilder()
+                .setType(EmbeddedDatabaseType.H2)
+                .setName(name + "-" + UUID.randomUUID())
+                .build();
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(database);
+        jdbcTemplate.execute("CREATE TABLE server (name VARCHAR(16))");
+        jdbcTemplate.update("INSERT INTO server (name) VALUES (?)", name);
+        return database;
+    }
+}
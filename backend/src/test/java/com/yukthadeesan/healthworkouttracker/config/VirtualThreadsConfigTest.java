@@ -0,0 +1,15 @@
+package com.yukthadeesan.healthworkouttracker.config;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class VirtualThreadsConfigTest {
+
+    @Test
+    void virtualThreadsNeedJava21() {
+        assertThrows(IllegalStateException.class, () -> VirtualThreadsConfig.requireVirtualThreads(17));
+        assertDoesNotThrow(() -> VirtualThreadsConfig.requireVirtualThreads(21));
+    }
+}
@@ -0,0 +1,65 @@
+package com.yukthadeesan.healthworkouttracker.models;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.time.LocalDate;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class WorkoutBitmapTest {
+
+    private static final LocalDate DAY = LocalDate.of(2026, 10, 17);
+
+    @Test
+    void bitsAreLeastSignificantFirstAndTheHeaderIsBigEndian() {
+        // Days 0 (completed), 3 (not completed) and 9 (completed) of ten
+        WorkoutBitmap bitmap = new WorkoutBitmap(DAY, 10,
+                new byte[] {0b0000_1001, 0b0000_0010}, new byte[] {0b0000_0001, 0b0000_0010});
+
+        byte[] encoded = bitmap.encode();
+
+        ByteBuffer expected = ByteBuffer.allocate(10);
+        expected.putInt((int) DAY.toEpochDay()).putShort((short) 10)
+                .put((byte) 0b0000_1001).put((byte) 0b0000_0010)
+                .put((byte) 0b0000_0001).put((byte) 0b0000_0010);
+        assertArrayEquals(expected.array(), encoded);
+        assertEquals(Map.of(DAY, true, DAY.plusDays(3), false, DAY.plusDays(9), true), days(bitmap));
+    }
+
+    @Test
+    void decodingGivesBackTheEncodedBitmap() {
+        WorkoutBitmap bitmap = new WorkoutBitmap(DAY, 3, new byte[] {0b101}, new byte[] {0b100});
+
+        WorkoutBitmap decoded = WorkoutBitmap.decode(bitmap.encode());
+
+        assertEquals(DAY, decoded.startDate());
+        assertEquals(3, decoded.days());
+        assertArrayEquals(bitmap.recorded(), decoded.recorded());
+        assertArrayEquals(bitmap.completed(), decoded.completed());
+    }
+
+    @Test
+    void theDayCountIsUnsigned() {
+        int days = WorkoutBitmap.MAX_DAYS;
+        byte[] recorded = new byte[(days + 7) / 8];
+        byte[] completed = new byte[recorded.length];
+        int last = days - 1;
+        recorded[last >>> 3] |= (byte) (1 << (last & 7));
+        completed[last >>> 3] |= (byte) (1 << (last & 7));
+
+        WorkoutBitmap decoded = WorkoutBitmap.decode(new WorkoutBitmap(DAY, days, recorded, completed).encode());
+
+        assertEquals(days, decoded.days());
+        assertEquals(Map.of(DAY.plusDays(last), true), days(decoded));
+    }
+
+    private static Map<LocalDate, Boolean> days(WorkoutBitmap bitmap) {
+        Map<LocalDate, Boolean> days = new LinkedHashMap<>();
+        bitmap.forEachDay(days::put);
+        return days;
+    }
+}
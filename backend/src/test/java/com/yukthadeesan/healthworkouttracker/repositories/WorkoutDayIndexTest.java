@@ -0,0 +1,173 @@
+package com.yukthadeesan.healthworkouttracker.repositories;
+
+import com.yukthadeesan.healthworkouttracker.SqlStatementRecorder;
+import com.yukthadeesan.healthworkouttracker.models.User;
+import com.yukthadeesan.healthworkouttracker.models.WorkoutDayView;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.sql.Date;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.UUID;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Checks that the workout_days queries are served by the indexes from V2__workout_days_indexes.sql.
+ * The migration itself is MySQL only (PREPARE and session variables), so its CREATE INDEX statements
+ * are run against the H2 schema here; the unique (user_id, date) index comes from the entity mapping.
+ * Each query is captured as Hibernate sends it and EXPLAINed with its parameters bound.
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.NONE)
+@ActiveProfiles("test")
+@Import(SqlStatementRecorder.class)
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+class WorkoutDayIndexTest {
+
+    private static final LocalDate TODAY = LocalDate.of(2026, 10, 17);
+    private static final int USERS = 20;
+    private static final int DAYS = 1000;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private WorkoutDayRepository workoutDayRepository;
+
+    @Autowired
+    private WorkoutDayBatchRepository workoutDayBatchRepository;
+
+    private final List<Long> userIds = new ArrayList<>();
+    private final Map<Long, Map<LocalDate, Boolean>> histories = new LinkedHashMap<>();
+
+    @BeforeAll
+    void createIndexesAndSeed() throws IOException {
+        for (String statement : migrationIndexes()) {
+            jdbcTemplate.execute(statement.replaceFirst("(?i)^CREATE INDEX", "CREATE INDEX IF NOT EXISTS"));
+        }
+
+        Random random = new Random(42);
+        for (int i = 0; i < USERS; i++) {
+            Long userId = userRepository.save(new User("index-" + UUID.randomUUID(), "not-a-real-hash")).getId();
+            Map<LocalDate, Boolean> history = new LinkedHashMap<>();
+            for (int daysAgo = DAYS - 1; daysAgo >= 0; daysAgo--) {
+                history.put(TODAY.minusDays(daysAgo), random.nextInt(10) < 7);
+            }
+            workoutDayBatchRepository.upsert(userId, history);
+            userIds.add(userId);
+            histories.put(userId, history);
+        }
+        // Fresh statistics, so the planner costs the indexes against the seeded volume
+        jdbcTemplate.execute("ANALYZE");
+    }
+
+    @Test
+    void completedCountUsesTheCoveringIndex() {
+        Long userId = userIds.get(USERS / 2);
+        LocalDate startDate = TODAY.minusDays(90);
+
+        String sql = capture(() -> workoutDayRepository.countByUserIdAndCompletedAndDateBetween(
+                userId, true, startDate, TODAY));
+        assertPlanUses("idx_workout_days_user_completed_date",
+                sql, userId, true, Date.valueOf(startDate), Date.valueOf(TODAY));
+
+        assertEquals(expectedDays(userId, startDate, TODAY).values().stream().filter(c -> c).count(),
+                workoutDayRepository.countByUserIdAndCompletedAndDateBetween(userId, true, startDate, TODAY));
+    }
+
+    @Test
+    void streakQueryUsesTheCoveringIndex() {
+        Long userId = userIds.get(0);
+
+        String sql = capture(() -> workoutDayRepository.findCompletedDatesUpTo(userId, TODAY));
+        assertPlanUses("idx_workout_days_user_completed_date", sql, userId, Date.valueOf(TODAY));
+
+        String windowSql = capture(() ->
+                workoutDayRepository.findCompletedDatesBetween(userId, TODAY.minusDays(30), TODAY));
+        assertPlanUses("idx_workout_days_user_completed_date", windowSql, userId, Date.valueOf(TODAY.minusDays(30)),
+                Date.valueOf(TODAY));
+    }
+
+    @Test
+    void dateRangeUsesAnIndexOnUserAndDate() {
+        Long userId = userIds.get(USERS - 1);
+        LocalDate startDate = TODAY.minusDays(6);
+
+        String sql = capture(() -> workoutDayRepository.findByUserIdAndDateBetween(userId, startDate, TODAY));
+        String plan = explain(sql, userId, Date.valueOf(startDate), Date.valueOf(TODAY));
+        assertTrue(plan.contains("uk_workout_days_user_date") || plan.contains("idx_workout_days_user_completed_date"),
+                () -> "Expected an index on (user_id, date):\n" + plan);
+
+        Map<LocalDate, Boolean> actual = workoutDayRepository.findByUserIdAndDateBetween(userId, startDate, TODAY)
+                .stream()
+                .collect(Collectors.toMap(WorkoutDayView::date, WorkoutDayView::completed));
+        assertEquals(expectedDays(userId, startDate, TODAY), actual);
+    }
+
+    @Test
+    void singleDayLookupUsesTheUniqueIndex() {
+        Long userId = userIds.get(1);
+
+        String sql = capture(() -> workoutDayRepository.findByUserIdAndDate(userId, TODAY));
+        assertPlanUses("uk_workout_days_user_date", sql, userId, Date.valueOf(TODAY));
+    }
+
+    private static List<String> migrationIndexes() throws IOException {
+        String migration = new ClassPathResource("db/migration/V2__workout_days_indexes.sql")
+                .getContentAsString(StandardCharsets.UTF_8);
+        List<String> statements = Arrays.stream(migration.split(";"))
+                .map(statement -> statement.lines()
+                        .filter(line -> !line.trim().startsWith("--"))
+                        .collect(Collectors.joining(" "))
+                        .trim())
+                .filter(statement -> statement.toUpperCase().startsWith("CREATE INDEX"))
+                .toList();
+        assertTrue(!statements.isEmpty(), "V2 has no CREATE INDEX statements");
+        return statements;
+    }
+
+    private Map<LocalDate, Boolean> expectedDays(Long userId, LocalDate startDate, LocalDate endDate) {
+        return histories.get(userId).entrySet().stream()
+                .filter(day -> !day.getKey().isBefore(startDate) && !day.getKey().isAfter(endDate))
+                .collect(Collectors.toMap(Map.Entry::getKey, Map.Entry::getValue));
+    }
+
+    private static String capture(Supplier<?> query) {
+        SqlStatementRecorder.start();
+        query.get();
+        List<String> statements = SqlStatementRecorder.stop();
+        assertEquals(1, statements.size(), () -> "Expected a single statement: " + statements);
+        return statements.get(0);
+    }
+
+    private String explain(String sql, Object... parameters) {
+        return String.join("\n", jdbcTemplate.queryForList("EXPLAIN " + sql, String.class, parameters))
+                .toLowerCase();
+    }
+
+    private void assertPlanUses(String index, String sql, Object... parameters) {
+        String plan = explain(sql, parameters);
+        assertTrue(plan.contains(index), () -> "Expected " + index + " in the plan:\n" + plan);
+    }
+}
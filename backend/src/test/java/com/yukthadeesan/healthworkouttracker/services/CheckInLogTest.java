@@ -0,0 +1,103 @@
+package com.yukthadeesan.healthworkouttracker.services;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class CheckInLogTest {
+
+    private static final LocalDate DAY = LocalDate.of(2026, 10, 17);
+
+    @TempDir
+    private Path directory;
+
+    @Test
+    void acknowledgedCheckInsAreReplayedAfterACrash() throws IOException {
+        CheckInLog crashed = new CheckInLog(directory);
+        CompletableFuture.allOf(
+                crashed.append(1L, DAY, true),
+                crashed.append(2L, DAY, false),
+                crashed.append(1L, DAY.plusDays(1), true)).join();
+        // Never closed, like a process that was killed
+
+        CheckInLog restarted = new CheckInLog(directory);
+
+        assertEquals(List.of(
+                new CheckInLog.CheckIn(1L, DAY, true),
+                new CheckInLog.CheckIn(2L, DAY, false),
+                new CheckInLog.CheckIn(1L, DAY.plusDays(1), true)
+        ), restarted.recover());
+        restarted.close();
+    }
+
+    @Test
+    void aRecordTornByTheCrashIsIgnored() throws IOException {
+        CheckInLog crashed = new CheckInLog(directory);
+        crashed.append(1L, DAY, true).join();
+        // Half a record: the process died while writing it
+        Files.write(onlySegment(), new byte[12], StandardOpenOption.APPEND);
+
+        CheckInLog restarted = new CheckInLog(directory);
+
+        assertEquals(List.of(new CheckInLog.CheckIn(1L, DAY, true)), restarted.recover());
+        restarted.close();
+    }
+
+    @Test
+    void aCheckInFlushedAndThenOverwrittenIsNotReplayed() throws IOException {
+        CheckInLog crashed = new CheckInLog(directory);
+        crashed.append(1L, DAY, true).join();
+        crashed.append(2L, DAY, true).join();
+        // User 1's check-in reached the database, and was then changed there without the log
+        crashed.markFlushed(1L, crashed.lastSequence()).join();
+        crashed.append(1L, DAY.plusDays(1), false).join();
+
+        CheckInLog restarted = new CheckInLog(directory);
+
+        assertEquals(List.of(
+                new CheckInLog.CheckIn(2L, DAY, true),
+                new CheckInLog.CheckIn(1L, DAY.plusDays(1), false)
+        ), restarted.recover());
+        // Sequence numbers continue, so a new marker covers the replayed check-ins
+        restarted.append(1L, DAY, false).join();
+        restarted.markFlushed(1L, restarted.lastSequence()).join();
+        restarted.markFlushed(2L, restarted.lastSequence()).join();
+        restarted.close();
+        CheckInLog again = new CheckInLog(directory);
+        assertEquals(List.of(), again.recover());
+        again.close();
+    }
+
+    @Test
+    void deletedSegmentsAreNotReplayed() throws IOException {
+        CheckInLog checkInLog = new CheckInLog(directory);
+        checkInLog.append(1L, DAY, true).join();
+        List<Path> flushed = checkInLog.rotate();
+        checkInLog.append(1L, DAY.plusDays(1), true).join();
+        checkInLog.delete(flushed);
+        checkInLog.close();
+
+        CheckInLog restarted = new CheckInLog(directory);
+
+        assertEquals(List.of(new CheckInLog.CheckIn(1L, DAY.plusDays(1), true)), restarted.recover());
+        restarted.close();
+    }
+
+    private Path onlySegment() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.reduce((a, b) -> {
+                throw new IllegalStateException("More than one segment");
+            }).orElseThrow();
+        }
+    }
+}
@@ -0,0 +1,52 @@
+package com.yukthadeesan.healthworkouttracker.services;
+
+import com.yukthadeesan.healthworkouttracker.models.User;
+import com.yukthadeesan.healthworkouttracker.models.WorkoutDayView;
+import com.yukthadeesan.healthworkouttracker.repositories.UserRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.NONE)
+@ActiveProfiles("test")
+class DashboardServiceTest {
+
+    @Autowired
+    private DashboardService dashboardService;
+
+    @Autowired
+    private WorkoutTrackingService workoutTrackingService;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private UserClock userClock;
+
+    @Test
+    void theDashboardHasTheStatsOfStatsAndTheDaysOfWeekAndMonth() {
+        Long userId = userRepository.save(new User("dashboard-" + UUID.randomUUID(), "not-a-real-hash")).getId();
+        UserClock.Today today = userClock.today(userId);
+        workoutTrackingService.recordWorkout(userId, today.date().minusDays(1), true);
+        workoutTrackingService.recordWorkout(userId, today.date(), true);
+        workoutTrackingService.recordWorkout(userId, today.date().minusDays(40), true);
+
+        DashboardService.Dashboard dashboard = dashboardService.getDashboard(userId);
+
+        assertEquals(workoutTrackingService.getCurrentMonthStats(userId), dashboard.stats());
+        assertEquals(dates(workoutTrackingService.getWeekWorkouts(userId, today.weekStart())), dates(dashboard.week()));
+        assertEquals(dates(workoutTrackingService.getCurrentMonthWorkouts(userId)), dates(dashboard.month()));
+        assertEquals(List.of("stats", "range", "total"), List.copyOf(dashboard.timings().keySet()));
+    }
+
+    private static List<LocalDate> dates(List<WorkoutDayView> days) {
+        return days.stream().map(WorkoutDayView::date).toList();
+    }
+}
@@ -0,0 +1,91 @@
+package com.yukthadeesan.healthworkouttracker.services;
+
+import com.yukthadeesan.healthworkouttracker.models.User;
+import com.yukthadeesan.healthworkouttracker.repositories.UserRepository;
+import com.yukthadeesan.healthworkouttracker.repositories.WorkoutDayBatchRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.time.LocalDate;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assertions.fail;
+
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.NONE)
+@ActiveProfiles("test")
+class LeaderboardServiceTest {
+
+    @Autowired
+    private LeaderboardService leaderboardService;
+
+    @Autowired
+    private WorkoutTrackingService workoutTrackingService;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private WorkoutDayBatchRepository workoutDayBatchRepository;
+
+    @Autowired
+    private UserClock userClock;
+
+    @Test
+    void rebuildScoresUsersWhoseRollupsAreNotBuiltYet() {
+        Long userId = seedUser();
+        LocalDate today = userClock.today(userId).date();
+        // Written without the rollups, like history from before they existed
+        workoutDayBatchRepository.upsert(userId, Map.of(today.minusDays(1), true, today, true));
+
+        leaderboardService.rebuild();
+
+        assertEquals(2.0, value(LeaderboardService.Metric.CURRENT_STREAK, userId));
+    }
+
+    @Test
+    void aWriteReScoresTheUserInTheBackground() throws InterruptedException {
+        Long userId = seedUser();
+        LocalDate today = userClock.today(userId).date();
+        workoutTrackingService.recordWorkout(userId, today.minusDays(1), true);
+        leaderboardService.rebuild();
+        assertEquals(0.0, value(LeaderboardService.Metric.CURRENT_STREAK, userId));
+
+        workoutTrackingService.recordWorkout(userId, today, true);
+
+        awaitValue(LeaderboardService.Metric.CURRENT_STREAK, userId, 2.0);
+        double expectedRate = Math.floor(2 * 10_000.0 / today.getDayOfMonth()) / 100;
+        if (today.getDayOfMonth() == 1) {
+            // Yesterday was last month
+            expectedRate = 100.0;
+        }
+        // Each metric's index is updated on its own, so the rate may land just after the streak
+        awaitValue(LeaderboardService.Metric.MONTHLY_COMPLETION_RATE, userId, expectedRate);
+    }
+
+    private void awaitValue(LeaderboardService.Metric metric, Long userId, double expected) throws InterruptedException {
+        long deadline = System.nanoTime() + 5_000_000_000L;
+        while (System.nanoTime() < deadline) {
+            if (value(metric, userId) == expected) {
+                return;
+            }
+            Thread.sleep(20);
+        }
+        fail(metric + " of user " + userId + " is " + value(metric, userId) + ", expected " + expected);
+    }
+
+    private double value(LeaderboardService.Metric metric, Long userId) {
+        Optional<LeaderboardService.Entry> entry = leaderboardService.getRank(metric, userId);
+        assertTrue(entry.isPresent(), "user " + userId + " is not ranked");
+        return entry.get().value();
+    }
+
+    private Long seedUser() {
+        return userRepository.save(new User("leaderboard-" + UUID.randomUUID(), "not-a-real-hash")).getId();
+    }
+}
@@ -0,0 +1,70 @@
+package com.yukthadeesan.healthworkouttracker.services;
+
+import com.yukthadeesan.healthworkouttracker.models.User;
+import com.yukthadeesan.healthworkouttracker.models.WorkoutDayView;
+import com.yukthadeesan.healthworkouttracker.repositories.UserRepository;
+import com.yukthadeesan.healthworkouttracker.repositories.WorkoutDayBatchRepository;
+import com.yukthadeesan.healthworkouttracker.repositories.WorkoutVersionRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.SpyBean;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.NONE,
+        properties = "workout.live.version-poll-interval=100ms")
+@ActiveProfiles("test")
+class LiveStatsBroadcasterTest {
+
+    private static final LocalDate DAY = LocalDate.of(2026, 10, 17);
+
+    @Autowired
+    private LiveStatsBroadcaster broadcaster;
+
+    @Autowired
+    private WorkoutCalendarCache calendarCache;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private WorkoutDayBatchRepository workoutDayBatchRepository;
+
+    @Autowired
+    private WorkoutVersionRepository versionRepository;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @SpyBean
+    private DashboardService dashboardService;
+
+    @Test
+    void aWriteMadeThroughAnotherNodeIsPushed() {
+        Long userId = userRepository.save(new User("live-" + UUID.randomUUID(), "not-a-real-hash")).getId();
+        broadcaster.subscribe(userId);
+        verify(dashboardService, timeout(5000).times(1)).getDashboard(userId);
+        // The first event may still be loading: make sure the calendar is cached before the write
+        calendarCache.getCalendar(userId);
+
+        // What another node's write leaves behind: the row and a new stored version, and nothing in this node's cache
+        transactionTemplate.executeWithoutResult(status -> {
+            workoutDayBatchRepository.upsert(userId, Map.of(DAY, true));
+            versionRepository.increment(userId);
+        });
+
+        verify(dashboardService, timeout(5000).times(2)).getDashboard(userId);
+        assertEquals(List.of(DAY), calendarCache.getDays(userId, DAY, DAY).stream().map(WorkoutDayView::date).toList());
+    }
+}
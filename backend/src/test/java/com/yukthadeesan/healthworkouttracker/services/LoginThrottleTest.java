@@ -0,0 +1,51 @@
+package com.yukthadeesan.healthworkouttracker.services;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class LoginThrottleTest {
+
+    @Test
+    void aUsernameGetsItsBurstAndThenWaitsForTheSustainedRate() {
+        LoginThrottle throttle = new LoginThrottle(new SimpleMeterRegistry(), 10, 5, 1_000, 1_000, 10, 3, 1_000);
+
+        for (int attempt = 0; attempt < 5; attempt++) {
+            assertEquals(0, throttle.tryAcquire("Alice", "10.0.0." + attempt));
+        }
+        long retryAfterMillis = throttle.tryAcquire("alice", "10.0.0.9");
+
+        // One attempt every 6 s at 10 per minute; usernames are case-insensitive
+        assertTrue(retryAfterMillis > 5_000 && retryAfterMillis <= 6_001, "retry after " + retryAfterMillis);
+        assertEquals(0, throttle.tryAcquire("bob", "10.0.0.9"));
+    }
+
+    @Test
+    void anAddressIsLimitedAcrossUsernames() {
+        LoginThrottle throttle = new LoginThrottle(new SimpleMeterRegistry(), 1_000, 1_000, 60, 2, 10, 3, 1_000);
+
+        assertEquals(0, throttle.tryAcquire("alice", "10.0.0.1"));
+        assertEquals(0, throttle.tryAcquire("bob", "10.0.0.1"));
+
+        assertTrue(throttle.tryAcquire("carol", "10.0.0.1") > 0);
+        assertEquals(0, throttle.tryAcquire("carol", "10.0.0.2"));
+    }
+
+    @Test
+    void registrationsHaveTheirOwnPerAddressLimitWhichZeroTurnsOff() {
+        LoginThrottle throttle = new LoginThrottle(new SimpleMeterRegistry(), 10, 5, 60, 20, 10, 3, 1_000);
+        for (int registration = 0; registration < 3; registration++) {
+            assertEquals(0, throttle.tryAcquireRegistration("10.0.0.1"));
+        }
+        assertTrue(throttle.tryAcquireRegistration("10.0.0.1") > 0);
+        // Logins from the address are counted separately
+        assertEquals(0, throttle.tryAcquire("alice", "10.0.0.1"));
+
+        LoginThrottle unlimited = new LoginThrottle(new SimpleMeterRegistry(), 10, 5, 60, 20, 0, 3, 1_000);
+        for (int registration = 0; registration < 100; registration++) {
+            assertEquals(0, unlimited.tryAcquireRegistration("10.0.0.1"));
+        }
+    }
+}
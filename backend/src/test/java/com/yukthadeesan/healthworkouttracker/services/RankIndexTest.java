@@ -0,0 +1,99 @@
+package com.yukthadeesan.healthworkouttracker.services;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.OptionalLong;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class RankIndexTest {
+
+    @Test
+    void tiedUsersShareARankAndZeroScoresAreRankedButNotListed() {
+        RankIndex index = new RankIndex(100);
+        index.put(1, 5);
+        index.put(2, 9);
+        index.put(3, 5);
+        index.put(4, 0);
+        index.put(5, 1);
+
+        assertEquals(List.of(
+                new RankIndex.Ranked(1, 2, 9),
+                new RankIndex.Ranked(2, 1, 5),
+                new RankIndex.Ranked(2, 3, 5),
+                new RankIndex.Ranked(4, 5, 1)
+        ), index.page(0, 10));
+        assertEquals(List.of(new RankIndex.Ranked(2, 3, 5), new RankIndex.Ranked(4, 5, 1)), index.page(2, 2));
+        assertEquals(OptionalLong.of(5), index.rank(4));
+        assertEquals(5, index.size());
+    }
+
+    @Test
+    void scoresAreClampedAndUsersCanBeMovedAndRemoved() {
+        RankIndex index = new RankIndex(10);
+        index.put(1, 50);
+        index.put(2, -3);
+        index.put(3, 4);
+
+        index.put(3, 10);
+        index.remove(1);
+
+        assertEquals(List.of(new RankIndex.Ranked(1, 3, 10)), index.page(0, 10));
+        assertEquals(Integer.valueOf(0), index.score(2));
+        assertNull(index.score(1));
+        assertEquals(OptionalLong.empty(), index.rank(1));
+        assertEquals(List.of(), index.page(1, 10));
+    }
+
+    @Test
+    void pagesMatchASortedListWhenMostUsersShareAScore() {
+        Random random = new Random(42);
+        RankIndex index = new RankIndex(20);
+        Map<Long, Integer> scores = new HashMap<>();
+        for (int step = 0; step < 20_000; step++) {
+            long userId = random.nextInt(5_000);
+            if (random.nextInt(10) == 0) {
+                index.remove(userId);
+                scores.remove(userId);
+            } else {
+                // Mostly a streak of 1, as on a real leaderboard
+                int score = random.nextInt(4) == 0 ? random.nextInt(21) : 1;
+                index.put(userId, score);
+                scores.put(userId, score);
+            }
+        }
+
+        List<RankIndex.Ranked> expected = expectedRanking(scores);
+        assertEquals(scores.size(), index.size());
+        for (int offset : new int[] {0, 1, 17, 1_000, expected.size() - 3, expected.size()}) {
+            int to = Math.min(offset + 25, expected.size());
+            assertEquals(expected.subList(offset, to), index.page(offset, 25), "page at " + offset);
+        }
+        for (RankIndex.Ranked entry : expected.subList(0, 100)) {
+            assertEquals(OptionalLong.of(entry.rank()), index.rank(entry.userId()));
+        }
+    }
+
+    private static List<RankIndex.Ranked> expectedRanking(Map<Long, Integer> scores) {
+        List<Map.Entry<Long, Integer>> sorted = new ArrayList<>(scores.entrySet());
+        sorted.removeIf(entry -> entry.getValue() == 0);
+        sorted.sort(Map.Entry.<Long, Integer>comparingByValue(Comparator.reverseOrder())
+                .thenComparing(Map.Entry.comparingByKey()));
+        List<RankIndex.Ranked> ranked = new ArrayList<>(sorted.size());
+        for (int index = 0; index < sorted.size(); index++) {
+            Map.Entry<Long, Integer> entry = sorted.get(index);
+            long rank = index > 0 && sorted.get(index - 1).getValue().equals(entry.getValue())
+                    ? ranked.get(index - 1).rank()
+                    : index + 1;
+            ranked.add(new RankIndex.Ranked(rank, entry.getKey(), entry.getValue()));
+        }
+        return ranked;
+    }
+}
@@ -0,0 +1,94 @@
+package com.yukthadeesan.healthworkouttracker.services;
+
+import com.yukthadeesan.healthworkouttracker.SqlStatementRecorder;
+import com.yukthadeesan.healthworkouttracker.models.User;
+import com.yukthadeesan.healthworkouttracker.repositories.UserRepository;
+import com.yukthadeesan.healthworkouttracker.repositories.WorkoutDayBatchRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.time.LocalDate;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.NONE)
+@ActiveProfiles("test")
+@Import(SqlStatementRecorder.class)
+class StreakServiceTest {
+
+    private static final LocalDate TODAY = LocalDate.of(2026, 10, 17);
+
+    @Autowired
+    private StreakService streakService;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private WorkoutDayBatchRepository workoutDayBatchRepository;
+
+    @Test
+    void computeStreaksIssuesTheSameQueriesWhateverTheStreakLength() {
+        // 30 completed days, and 1100 days with a single missed day 50 days ago
+        Long shortHistory = seedUser(30, -1);
+        Long longHistory = seedUser(1100, 50);
+
+        SqlStatementRecorder.start();
+        StreakService.Streaks shortStreaks = streakService.computeStreaks(shortHistory, TODAY, 30);
+        List<String> shortStatements = SqlStatementRecorder.stop();
+
+        SqlStatementRecorder.start();
+        StreakService.Streaks longStreaks = streakService.computeStreaks(longHistory, TODAY, 1049);
+        List<String> longStatements = SqlStatementRecorder.stop();
+
+        assertEquals(new StreakService.Streaks(30, 30), shortStreaks);
+        assertEquals(new StreakService.Streaks(50, 1049), longStreaks);
+
+        // One workout_days query plus the archive lookup, however long the history
+        assertTrue(shortStatements.size() <= 2, () -> "Expected at most 2 statements: " + shortStatements);
+        assertEquals(shortStatements.size(), longStatements.size(), () -> "Query count grew with history length: "
+                + shortStatements + " vs " + longStatements);
+    }
+
+    @Test
+    void computeStreaksOnlyReadsAsFarBackAsTheLongestStreak() {
+        // A missed day 10 days ago; the days before it can't be part of the current streak
+        Long userId = seedUser(400, 10);
+
+        assertEquals(new StreakService.Streaks(10, 389), streakService.computeStreaks(userId, TODAY, 389));
+        assertEquals(List.of(TODAY, TODAY.minusDays(1), TODAY.minusDays(2)),
+                streakService.findCompletedDates(userId, TODAY.minusDays(2), TODAY));
+    }
+
+    @Test
+    void calculateOnlyCountsARunEndingTodayAsCurrent() {
+        List<LocalDate> completed = List.of(TODAY.minusDays(1), TODAY.minusDays(2), TODAY.minusDays(5));
+
+        assertEquals(new StreakService.Streaks(0, 2), StreakService.calculate(completed, TODAY));
+        assertEquals(new StreakService.Streaks(0, 0), StreakService.calculate(List.of(), TODAY));
+    }
+
+    /**
+     * Seeds a user with a day for each of the last days, all completed except one
+     * @param days how many days back from TODAY (inclusive) to record
+     * @param missedDaysAgo the one day recorded as not completed, -1 for none
+     * @return the user's ID
+     */
+    private Long seedUser(int days, int missedDaysAgo) {
+        User user = userRepository.save(new User("streak-" + UUID.randomUUID(), "not-a-real-hash"));
+        Map<LocalDate, Boolean> history = new LinkedHashMap<>();
+        for (int daysAgo = days - 1; daysAgo >= 0; daysAgo--) {
+            history.put(TODAY.minusDays(daysAgo), daysAgo != missedDaysAgo);
+        }
+        workoutDayBatchRepository.upsert(user.getId(), history);
+        return user.getId();
+    }
+}
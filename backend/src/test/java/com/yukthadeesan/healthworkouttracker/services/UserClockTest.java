@@ -0,0 +1,121 @@
+package com.yukthadeesan.healthworkouttracker.services;
+
+import com.yukthadeesan.healthworkouttracker.repositories.UserRepository;
+import org.junit.jupiter.api.Test;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class UserClockTest {
+
+    private static final ZoneId AUCKLAND = ZoneId.of("Pacific/Auckland");
+    private static final ZoneId LOS_ANGELES = ZoneId.of("America/Los_Angeles");
+
+    private final MutableClock clock = new MutableClock(Instant.parse("2026-03-31T23:30:00Z"));
+    private final UserRepository userRepository = mock(UserRepository.class);
+    private final UserClock userClock = new UserClock(clock, userRepository, "UTC",
+            Duration.ofMinutes(1), 1_000, Duration.ofMinutes(5));
+
+    @Test
+    void eachZoneHasItsOwnDayWeekAndMonth() {
+        UserClock.Today utc = userClock.today(ZoneOffset.UTC);
+        UserClock.Today auckland = userClock.today(AUCKLAND);
+
+        assertEquals(LocalDate.of(2026, 3, 31), utc.date());
+        assertEquals(LocalDate.of(2026, 3, 29), utc.weekStart());
+        assertEquals(LocalDate.of(2026, 3, 1), utc.monthStart());
+        assertEquals(LocalDate.of(2026, 3, 31), utc.monthEnd());
+        // Auckland is already in April
+        assertEquals(LocalDate.of(2026, 4, 1), auckland.date());
+        assertEquals(LocalDate.of(2026, 4, 1), auckland.monthStart());
+        assertEquals(LocalDate.of(2026, 4, 30), auckland.monthEnd());
+    }
+
+    @Test
+    void theCachedDayRollsOverAtTheZonesMidnight() {
+        UserClock.Today before = userClock.today(LOS_ANGELES);
+        clock.advance(Duration.ofMinutes(29));
+        assertEquals(before, userClock.today(LOS_ANGELES));
+
+        // Midnight in UTC is still the afternoon in Los Angeles
+        clock.advance(Duration.ofMinutes(1));
+        assertEquals(before, userClock.today(LOS_ANGELES));
+
+        clock.advance(Duration.ofHours(7));
+        UserClock.Today after = userClock.today(LOS_ANGELES);
+        assertEquals(before.date().plusDays(1), after.date());
+        assertEquals(before.endMillis(), after.startMillis());
+    }
+
+    @Test
+    void usersZonesAreLoadedOnceAndReplacedWhenTheyChange() {
+        when(userRepository.findTimeZoneById(1L)).thenReturn(Optional.of("Pacific/Auckland"));
+        when(userRepository.findTimeZoneById(2L)).thenReturn(Optional.empty());
+
+        assertEquals(LocalDate.of(2026, 4, 1), userClock.today(1L).date());
+        assertEquals(LocalDate.of(2026, 4, 1), userClock.today(1L).date());
+        // Users without a zone are on the default zone
+        assertEquals(LocalDate.of(2026, 3, 31), userClock.today(2L).date());
+        verify(userRepository, times(1)).findTimeZoneById(1L);
+
+        userClock.setZone(1L, "America/Los_Angeles");
+        assertEquals(LOS_ANGELES, userClock.getZone(1L));
+        assertEquals(LocalDate.of(2026, 3, 31), userClock.today(1L).date());
+        verify(userRepository, times(1)).findTimeZoneById(1L);
+    }
+
+    private static class MutableClock extends Clock {
+
+        private Instant now;
+
+        MutableClock(Instant now) {
+            this.now = now;
+        }
+
+        void advance(Duration duration) {
+            now = now.plus(duration);
+        }
+
+        @Override
+        public ZoneId getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            MutableClock parent = this;
+            return new Clock() {
+                @Override
+                public ZoneId getZone() {
+                    return zone;
+                }
+
+                @Override
+                public Clock withZone(ZoneId other) {
+                    return parent.withZone(other);
+                }
+
+                @Override
+                public Instant instant() {
+                    return parent.instant();
+                }
+            };
+        }
+
+        @Override
+        public Instant instant() {
+            return now;
+        }
+    }
+}
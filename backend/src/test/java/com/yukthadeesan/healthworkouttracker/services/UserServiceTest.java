@@ -0,0 +1,78 @@
+package com.yukthadeesan.healthworkouttracker.services;
+
+import com.yukthadeesan.healthworkouttracker.models.User;
+import com.yukthadeesan.healthworkouttracker.repositories.UserRepository;
+import jakarta.persistence.Cache;
+import jakarta.persistence.EntityManagerFactory;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.SpyBean;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.util.UUID;
+import java.util.concurrent.CompletionException;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doReturn;
+
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.NONE)
+@ActiveProfiles("test")
+class UserServiceTest {
+
+    @Autowired
+    private UserService userService;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @SpyBean
+    private UsernameIndex usernameIndex;
+
+    @Test
+    void aNameTakenSinceTheIndexWasCheckedIsReportedAsTaken() {
+        String username = "user-" + UUID.randomUUID();
+        assertNotNull(userService.registerUser(new User(username, "password-1")).join().getId());
+        // As if the other registration happened on another node since this one's last refresh
+        doReturn(false).when(usernameIndex).isTaken(anyString());
+
+        CompletionException e = assertThrows(CompletionException.class,
+                () -> userService.registerUser(new User(username, "password-2")).join());
+
+        assertEquals("Username already exists", e.getCause().getMessage());
+    }
+
+    @Test
+    void otherConstraintViolationsAreNotReportedAsATakenName() {
+        CompletionException e = assertThrows(CompletionException.class,
+                () -> userService.registerUser(new User("x".repeat(300), "password-1")).join());
+
+        assertInstanceOf(DataIntegrityViolationException.class, e.getCause());
+    }
+
+    @Test
+    void settingATimeZoneInvalidatesOnlyThatUsersCacheEntry() {
+        Long userId = userService.registerUser(new User("user-" + UUID.randomUUID(), "password-1")).join().getId();
+        Long otherUserId = userService.registerUser(new User("user-" + UUID.randomUUID(), "password-1")).join().getId();
+        userRepository.findById(userId);
+        userRepository.findById(otherUserId);
+        Cache cache = entityManagerFactory.getCache();
+        assertTrue(cache.contains(User.class, otherUserId));
+
+        assertTrue(userService.setTimeZone(userId, "Europe/Berlin"));
+
+        assertTrue(cache.contains(User.class, otherUserId));
+        assertEquals("Europe/Berlin", userRepository.findById(userId).orElseThrow().getTimeZone());
+        assertFalse(userService.setTimeZone(-1L, "Europe/Berlin"));
+    }
+}
@@ -0,0 +1,96 @@
+package com.yukthadeesan.healthworkouttracker.services;
+
+import com.yukthadeesan.healthworkouttracker.models.User;
+import com.yukthadeesan.healthworkouttracker.models.WorkoutDayView;
+import com.yukthadeesan.healthworkouttracker.repositories.UserRepository;
+import com.yukthadeesan.healthworkouttracker.repositories.WorkoutDayBatchRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.NONE)
+@ActiveProfiles("test")
+class WorkoutArchiveServiceTest {
+
+    private static final LocalDate JAN_1 = LocalDate.of(2020, 1, 1);
+
+    @Autowired
+    private WorkoutArchiveService archiveService;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private WorkoutDayBatchRepository workoutDayBatchRepository;
+
+    @Test
+    void rowsWrittenAfterArchivalTakePrecedenceOverArchivedDays() {
+        Long userId = seedArchivedUser();
+        // Written after archival: day 2 is now missed, day 4 is new
+        List<WorkoutDayView> hot = List.of(
+                new WorkoutDayView(JAN_1.plusDays(1), false),
+                new WorkoutDayView(JAN_1.plusDays(3), true));
+        workoutDayBatchRepository.upsert(userId, Map.of(JAN_1.plusDays(1), false, JAN_1.plusDays(3), true));
+
+        List<WorkoutDayView> days = new ArrayList<>();
+        archiveService.forEachDay(userId, action -> hot.forEach(action), days::add);
+        assertEquals(List.of(
+                new WorkoutDayView(JAN_1, true),
+                new WorkoutDayView(JAN_1.plusDays(1), false),
+                new WorkoutDayView(JAN_1.plusDays(2), false),
+                new WorkoutDayView(JAN_1.plusDays(3), true)), days);
+
+        assertEquals(List.of(JAN_1.plusDays(3), JAN_1),
+                archiveService.mergeCompletedDates(userId, List.of(JAN_1.plusDays(3))));
+
+        List<LocalDate> archivedCompleted = new ArrayList<>();
+        archiveService.forEachArchivedCompletedDate(List.of(userId), JAN_1, JAN_1.plusDays(9),
+                (id, date) -> archivedCompleted.add(date));
+        assertEquals(List.of(JAN_1), archivedCompleted);
+    }
+
+    @Test
+    void theNextArchivalRunFoldsNewerRowsIn() {
+        Long userId = seedArchivedUser();
+        workoutDayBatchRepository.upsert(userId, Map.of(JAN_1.plusDays(1), false, JAN_1.plusDays(3), true));
+
+        assertEquals(2, archiveService.archiveUsers(List.of(userId)));
+
+        assertEquals(Boolean.TRUE, archiveService.getArchivedDay(userId, JAN_1));
+        assertEquals(Boolean.FALSE, archiveService.getArchivedDay(userId, JAN_1.plusDays(1)));
+        assertEquals(Boolean.FALSE, archiveService.getArchivedDay(userId, JAN_1.plusDays(2)));
+        assertEquals(Boolean.TRUE, archiveService.getArchivedDay(userId, JAN_1.plusDays(3)));
+        assertNull(archiveService.getArchivedDay(userId, JAN_1.plusDays(4)));
+        assertEquals(List.of(JAN_1.plusDays(3), JAN_1), archiveService.mergeCompletedDates(userId, List.of()));
+    }
+
+    @Test
+    void removingAnArchivedDayLeavesTheRestOfTheYear() {
+        Long userId = seedArchivedUser();
+
+        assertEquals(Boolean.TRUE, archiveService.removeArchivedDay(userId, JAN_1.plusDays(1)));
+
+        assertNull(archiveService.getArchivedDay(userId, JAN_1.plusDays(1)));
+        assertNull(archiveService.removeArchivedDay(userId, JAN_1.plusDays(1)));
+        assertEquals(List.of(JAN_1), archiveService.mergeCompletedDates(userId, List.of()));
+    }
+
+    // A user whose first three days of 2020 (completed, completed, missed) are archived
+    private Long seedArchivedUser() {
+        Long userId = userRepository.save(new User("archive-" + UUID.randomUUID(), "not-a-real-hash")).getId();
+        workoutDayBatchRepository.upsert(userId,
+                Map.of(JAN_1, true, JAN_1.plusDays(1), true, JAN_1.plusDays(2), false));
+        assertEquals(3, archiveService.archiveUsers(List.of(userId)));
+        return userId;
+    }
+}
@@ -0,0 +1,82 @@
+package com.yukthadeesan.healthworkouttracker.services;
+
+import com.yukthadeesan.healthworkouttracker.models.User;
+import com.yukthadeesan.healthworkouttracker.models.WorkoutDayView;
+import com.yukthadeesan.healthworkouttracker.repositories.UserRepository;
+import com.yukthadeesan.healthworkouttracker.repositories.WorkoutDayBatchRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.SpyBean;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.NONE)
+@ActiveProfiles("test")
+class WorkoutCalendarCacheTest {
+
+    private static final LocalDate DAY = LocalDate.of(2026, 10, 17);
+
+    @Autowired
+    private WorkoutCalendarCache calendarCache;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private WorkoutDayBatchRepository workoutDayBatchRepository;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @SpyBean
+    private PendingWorkoutDays pendingDays;
+
+    @Test
+    void aWriteCommittedDuringALoadIsNotLost() {
+        Long userId = userRepository.save(new User("calendar-" + UUID.randomUUID(), "not-a-real-hash")).getId();
+        workoutDayBatchRepository.upsert(userId, Map.of(DAY.minusDays(1), true));
+
+        // The first load reads the days, then a write commits before it reads the pending check-ins.
+        // The write runs on the loading thread, which only works because loads don't hold the cache's locks.
+        AtomicBoolean writeDuringLoad = new AtomicBoolean(true);
+        doAnswer(invocation -> {
+            if (writeDuringLoad.getAndSet(false)) {
+                transactionTemplate.executeWithoutResult(status -> {
+                    workoutDayBatchRepository.upsert(userId, Map.of(DAY, true));
+                    calendarCache.recordDays(userId, Map.of(DAY, true));
+                });
+            }
+            return invocation.callRealMethod();
+        }).when(pendingDays).get(any());
+
+        WorkoutCalendar calendar = calendarCache.getCalendar(userId);
+
+        assertEquals(List.of(DAY.minusDays(1), DAY),
+                calendar.getDays(DAY.minusDays(1), DAY).stream().map(WorkoutDayView::date).toList());
+        assertSame(calendar, calendarCache.getCalendar(userId));
+    }
+
+    @Test
+    void aLoadAfterAnEvictionSeesTheNewRows() {
+        Long userId = userRepository.save(new User("calendar-" + UUID.randomUUID(), "not-a-real-hash")).getId();
+        assertEquals(List.of(), calendarCache.getCalendar(userId).getDays(DAY, DAY));
+
+        workoutDayBatchRepository.upsert(userId, Map.of(DAY, false));
+        calendarCache.evict(userId);
+
+        assertEquals(List.of(false),
+                calendarCache.getCalendar(userId).getDays(DAY, DAY).stream().map(WorkoutDayView::completed).toList());
+    }
+}
@@ -0,0 +1,81 @@
+package com.yukthadeesan.healthworkouttracker.services;
+
+import com.yukthadeesan.healthworkouttracker.models.WorkoutBitmap;
+import com.yukthadeesan.healthworkouttracker.models.WorkoutDayView;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class WorkoutCalendarTest {
+
+    private static final LocalDate DAY = LocalDate.of(2026, 10, 17);
+
+    @Test
+    void getDaysReturnsRowIdsAndNullForArchivedDays() {
+        WorkoutCalendar calendar = new WorkoutCalendar();
+        calendar.set(DAY.minusDays(400), true);
+        calendar.set(DAY, false, 12L);
+        // Out of order, so the ID has to be inserted in front of the existing one
+        calendar.set(DAY.minusDays(1), true, 11L);
+
+        assertEquals(List.of(
+                new WorkoutDayView(DAY.minusDays(400), true, null),
+                new WorkoutDayView(DAY.minusDays(1), true, 11L),
+                new WorkoutDayView(DAY, false, 12L)
+        ), calendar.getDays(DAY.minusDays(500), DAY));
+    }
+
+    @Test
+    void unresolvedIdsAreFilledInOnce() {
+        WorkoutCalendar calendar = new WorkoutCalendar();
+        calendar.set(DAY.minusDays(1), true, 11L);
+        calendar.set(DAY, true, null);
+
+        assertFalse(calendar.hasUnresolvedIds(DAY.minusDays(1), DAY.minusDays(1)));
+        assertTrue(calendar.hasUnresolvedIds(DAY.minusDays(1), DAY));
+        assertEquals(new WorkoutDayView(DAY, true, null), calendar.getDays(DAY, DAY).get(0));
+
+        // A stale ID read for a day whose ID is already known doesn't replace it
+        calendar.resolveIds(Map.of(DAY, 12L, DAY.minusDays(1), 99L));
+
+        assertFalse(calendar.hasUnresolvedIds(DAY.minusDays(1), DAY));
+        assertEquals(List.of(
+                new WorkoutDayView(DAY.minusDays(1), true, 11L),
+                new WorkoutDayView(DAY, true, 12L)
+        ), calendar.getDays(DAY.minusDays(1), DAY));
+    }
+
+    @Test
+    void clearingADayDropsItsId() {
+        WorkoutCalendar calendar = new WorkoutCalendar();
+        calendar.set(DAY, true, 12L);
+        calendar.clear(DAY);
+        calendar.set(DAY, true);
+
+        assertEquals(List.of(new WorkoutDayView(DAY, true, null)), calendar.getDays(DAY, DAY));
+    }
+
+    @Test
+    void aBitmapStartingMidByteHasTheRangesDaysOnly() {
+        WorkoutCalendar calendar = new WorkoutCalendar();
+        calendar.set(DAY.minusDays(20), true);
+        calendar.set(DAY.minusDays(3), true);
+        calendar.set(DAY.minusDays(2), false);
+        calendar.set(DAY, true);
+
+        WorkoutBitmap bitmap = calendar.getBitmap(DAY.minusDays(3), DAY.plusDays(10));
+
+        assertEquals(DAY.minusDays(3), bitmap.startDate());
+        assertEquals(14, bitmap.days());
+        Map<LocalDate, Boolean> days = new LinkedHashMap<>();
+        bitmap.forEachDay(days::put);
+        assertEquals(Map.of(DAY.minusDays(3), true, DAY.minusDays(2), false, DAY, true), days);
+    }
+}
@@ -0,0 +1,189 @@
+package com.yukthadeesan.healthworkouttracker.services;
+
+import com.yukthadeesan.healthworkouttracker.models.User;
+import com.yukthadeesan.healthworkouttracker.models.WorkoutDayView;
+import com.yukthadeesan.healthworkouttracker.models.WorkoutImportJob;
+import com.yukthadeesan.healthworkouttracker.models.WorkoutImportJob.Format;
+import com.yukthadeesan.healthworkouttracker.models.WorkoutImportJob.Status;
+import com.yukthadeesan.healthworkouttracker.repositories.UserRepository;
+import com.yukthadeesan.healthworkouttracker.repositories.WorkoutDayBatchRepository;
+import com.yukthadeesan.healthworkouttracker.repositories.WorkoutImportJobRepository;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.DefaultApplicationArguments;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.fail;
+
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.NONE)
+@ActiveProfiles("test")
+class WorkoutImportServiceTest {
+
+    private static final LocalDate JAN_1 = LocalDate.of(2026, 1, 1);
+
+    @Autowired
+    private WorkoutImportService importService;
+
+    @Autowired
+    private WorkoutImportJobRepository jobRepository;
+
+    @Autowired
+    private WorkoutTrackingService workoutTrackingService;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private WorkoutDayBatchRepository workoutDayBatchRepository;
+
+    @TempDir
+    private Path directory;
+
+    @Test
+    void csvLinesAreParsedAndBadLinesRejected() throws Exception {
+        Long userId = seedUser();
+        Path file = write("history.csv",
+                "date,completed",
+                "2026-01-01,true",
+                "\"2026-01-02\", \"no\"",
+                "",
+                "2026-01-03,1",
+                "2026-01-04",
+                "not-a-date,true",
+                "2026-01-05,maybe");
+
+        WorkoutImportJob job = importFile(userId, file);
+
+        assertEquals(Status.COMPLETED, job.getStatus());
+        assertEquals(8, job.getLinesRead());
+        assertEquals(3, job.getRowsImported());
+        assertEquals(3, job.getRowsRejected());
+        assertEquals("Line 6: expected 2 fields but found 1", job.getFirstError());
+        assertEquals(Map.of(JAN_1, true, JAN_1.plusDays(1), false, JAN_1.plusDays(2), true), days(userId));
+    }
+
+    @Test
+    void daysTheUserHasOrTheFileRepeatsAreSkipped() throws Exception {
+        Long userId = seedUser();
+        workoutDayBatchRepository.upsert(userId, Map.of(JAN_1, false));
+        Path file = write("history.ndjson",
+                "{\"date\":\"2026-01-01\",\"completed\":true}",
+                "{\"date\":\"2026-01-02\",\"completed\":true}",
+                "{\"date\":\"2026-01-02\",\"completed\":false}",
+                "{\"date\":\"2026-01-03\"}");
+
+        WorkoutImportJob job = importFile(userId, file);
+
+        assertEquals(1, job.getRowsImported());
+        assertEquals(2, job.getRowsSkipped());
+        assertEquals(1, job.getRowsRejected());
+        assertEquals("Line 4: completed is missing", job.getFirstError());
+        // The first value in the file wins, and existing days are never overwritten
+        assertEquals(Map.of(JAN_1, false, JAN_1.plusDays(1), true), days(userId));
+    }
+
+    @Test
+    void anInterruptedJobResumesAfterItsLastCommittedChunkOnItsOwnNodeOnly() throws Exception {
+        Long userId = seedUser();
+        Path file = write("history.csv", "date,completed", "2026-01-01,true", "2026-01-02,true",
+                "2026-01-03,false", "2026-01-04,true");
+        // The first chunk (header and two days) was committed before the crash
+        workoutDayBatchRepository.insertMissing(userId, Map.of(JAN_1, true, JAN_1.plusDays(1), true));
+        WorkoutImportJob interrupted = new WorkoutImportJob(userId, Format.CSV, file.toString(), false, null);
+        interrupted.setStatus(Status.RUNNING);
+        interrupted.setLinesRead(3L);
+        interrupted.setRowsImported(2L);
+        Long jobId = jobRepository.save(interrupted).getId();
+        WorkoutImportJob otherNodes = new WorkoutImportJob(userId, Format.CSV, file.toString(), false, "other-node");
+        otherNodes.setStatus(Status.RUNNING);
+        Long otherNodesJobId = jobRepository.save(otherNodes).getId();
+
+        importService.resumeInterruptedJobs();
+
+        WorkoutImportJob job = awaitFinished(jobId);
+        assertEquals(Status.COMPLETED, job.getStatus());
+        assertEquals(5, job.getLinesRead());
+        // Re-reading the committed lines would have counted them as skipped
+        assertEquals(4, job.getRowsImported());
+        assertEquals(0, job.getRowsSkipped());
+        assertEquals(Map.of(JAN_1, true, JAN_1.plusDays(1), true, JAN_1.plusDays(2), false, JAN_1.plusDays(3), true),
+                days(userId));
+        assertEquals(Status.RUNNING, jobRepository.findById(otherNodesJobId).orElseThrow().getStatus());
+    }
+
+    @Test
+    void aFailedJobIsResumedOnce() throws Exception {
+        Long userId = seedUser();
+        Path file = write("history.csv", "date,completed", "2026-01-01,true");
+        WorkoutImportJob failed = new WorkoutImportJob(userId, Format.CSV, file.toString(), false, "other-node");
+        failed.setStatus(Status.FAILED);
+        Long jobId = jobRepository.save(failed).getId();
+
+        importService.resume(userId, jobId);
+        assertThrows(RuntimeException.class, () -> importService.resume(userId, jobId));
+
+        WorkoutImportJob job = awaitFinished(jobId);
+        assertEquals(Status.COMPLETED, job.getStatus());
+        assertEquals(1, job.getRowsImported());
+    }
+
+    @Test
+    void aJobWhoseFileIsOnAnotherNodeIsNotResumedHere() {
+        Long userId = seedUser();
+        WorkoutImportJob failed = new WorkoutImportJob(userId, Format.CSV,
+                directory.resolve("missing.csv").toString(), true, "other-node");
+        failed.setStatus(Status.FAILED);
+        Long jobId = jobRepository.save(failed).getId();
+
+        assertThrows(RuntimeException.class, () -> importService.resume(userId, jobId));
+        assertEquals(Status.FAILED, jobRepository.findById(jobId).orElseThrow().getStatus());
+    }
+
+    private WorkoutImportJob importFile(Long userId, Path file) throws Exception {
+        // The command-line import runs on the calling thread
+        importService.run(new DefaultApplicationArguments(
+                "--import-workouts", "--user-id=" + userId, "--file=" + file));
+        return jobRepository.findByUserIdOrderByCreatedAtDesc(userId).get(0);
+    }
+
+    private WorkoutImportJob awaitFinished(Long jobId) throws InterruptedException {
+        long deadline = System.nanoTime() + 10_000_000_000L;
+        while (System.nanoTime() < deadline) {
+            WorkoutImportJob job = jobRepository.findById(jobId).orElseThrow();
+            if (job.getStatus() == Status.COMPLETED || job.getStatus() == Status.FAILED) {
+                return job;
+            }
+            Thread.sleep(20);
+        }
+        return fail("Import job " + jobId + " did not finish");
+    }
+
+    private Map<LocalDate, Boolean> days(Long userId) {
+        Map<LocalDate, Boolean> days = new LinkedHashMap<>();
+        for (WorkoutDayView day : workoutTrackingService.getWorkoutDays(userId, JAN_1.minusYears(1), JAN_1.plusYears(1))) {
+            days.put(day.date(), day.completed());
+        }
+        return days;
+    }
+
+    private Path write(String name, String... lines) throws IOException {
+        return Files.write(directory.resolve(name), List.of(lines));
+    }
+
+    private Long seedUser() {
+        return userRepository.save(new User("import-" + UUID.randomUUID(), "not-a-real-hash")).getId();
+    }
+}
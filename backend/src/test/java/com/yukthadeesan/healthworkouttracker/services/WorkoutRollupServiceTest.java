@@ -0,0 +1,170 @@
+package com.yukthadeesan.healthworkouttracker.services;
+
+import com.yukthadeesan.healthworkouttracker.models.User;
+import com.yukthadeesan.healthworkouttracker.models.WorkoutRollup;
+import com.yukthadeesan.healthworkouttracker.models.WorkoutRollup.PeriodType;
+import com.yukthadeesan.healthworkouttracker.models.WorkoutStreakState;
+import com.yukthadeesan.healthworkouttracker.repositories.UserRepository;
+import com.yukthadeesan.healthworkouttracker.repositories.WorkoutDayBatchRepository;
+import com.yukthadeesan.healthworkouttracker.repositories.WorkoutRollupRepository;
+import com.yukthadeesan.healthworkouttracker.repositories.WorkoutStreakStateRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.time.LocalDate;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.NONE)
+@ActiveProfiles("test")
+class WorkoutRollupServiceTest {
+
+    // A Wednesday, so the first week of the month starts in the month before
+    private static final LocalDate JULY_1 = LocalDate.of(2026, 7, 1);
+
+    @Autowired
+    private WorkoutRollupService rollupService;
+
+    @Autowired
+    private WorkoutTrackingService workoutTrackingService;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private WorkoutDayBatchRepository workoutDayBatchRepository;
+
+    @Autowired
+    private WorkoutRollupRepository rollupRepository;
+
+    @Autowired
+    private WorkoutStreakStateRepository streakStateRepository;
+
+    @Test
+    void rebuildUsersCountsCompletedDaysPerMonthAndWeek() {
+        Long userId = seedUser();
+        Map<LocalDate, Boolean> days = new LinkedHashMap<>();
+        days.put(JULY_1.minusDays(2), true);  // Monday June 29
+        days.put(JULY_1.minusDays(1), false);
+        days.put(JULY_1, true);
+        days.put(JULY_1.plusDays(1), true);
+        days.put(JULY_1.plusDays(6), true);   // Tuesday July 7
+        days.put(JULY_1.plusDays(31), true);  // Saturday August 1
+        workoutDayBatchRepository.upsert(userId, days);
+
+        rollupService.rebuildUsers(List.of(userId));
+
+        assertEquals(Map.of(
+                LocalDate.of(2026, 6, 1), 1,
+                LocalDate.of(2026, 7, 1), 3,
+                LocalDate.of(2026, 8, 1), 1
+        ), counts(userId, PeriodType.MONTH));
+        assertEquals(Map.of(
+                LocalDate.of(2026, 6, 29), 3,
+                LocalDate.of(2026, 7, 6), 1,
+                LocalDate.of(2026, 7, 27), 1
+        ), counts(userId, PeriodType.WEEK));
+
+        WorkoutStreakState state = streakStateRepository.findById(userId).orElseThrow();
+        assertTrue(state.getBuilt());
+        assertEquals(JULY_1.plusDays(31), state.getLastCompletedDate());
+        assertEquals(2, state.getLongestStreak());
+    }
+
+    @Test
+    void rebuildingAgainGivesTheSameCounts() {
+        Long userId = seedUser();
+        workoutDayBatchRepository.upsert(userId, Map.of(JULY_1, true, JULY_1.plusDays(1), true));
+
+        rollupService.rebuildUsers(List.of(userId));
+        rollupService.rebuildUsers(List.of(userId));
+
+        assertEquals(Map.of(JULY_1, 2), counts(userId, PeriodType.MONTH));
+    }
+
+    @Test
+    void firstWriteBuildsTheRollupsOnce() {
+        Long userId = seedUser();
+        workoutDayBatchRepository.upsert(userId, Map.of(JULY_1, true));
+        assertFalse(streakStateRepository.existsById(userId));
+
+        workoutTrackingService.recordWorkout(userId, JULY_1.plusDays(1), true);
+        workoutTrackingService.recordWorkout(userId, JULY_1.plusDays(2), true);
+
+        assertEquals(Map.of(JULY_1, 3), counts(userId, PeriodType.MONTH));
+        WorkoutStreakState state = streakStateRepository.findById(userId).orElseThrow();
+        assertEquals(JULY_1, state.getCurrentRunStart());
+        assertEquals(3, state.getLongestStreak());
+    }
+
+    @Test
+    void backFilledAndRemovedDaysGiveTheSameStateAsARebuild() {
+        Long userId = seedUser();
+        Map<LocalDate, Boolean> days = new LinkedHashMap<>();
+        // Runs of 3 (July 1-3), 5 (July 5-9) and 2 (July 12-13), the last one current
+        for (int day : new int[] {0, 1, 2, 4, 5, 6, 7, 8, 11, 12}) {
+            days.put(JULY_1.plusDays(day), true);
+        }
+        workoutDayBatchRepository.upsert(userId, days);
+        rollupService.rebuildUsers(List.of(userId));
+
+        // Joins the first two runs into one of 9
+        workoutTrackingService.recordWorkout(userId, JULY_1.plusDays(3), true);
+        assertState(userId, JULY_1.plusDays(12), JULY_1.plusDays(11), 9);
+
+        // Joins the last run to them: a current run of 13
+        workoutTrackingService.recordWorkout(userId, JULY_1.plusDays(9), true);
+        workoutTrackingService.recordWorkout(userId, JULY_1.plusDays(10), true);
+        assertState(userId, JULY_1.plusDays(12), JULY_1, 13);
+
+        // Splits the longest run, which is also the current one: runs of 10 and 2 are left
+        workoutTrackingService.deleteWorkout(userId, JULY_1.plusDays(10));
+        assertState(userId, JULY_1.plusDays(12), JULY_1.plusDays(11), 10);
+
+        // Not part of a longest run: only the current run moves
+        workoutTrackingService.recordWorkout(userId, JULY_1.plusDays(12), false);
+        assertState(userId, JULY_1.plusDays(11), JULY_1.plusDays(11), 10);
+        workoutTrackingService.deleteWorkout(userId, JULY_1.plusDays(11));
+        assertState(userId, JULY_1.plusDays(9), JULY_1, 10);
+
+        // The end state matches a rebuild from the rows
+        WorkoutStreakState incremental = streakStateRepository.findById(userId).orElseThrow();
+        Map<LocalDate, Integer> incrementalWeeks = counts(userId, PeriodType.WEEK);
+        rollupService.rebuildUsers(List.of(userId));
+        WorkoutStreakState rebuilt = streakStateRepository.findById(userId).orElseThrow();
+        assertEquals(rebuilt.getCurrentRunStart(), incremental.getCurrentRunStart());
+        assertEquals(rebuilt.getLongestStreak(), incremental.getLongestStreak());
+        assertEquals(counts(userId, PeriodType.WEEK), incrementalWeeks);
+    }
+
+    private void assertState(Long userId, LocalDate lastCompleted, LocalDate currentRunStart, int longest) {
+        WorkoutStreakState state = streakStateRepository.findById(userId).orElseThrow();
+        assertEquals(lastCompleted, state.getLastCompletedDate(), "last completed date");
+        assertEquals(currentRunStart, state.getCurrentRunStart(), "current run start");
+        assertEquals(longest, state.getLongestStreak(), "longest streak");
+    }
+
+    private Map<LocalDate, Integer> counts(Long userId, PeriodType type) {
+        Map<LocalDate, Integer> counts = new LinkedHashMap<>();
+        for (WorkoutRollup rollup : rollupRepository.findByUserIdAndPeriodTypeAndPeriodStartBetweenOrderByPeriodStart(
+                userId, type, LocalDate.of(2000, 1, 1), LocalDate.of(2100, 1, 1))) {
+            // A period that drops to 0 keeps its row until the next rebuild
+            if (rollup.getCompletedCount() > 0) {
+                counts.put(rollup.getPeriodStart(), rollup.getCompletedCount());
+            }
+        }
+        return counts;
+    }
+
+    private Long seedUser() {
+        return userRepository.save(new User("rollup-" + UUID.randomUUID(), "not-a-real-hash")).getId();
+    }
+}
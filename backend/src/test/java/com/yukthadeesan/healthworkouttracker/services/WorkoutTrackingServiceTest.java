@@ -0,0 +1,218 @@
+package com.yukthadeesan.healthworkouttracker.services;
+
+import com.yukthadeesan.healthworkouttracker.SqlStatementRecorder;
+import com.yukthadeesan.healthworkouttracker.models.User;
+import com.yukthadeesan.healthworkouttracker.models.WorkoutDayView;
+import com.yukthadeesan.healthworkouttracker.repositories.UserRepository;
+import com.yukthadeesan.healthworkouttracker.repositories.WorkoutDayBatchRepository;
+import com.yukthadeesan.healthworkouttracker.repositories.WorkoutVersionRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.UUID;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.NONE)
+@ActiveProfiles("test")
+@Import(SqlStatementRecorder.class)
+class WorkoutTrackingServiceTest {
+
+    private static final Pattern USERS_TABLE = Pattern.compile("(?i)\\b(from|join|update|into)\\s+users\\b");
+    private static final Pattern FIRST_TABLE = Pattern.compile("(?i)\\bfrom\\s+(\\w+)");
+    private static final String VERSIONS = "workout_versions";
+    private static final String ARCHIVES = "workout_day_archives";
+    private static final String WORKOUT_DAYS = "workout_days";
+    private static final String STREAK_STATES = "workout_streak_states";
+
+    @Autowired
+    private WorkoutTrackingService workoutTrackingService;
+
+    @Autowired
+    private WorkoutCalendarCache calendarCache;
+
+    @Autowired
+    private UserClock userClock;
+
+    @Autowired
+    private WorkoutArchiveService archiveService;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private WorkoutDayBatchRepository workoutDayBatchRepository;
+
+    @Autowired
+    private WorkoutVersionRepository versionRepository;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    private Long userId;
+    private LocalDate today;
+
+    @BeforeEach
+    void seedUser() {
+        User user = userRepository.save(new User("tracking-" + UUID.randomUUID(), "not-a-real-hash"));
+        userId = user.getId();
+        today = userClock.today(userId).date();
+
+        // Warm up: the first calls load the user's time zone and verify the user exists
+        workoutTrackingService.recordWorkout(userId, today.minusDays(1), true);
+        readEverything();
+    }
+
+    @Test
+    void hotPathsNeverReadTheUsersTable() {
+        SqlStatementRecorder.start();
+        workoutTrackingService.recordWorkout(userId, today, true);
+        readEverything();
+        List<String> statements = SqlStatementRecorder.stop();
+
+        assertNoUsersQuery(statements);
+        assertEquals(2, workoutTrackingService.countCompletedWorkouts(userId, today.minusDays(1), today));
+    }
+
+    @Test
+    void cachedReadsIssueNoStatements() {
+        SqlStatementRecorder.start();
+        workoutTrackingService.getWorkoutDays(userId, today.minusDays(30), today);
+        workoutTrackingService.getWeekWorkouts(userId, userClock.today(userId).weekStart());
+        workoutTrackingService.countCompletedWorkouts(userId, today.minusDays(30), today);
+        List<String> statements = SqlStatementRecorder.stop();
+
+        assertEquals(List.of(), statements);
+    }
+
+    // The hot read paths as the controller runs them: the ETag check, then the read
+
+    @Test
+    void rangeReadsOneStatementWarmAndLoadsTheCalendarCold() {
+        calendarCache.evict(userId);
+        // The ETag check reads the stored version; the load reads it again, for the calendar it stamps
+        assertEquals(List.of(VERSIONS, VERSIONS, ARCHIVES, WORKOUT_DAYS), tables(this::rangeRequest));
+        assertEquals(List.of(VERSIONS), tables(this::rangeRequest));
+    }
+
+    @Test
+    void weekReadsOneStatementWarmAndLoadsTheCalendarCold() {
+        calendarCache.evict(userId);
+        assertEquals(List.of(VERSIONS, VERSIONS, ARCHIVES, WORKOUT_DAYS), tables(this::weekRequest));
+        assertEquals(List.of(VERSIONS), tables(this::weekRequest));
+    }
+
+    @Test
+    void statsReadOneRollupStatementWithOrWithoutACachedCalendar() {
+        calendarCache.evict(userId);
+        // The streak state joined with the month's rollup
+        assertEquals(List.of(VERSIONS, STREAK_STATES), tables(this::statsRequest));
+        assertEquals(List.of(VERSIONS, STREAK_STATES), tables(this::statsRequest));
+    }
+
+    @Test
+    void ownWritesKeepTheCalendarButOtherNodesWritesReloadIt() {
+        WorkoutVersionTracker.Version before = calendarCache.checkVersion(userId);
+        workoutTrackingService.recordWorkout(userId, today.minusDays(2), true);
+        WorkoutVersionTracker.Version afterOwnWrite = calendarCache.checkVersion(userId);
+        assertNotEquals(before.sequence(), afterOwnWrite.sequence());
+
+        // Another node writes a day: its transaction increments the stored version
+        transactionTemplate.executeWithoutResult(status -> {
+            workoutDayBatchRepository.upsert(userId, Map.of(today.minusDays(3), true));
+            versionRepository.increment(userId);
+        });
+
+        WorkoutVersionTracker.Version afterOtherWrite = calendarCache.checkVersion(userId);
+        assertNotEquals(afterOwnWrite.sequence(), afterOtherWrite.sequence());
+        assertEquals(3, workoutTrackingService.countCompletedWorkouts(userId, today.minusDays(3), today));
+    }
+
+    @Test
+    void batchResultsDontClaimToKnowInsertsFromUpdates() {
+        List<WorkoutTrackingService.WorkoutEntry> entries = Arrays.asList(
+                new WorkoutTrackingService.WorkoutEntry(today.minusDays(1), false),
+                new WorkoutTrackingService.WorkoutEntry(today.minusDays(4), true),
+                new WorkoutTrackingService.WorkoutEntry(today.minusDays(4), false),
+                new WorkoutTrackingService.WorkoutEntry(null, true));
+
+        List<String> statuses = workoutTrackingService.recordWorkouts(userId, entries).stream()
+                .map(result -> (String) result.get("status"))
+                .toList();
+
+        // An update, a superseded entry, the insert that supersedes it and an invalid entry
+        assertEquals(List.of("applied", "superseded", "applied", "rejected"), statuses);
+    }
+
+    @Test
+    void exportStreamsArchivedAndRecentDaysOldestFirst() {
+        LocalDate archived = LocalDate.of(2020, 1, 1);
+        workoutDayBatchRepository.upsert(userId, Map.of(archived, true, archived.plusDays(1), true));
+        archiveService.archiveUsers(List.of(userId));
+        // Written after archival, so it replaces the archived day
+        workoutDayBatchRepository.upsert(userId, Map.of(archived.plusDays(1), false));
+
+        List<WorkoutDayView> days = new ArrayList<>();
+        workoutTrackingService.exportWorkoutDays(userId, days::add);
+
+        assertEquals(List.of(
+                new WorkoutDayView(archived, true),
+                new WorkoutDayView(archived.plusDays(1), false),
+                new WorkoutDayView(today.minusDays(1), true)), days);
+    }
+
+    private void rangeRequest() {
+        calendarCache.checkVersion(userId);
+        workoutTrackingService.getWorkoutDays(userId, today.minusDays(30), today);
+    }
+
+    private void weekRequest() {
+        calendarCache.checkVersion(userId);
+        workoutTrackingService.getWeekWorkouts(userId, userClock.today(userId).weekStart());
+    }
+
+    private void statsRequest() {
+        calendarCache.checkVersion(userId);
+        workoutTrackingService.getCurrentMonthStats(userId);
+    }
+
+    /**
+     * @return the table each statement the request issued reads first, in order
+     */
+    private static List<String> tables(Runnable request) {
+        SqlStatementRecorder.start();
+        request.run();
+        return SqlStatementRecorder.stop().stream()
+                .map(sql -> {
+                    Matcher matcher = FIRST_TABLE.matcher(sql);
+                    return matcher.find() ? matcher.group(1).toLowerCase(Locale.ROOT) : sql;
+                })
+                .toList();
+    }
+
+    private void readEverything() {
+        workoutTrackingService.getWorkoutDays(userId, today.minusDays(30), today);
+        workoutTrackingService.getWeekWorkouts(userId, userClock.today(userId).weekStart());
+        workoutTrackingService.countCompletedWorkouts(userId, today.minusDays(30), today);
+        workoutTrackingService.getCurrentMonthStats(userId);
+    }
+
+    private static void assertNoUsersQuery(List<String> statements) {
+        List<String> usersQueries = statements.stream().filter(sql -> USERS_TABLE.matcher(sql).find()).toList();
+        assertEquals(List.of(), usersQueries, "Statements against the users table");
+    }
+}
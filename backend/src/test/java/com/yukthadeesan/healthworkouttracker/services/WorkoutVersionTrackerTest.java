@@ -0,0 +1,53 @@
+package com.yukthadeesan.healthworkouttracker.services;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+
+class WorkoutVersionTrackerTest {
+
+    private static final LocalDate DAY = LocalDate.of(2026, 10, 17);
+    private static final Long USER_ID = 7L;
+
+    @Test
+    void nodesAgreeOnTheETagOfStoredData() {
+        WorkoutVersionTracker nodeA = new WorkoutVersionTracker(100);
+        WorkoutVersionTracker nodeB = new WorkoutVersionTracker(100);
+        // Local changes on one node that were since stored don't matter
+        nodeA.bump(USER_ID);
+        nodeA.bump(USER_ID, 3);
+
+        assertEquals(etag(nodeA, 3, false), etag(nodeB, 3, false));
+        assertNotEquals(etag(nodeA, 3, false), etag(nodeB, 4, false));
+        assertNotEquals(etag(nodeA, 3, false), nodeA.etag(8L, nodeA.getVersion(8L, 3, false), DAY));
+        assertNotEquals(etag(nodeA, 3, false), nodeA.etag(USER_ID, nodeA.getVersion(USER_ID, 3, false), DAY, "bin"));
+    }
+
+    @Test
+    void unstoredCheckInsGiveANodeLocalETagThatChangesWithEachOne() {
+        WorkoutVersionTracker nodeA = new WorkoutVersionTracker(100);
+        WorkoutVersionTracker nodeB = new WorkoutVersionTracker(100);
+
+        String pending = etag(nodeA, 3, true);
+        assertNotEquals(etag(nodeB, 3, false), pending);
+        assertNotEquals(etag(nodeB, 3, true), pending);
+
+        nodeA.bump(USER_ID);
+        assertNotEquals(pending, etag(nodeA, 3, true));
+    }
+
+    @Test
+    void theDayIsPartOfTheETag() {
+        WorkoutVersionTracker tracker = new WorkoutVersionTracker(100);
+        WorkoutVersionTracker.Version version = tracker.getVersion(USER_ID, 3, false);
+
+        assertNotEquals(tracker.etag(USER_ID, version, DAY), tracker.etag(USER_ID, version, DAY.plusDays(1)));
+    }
+
+    private static String etag(WorkoutVersionTracker tracker, long storedVersion, boolean unstoredChanges) {
+        return tracker.etag(USER_ID, tracker.getVersion(USER_ID, storedVersion, unstoredChanges), DAY);
+    }
+}
@@ -0,0 +1,151 @@
+package com.yukthadeesan.healthworkouttracker.services;
+
+import com.yukthadeesan.healthworkouttracker.models.User;
+import com.yukthadeesan.healthworkouttracker.models.WorkoutDay;
+import com.yukthadeesan.healthworkouttracker.repositories.UserRepository;
+import com.yukthadeesan.healthworkouttracker.repositories.WorkoutDayBatchRepository;
+import com.yukthadeesan.healthworkouttracker.repositories.WorkoutDayRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.SpyBean;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.anyMap;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.reset;
+
+// Flushes are left to the tests: the background flush runs once an hour
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.NONE, properties = {
+        "workout.write-behind.enabled=true",
+        "workout.write-behind.flush-interval=1h",
+        "workout.write-behind.flush-size=1000000",
+        "workout.write-behind.log-dir=build/test-data/write-behind-buffer"})
+@ActiveProfiles("test")
+class WorkoutWriteBufferTest {
+
+    private static final LocalDate DAY = LocalDate.of(2026, 10, 17);
+
+    @Autowired
+    private WorkoutWriteBuffer writeBuffer;
+
+    @Autowired
+    private PendingWorkoutDays pending;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private WorkoutDayRepository workoutDayRepository;
+
+    @SpyBean
+    private WorkoutDayBatchRepository workoutDayBatchRepository;
+
+    @AfterEach
+    void resetRepository() {
+        reset(workoutDayBatchRepository);
+    }
+
+    @Test
+    void theLastCheckInWinsWhileFlushesRunConcurrently() throws Exception {
+        Long userId = seedUser();
+        int days = 8;
+        ExecutorService threads = Executors.newFixedThreadPool(days + 1);
+        CountDownLatch start = new CountDownLatch(1);
+        AtomicBoolean recording = new AtomicBoolean(true);
+        try {
+            // One writer per day, so each day has a well-defined last value
+            List<Future<Boolean>> lastValues = new ArrayList<>();
+            for (int day = 0; day < days; day++) {
+                LocalDate date = DAY.plusDays(day);
+                Random random = new Random(day);
+                lastValues.add(threads.submit(() -> {
+                    start.await();
+                    boolean completed = false;
+                    for (int write = 0; write < 200; write++) {
+                        completed = random.nextBoolean();
+                        writeBuffer.record(userId, date, completed);
+                    }
+                    return completed;
+                }));
+            }
+            Future<?> flusher = threads.submit(() -> {
+                start.await();
+                while (recording.get()) {
+                    writeBuffer.flushUser(userId);
+                }
+                return null;
+            });
+
+            start.countDown();
+            List<Boolean> expected = new ArrayList<>();
+            for (Future<Boolean> lastValue : lastValues) {
+                expected.add(lastValue.get(30, TimeUnit.SECONDS));
+            }
+            recording.set(false);
+            flusher.get(30, TimeUnit.SECONDS);
+            writeBuffer.flushUser(userId);
+
+            for (int day = 0; day < days; day++) {
+                WorkoutDay stored = workoutDayRepository.findByUserIdAndDate(userId, DAY.plusDays(day));
+                assertEquals(expected.get(day), stored.getCompleted(), "day " + day);
+            }
+            assertTrue(pending.get(userId).isEmpty());
+        } finally {
+            threads.shutdownNow();
+        }
+    }
+
+    @Test
+    void checkInsOfAUserThatStillExistsStayPendingWhenTheirWriteFails() {
+        Long userId = seedUser();
+        writeBuffer.record(userId, DAY, true);
+        doThrow(new DataIntegrityViolationException("simulated"))
+                .when(workoutDayBatchRepository).upsert(eq(userId), anyMap());
+
+        writeBuffer.flushUser(userId);
+
+        assertEquals(Map.of(DAY, true), pending.get(userId));
+        reset(workoutDayBatchRepository);
+        writeBuffer.flushUser(userId);
+        assertTrue(pending.get(userId).isEmpty());
+        assertTrue(workoutDayRepository.findByUserIdAndDate(userId, DAY).getCompleted());
+    }
+
+    @Test
+    void checkInsOfADeletedUserAreDropped() {
+        Long userId = seedUser();
+        writeBuffer.record(userId, DAY, true);
+        userRepository.deleteById(userId);
+
+        writeBuffer.flushUser(userId);
+
+        assertTrue(pending.get(userId).isEmpty());
+        assertNull(workoutDayRepository.findByUserIdAndDate(userId, DAY));
+        assertFalse(userRepository.existsById(userId));
+    }
+
+    private Long seedUser() {
+        return userRepository.save(new User("write-behind-" + UUID.randomUUID(), "not-a-real-hash")).getId();
+    }
+}
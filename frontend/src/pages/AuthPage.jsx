@@ -48,8 +48,8 @@ const AuthPage = () => {
                 // Store user info in localStorage
                 localStorage.setItem('username', response.data.username || username);
                 localStorage.setItem('userId', response.data.userId);
-                // Add a simple token for PrivateRoute authentication
-                localStorage.setItem('token', 'user-authenticated');
+                // Access token, sent as a Bearer token by services/api.js
+                localStorage.setItem('token', response.data.token);
 
                 console.log("Stored in localStorage:", {
                     username: localStorage.getItem('username'),
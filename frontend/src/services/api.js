@@ -1,5 +1,6 @@
 // src/services/api.js
 import axios from 'axios';
+import { decodeWorkoutBitmap } from './workoutBitmap';
 
 // Create an axios instance with default config
 const API = axios.create({
@@ -16,6 +17,11 @@ API.interceptors.request.use(
         if (token) {
             config.headers.Authorization = `Bearer ${token}`;
         }
+        // Echo the server's read-your-writes window, so reads after a write see it on any node
+        const readYourWrites = localStorage.getItem('readYourWrites');
+        if (readYourWrites) {
+            config.headers['Read-Your-Writes'] = readYourWrites;
+        }
         return config;
     },
     (error) => {
@@ -26,6 +32,10 @@ API.interceptors.request.use(
 // Add a response interceptor to handle common errors
 API.interceptors.response.use(
     (response) => {
+        const readYourWrites = response.headers['read-your-writes'];
+        if (readYourWrites) {
+            localStorage.setItem('readYourWrites', readYourWrites);
+        }
         return response;
     },
     (error) => {
@@ -35,6 +45,7 @@ API.interceptors.response.use(
             localStorage.removeItem('token');
             localStorage.removeItem('username');
             localStorage.removeItem('userId');
+            localStorage.removeItem('readYourWrites');
 
             // If we're not already on the auth page, redirect
             if (window.location.pathname !== '/') {
@@ -53,6 +64,7 @@ export const authService = {
         localStorage.removeItem('token');
         localStorage.removeItem('username');
         localStorage.removeItem('userId');
+        localStorage.removeItem('readYourWrites');
     }
 };
 
@@ -60,7 +72,25 @@ export const authService = {
 export const workoutService = {
     getWorkoutDays: () => API.get('/workouts'),
     addWorkoutDay: (date) => API.post('/workouts', { date }),
-    getWeeklySummary: () => API.get('/workouts/summary')
+    getWeeklySummary: () => API.get('/workouts/summary'),
+    // Resolves to { weekStart, week, month, stats, timings } in one request
+    getDashboard: () => API.get('/workouts/dashboard').then((response) => response.data),
+    // Resolves to [{ date, completed }] for the recorded days of the range
+    getRangeBitmap: (startDate, endDate) => API.get('/workouts/range', {
+        params: { startDate, endDate },
+        headers: { Accept: 'application/octet-stream' },
+        responseType: 'arraybuffer'
+    }).then((response) => decodeWorkoutBitmap(response.data)),
+    // Calls onUpdate({ stats, weekStart, week }) on connect and after every change; close() the returned source when done.
+    // EventSource can't send headers, so the token goes in the query string
+    // Not used by a page yet: the dashboard pages App.jsx routes to aren't in this repository; they should
+    // open it in place of polling getDashboard
+    openLiveStats: (onUpdate) => {
+        const token = encodeURIComponent(localStorage.getItem('token') || '');
+        const source = new EventSource(`${API.defaults.baseURL}/workouts/live?access_token=${token}`);
+        source.addEventListener('stats', (event) => onUpdate(JSON.parse(event.data)));
+        return source;
+    }
 };
 
 export default API;
\ No newline at end of file
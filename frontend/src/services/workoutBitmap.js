@@ -0,0 +1,39 @@
+// Decoder for the packed workout range returned by GET /workouts/range
+// (see WorkoutBitmap.java). Bit i of a bitmap is bit (i % 8) of byte (i / 8)
+// and describes the day startEpochDay + i.
+
+const DAY_MS = 24 * 60 * 60 * 1000;
+
+const toIsoDate = (epochDay) => new Date(epochDay * DAY_MS).toISOString().slice(0, 10);
+
+const base64ToBytes = (base64) => Uint8Array.from(atob(base64), (c) => c.charCodeAt(0));
+
+const expand = (startEpochDay, days, recorded, completed) => {
+    const result = [];
+    for (let i = 0; i < days; i++) {
+        const mask = 1 << (i & 7);
+        if (recorded[i >> 3] & mask) {
+            result.push({
+                date: toIsoDate(startEpochDay + i),
+                completed: (completed[i >> 3] & mask) !== 0
+            });
+        }
+    }
+    return result;
+};
+
+// Decodes the application/octet-stream form:
+// int32 start epoch-day, uint16 day count, recorded bitmap, completed bitmap
+export const decodeWorkoutBitmap = (buffer) => {
+    const view = new DataView(buffer);
+    const startEpochDay = view.getInt32(0);
+    const days = view.getUint16(4);
+    const length = Math.ceil(days / 8);
+    const recorded = new Uint8Array(buffer, 6, length);
+    const completed = new Uint8Array(buffer, 6 + length, length);
+    return expand(startEpochDay, days, recorded, completed);
+};
+
+// Decodes the application/vnd.workout-bitmap+json form
+export const decodeWorkoutBitmapJson = (json) =>
+    expand(json.startEpochDay, json.days, base64ToBytes(json.recorded), base64ToBytes(json.completed));